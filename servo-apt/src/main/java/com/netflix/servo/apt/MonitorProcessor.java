@@ -0,0 +1,297 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.apt;
+
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.MonitorTags;
+import com.netflix.servo.monitor.MemberAccessor;
+import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.MonitorMetadataFactory;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Annotation processor that generates a {@link MonitorMetadataFactory} for each class that
+ * declares members with a {@link com.netflix.servo.annotations.Monitor} or {@link MonitorTags}
+ * annotation. The factory is named after the binary name of the class with
+ * {@link MonitorMetadataFactory#SUFFIX} appended and is used by
+ * {@link com.netflix.servo.monitor.Monitors#newObjectMonitor(String, Object)} instead of
+ * scanning the class using reflection. Non-private members are read directly by the generated
+ * code, private members are read using reflection. Using an annotation of a type other than
+ * {@link DataSourceType#INFORMATIONAL} on a member that is not numeric is a compile error.
+ *
+ * <p>The processor is registered as a service so it is used automatically if this module is on
+ * the compile classpath.</p>
+ */
+public class MonitorProcessor extends AbstractProcessor {
+
+    private static final String MONITOR_ANNOTATION =
+            com.netflix.servo.annotations.Monitor.class.getCanonicalName();
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        final Set<String> types = new LinkedHashSet<String>();
+        types.add(MONITOR_ANNOTATION);
+        types.add(MonitorTags.class.getCanonicalName());
+        return types;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final Set<TypeElement> classes = new LinkedHashSet<TypeElement>();
+        for (TypeElement annotation : annotations) {
+            for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+                final Element enclosing = e.getEnclosingElement();
+                if (enclosing instanceof TypeElement) {
+                    classes.add((TypeElement) enclosing);
+                }
+            }
+        }
+
+        for (TypeElement c : classes) {
+            if (isAccessible(c)) {
+                generate(c);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the class can be referenced from another class in the same package.
+     * Private, local and anonymous classes are left to the reflection scan.
+     */
+    private static boolean isAccessible(TypeElement c) {
+        Element e = c;
+        while (e instanceof TypeElement) {
+            final TypeElement t = (TypeElement) e;
+            final NestingKind nesting = t.getNestingKind();
+            if (t.getModifiers().contains(Modifier.PRIVATE)
+                    || (nesting != NestingKind.TOP_LEVEL && nesting != NestingKind.MEMBER)) {
+                return false;
+            }
+            e = t.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /** Generate the factory for a class. */
+    private void generate(TypeElement c) {
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(c);
+        final String pkgName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(c).toString();
+        final String simpleName = (pkgName.isEmpty() ? binaryName
+                : binaryName.substring(pkgName.length() + 1)) + MonitorMetadataFactory.SUFFIX;
+        final String type = processingEnv.getTypeUtils().erasure(c.asType()).toString();
+
+        final StringBuilder body = new StringBuilder();
+        boolean valid = true;
+
+        for (Element field : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+            if (isMonitor(field.asType())) {
+                body.append("        members.addMonitorField(")
+                    .append(accessor(type, field, false)).append(");\n");
+            }
+            valid &= addAttribute(body, type, field, field.asType());
+        }
+        for (ExecutableElement method : ElementFilter.methodsIn(c.getEnclosedElements())) {
+            valid &= addAttribute(body, type, method, method.getReturnType());
+        }
+
+        // Fields with the tags annotation take precedence over methods, same as the scan
+        for (Element field : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+            if (field.getAnnotation(MonitorTags.class) != null) {
+                body.append("        members.setTags(")
+                    .append(accessor(type, field, false)).append(");\n");
+            }
+        }
+        for (ExecutableElement method : ElementFilter.methodsIn(c.getEnclosedElements())) {
+            if (method.getAnnotation(MonitorTags.class) != null) {
+                valid &= checkNoArguments(method);
+                body.append("        members.setTags(")
+                    .append(accessor(type, method, true)).append(");\n");
+            }
+        }
+
+        if (valid) {
+            write(c, pkgName, simpleName, type, body.toString());
+        }
+    }
+
+    /** Add the code for a member with a monitor annotation, returns false if it is invalid. */
+    private boolean addAttribute(StringBuilder body, String type, Element member,
+                                 TypeMirror valueType) {
+        final com.netflix.servo.annotations.Monitor anno =
+                member.getAnnotation(com.netflix.servo.annotations.Monitor.class);
+        if (anno == null) {
+            return true;
+        }
+
+        final boolean method = member.getKind() == ElementKind.METHOD;
+        if (method && !checkNoArguments((ExecutableElement) member)) {
+            return false;
+        }
+        if (anno.type() != DataSourceType.INFORMATIONAL && !isNumeric(valueType)) {
+            error(member, "annotation of type " + anno.type().name() + " can only be used"
+                + " with numeric values, " + member.getSimpleName() + " has type " + valueType);
+            return false;
+        }
+
+        body.append("        members.addAttribute(")
+            .append(accessor(type, member, method)).append(",\n")
+            .append("                ").append(literal(anno.name()))
+            .append(", DataSourceType.").append(anno.type().name())
+            .append(", DataSourceLevel.").append(anno.level().name()).append(");\n");
+        return true;
+    }
+
+    /** Returns the expression for the accessor of a member. */
+    private static String accessor(String type, Element member, boolean method) {
+        final String name = member.getSimpleName().toString();
+        if (member.getModifiers().contains(Modifier.PRIVATE)) {
+            return "MemberAccessor.<" + type + ">" + (method ? "ofMethod(" : "ofField(")
+                + type + ".class, " + literal(name) + ")";
+        }
+
+        final String target = member.getModifiers().contains(Modifier.STATIC) ? type : "obj";
+        return "new MemberAccessor<" + type + ">(" + type + ".class, " + literal(name) + ", "
+            + method + ") {\n"
+            + "            @Override\n"
+            + "            public Object get(" + type + " obj) {\n"
+            + "                return " + target + "." + name + (method ? "()" : "") + ";\n"
+            + "            }\n"
+            + "        }";
+    }
+
+    /** Annotated methods are invoked without arguments. */
+    private boolean checkNoArguments(ExecutableElement method) {
+        if (!method.getParameters().isEmpty()) {
+            error(method, "monitor method " + method.getSimpleName()
+                + " must not take any arguments");
+            return false;
+        }
+        return true;
+    }
+
+    /** Returns true if the type is a {@link Monitor}. */
+    private boolean isMonitor(TypeMirror t) {
+        final TypeMirror monitor = processingEnv.getElementUtils()
+                .getTypeElement(Monitor.class.getCanonicalName()).asType();
+        return processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(t),
+                processingEnv.getTypeUtils().erasure(monitor));
+    }
+
+    /** Returns true if the type can be assigned to a number. */
+    private boolean isNumeric(TypeMirror t) {
+        final TypeKind kind = t.getKind();
+        if (kind.isPrimitive()) {
+            return kind != TypeKind.BOOLEAN && kind != TypeKind.CHAR;
+        }
+        final TypeMirror number = processingEnv.getElementUtils()
+                .getTypeElement(Number.class.getCanonicalName()).asType();
+        return processingEnv.getTypeUtils().isAssignable(t, number);
+    }
+
+    private void write(TypeElement c, String pkgName, String simpleName, String type,
+                       String body) {
+        final String name = pkgName.isEmpty() ? simpleName : pkgName + "." + simpleName;
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(name, c);
+            final Writer writer = file.openWriter();
+            try {
+                final PrintWriter out = new PrintWriter(writer);
+                if (!pkgName.isEmpty()) {
+                    out.println("package " + pkgName + ";");
+                    out.println();
+                }
+                out.println("import com.netflix.servo.annotations.DataSourceLevel;");
+                out.println("import com.netflix.servo.annotations.DataSourceType;");
+                out.println("import com.netflix.servo.monitor.MemberAccessor;");
+                out.println("import com.netflix.servo.monitor.MonitorMetadataFactory;");
+                out.println();
+                out.println("/** Generated by " + getClass().getName() + " for "
+                    + type + ". */");
+                out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+                out.println("public final class " + simpleName);
+                out.println("        implements MonitorMetadataFactory<" + type + "> {");
+                out.println("    @Override");
+                out.println("    public void describe(Members<" + type + "> members) {");
+                out.print(body);
+                out.println("    }");
+                out.println("}");
+                out.flush();
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(c, "failed to write " + name + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element e, String msg) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, msg, e);
+    }
+
+    /** Returns a java string literal for the value. */
+    private static String literal(String s) {
+        final StringBuilder buf = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); ++i) {
+            final char ch = s.charAt(i);
+            switch (ch) {
+                case '"':
+                    buf.append("\\\"");
+                    break;
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                default:
+                    if (ch < 0x20 || ch > 0x7e) {
+                        buf.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        buf.append(ch);
+                    }
+            }
+        }
+        return buf.append('"').toString();
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.apt;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.MonitorMetadataFactory;
+import com.netflix.servo.monitor.Monitors;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class MonitorProcessorTest {
+
+    private static final String SOURCE = ""
+        + "package example;\n"
+        + "import com.netflix.servo.annotations.DataSourceType;\n"
+        + "import com.netflix.servo.annotations.Monitor;\n"
+        + "import com.netflix.servo.annotations.MonitorTags;\n"
+        + "import com.netflix.servo.monitor.Counter;\n"
+        + "import com.netflix.servo.monitor.Monitors;\n"
+        + "import com.netflix.servo.tag.BasicTagList;\n"
+        + "import com.netflix.servo.tag.TagList;\n"
+        + "public class Example {\n"
+        + "    public final Counter counter = Monitors.newCounter(\"counter\");\n"
+        + "    @Monitor(name = \"gauge\", type = DataSourceType.GAUGE)\n"
+        + "    long gauge = 1L;\n"
+        + "    @Monitor(type = DataSourceType.COUNTER)\n"
+        + "    private int secret = 2;\n"
+        + "    @MonitorTags\n"
+        + "    private TagList tags = BasicTagList.of(\"app\", \"test\");\n"
+        + "    @Monitor(name = \"status\", type = DataSourceType.INFORMATIONAL)\n"
+        + "    public String getStatus() { return \"ok\"; }\n"
+        + "    public static class Nested {\n"
+        + "        @Monitor(name = \"nested\", type = DataSourceType.GAUGE)\n"
+        + "        Double value = 3.0;\n"
+        + "    }\n"
+        + "}\n";
+
+    private File dir;
+
+    @BeforeMethod
+    public void setup() {
+        dir = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void cleanup() throws Exception {
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private boolean compile(String name, String source,
+                            DiagnosticCollector<JavaFileObject> diagnostics) throws Exception {
+        final File file = new File(dir, name + ".java");
+        Files.write(source, file, Charsets.UTF_8);
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fm = compiler.getStandardFileManager(null, null, null);
+        try {
+            final List<String> options = Arrays.asList(
+                "-d", dir.getPath(),
+                "-s", dir.getPath(),
+                "-classpath", System.getProperty("java.class.path"));
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fm, diagnostics,
+                options, null, fm.getJavaFileObjects(file));
+            task.setProcessors(Collections.singletonList(new MonitorProcessor()));
+            return task.call();
+        } finally {
+            fm.close();
+        }
+    }
+
+    @Test
+    public void testGeneratedFactory() throws Exception {
+        final DiagnosticCollector<JavaFileObject> diagnostics =
+            new DiagnosticCollector<JavaFileObject>();
+        assertTrue(compile("Example", SOURCE, diagnostics), diagnostics.getDiagnostics()
+            .toString());
+
+        final ClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()},
+            getClass().getClassLoader());
+        final Class<?> c = loader.loadClass("example.Example");
+        assertTrue(MonitorMetadataFactory.class.isAssignableFrom(
+            loader.loadClass("example.Example" + MonitorMetadataFactory.SUFFIX)));
+        assertTrue(MonitorMetadataFactory.class.isAssignableFrom(
+            loader.loadClass("example.Example$Nested" + MonitorMetadataFactory.SUFFIX)));
+
+        final List<Monitor<?>> monitors =
+            Monitors.newObjectMonitor("1", c.newInstance()).getMonitors();
+        assertEquals(monitors.size(), 4);
+        assertEquals(monitors.get(0).getConfig().getName(), "counter");
+        assertEquals(monitors.get(1).getConfig().getName(), "gauge");
+        assertEquals(monitors.get(1).getValue(), 1L);
+        assertEquals(monitors.get(2).getConfig().getName(), "secret");
+        assertEquals(monitors.get(2).getValue(), 2);
+        assertEquals(monitors.get(3).getConfig().getName(), "status");
+        assertEquals(monitors.get(3).getValue(), "ok");
+        for (Monitor<?> m : monitors) {
+            assertEquals(m.getConfig().getTags().getValue("app"), "test");
+        }
+
+        final Object nested = loader.loadClass("example.Example$Nested").newInstance();
+        final List<Monitor<?>> nestedMonitors =
+            Monitors.newObjectMonitor("2", nested).getMonitors();
+        assertEquals(nestedMonitors.size(), 1);
+        assertEquals(nestedMonitors.get(0).getValue(), 3.0);
+    }
+
+    @Test
+    public void testNonNumericIsError() throws Exception {
+        final String source = ""
+            + "package example;\n"
+            + "import com.netflix.servo.annotations.DataSourceType;\n"
+            + "import com.netflix.servo.annotations.Monitor;\n"
+            + "public class Invalid {\n"
+            + "    @Monitor(name = \"gauge\", type = DataSourceType.GAUGE)\n"
+            + "    String gauge = \"1\";\n"
+            + "}\n";
+        final DiagnosticCollector<JavaFileObject> diagnostics =
+            new DiagnosticCollector<JavaFileObject>();
+        assertFalse(compile("Invalid", source, diagnostics));
+
+        boolean found = false;
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.ERROR
+                    && d.getMessage(null).contains("numeric")) {
+                found = true;
+            }
+        }
+        assertTrue(found, diagnostics.getDiagnostics().toString());
+    }
+}
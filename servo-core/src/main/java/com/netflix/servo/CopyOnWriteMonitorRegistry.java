@@ -0,0 +1,195 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.servo.monitor.Monitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Monitor registry that keeps an immutable snapshot of the registered monitors. Reads return
+ * the current snapshot without locking or copying if nothing changed since the last read.
+ * Writes are serialized and update a mutable set in constant time, the snapshot is only copied
+ * from it by the first read after a change. Registering N monitors one at a time at startup is
+ * therefore linear rather than copying the set for each of them, and a poll only pays for the
+ * copy when the registry changed. This is a good fit when monitors are registered mostly at
+ * startup and read on every poll.
+ */
+public final class CopyOnWriteMonitorRegistry implements VersionedMonitorRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CopyOnWriteMonitorRegistry.class);
+
+    /** Registered monitors with the version, replaced as a unit for each change. */
+    private static final class Snapshot {
+        private final long version;
+        private final ImmutableSet<Monitor<?>> monitors;
+
+        Snapshot(long version, ImmutableSet<Monitor<?>> monitors) {
+            this.version = version;
+            this.monitors = monitors;
+        }
+    }
+
+    private final Object writeLock = new Object();
+
+    private final List<MonitorRegistryListener> listeners =
+            new CopyOnWriteArrayList<MonitorRegistryListener>();
+
+    /** Registered monitors in registration order, guarded by the write lock. */
+    private final Set<Monitor<?>> monitors = new LinkedHashSet<Monitor<?>>();
+
+    /** Incremented after each change to the monitors, written with the write lock held. */
+    private volatile long version = 0L;
+
+    /** Copy of the monitors for the last version that was read. */
+    private volatile Snapshot snapshot = new Snapshot(0L, ImmutableSet.<Monitor<?>>of());
+
+    /**
+     * The set of registered Monitor objects. The returned collection is an immutable snapshot
+     * and will not reflect later changes.
+     */
+    @Override
+    public Collection<Monitor<?>> getRegisteredMonitors() {
+        final Snapshot s = snapshot;
+        return (s.version == version) ? s.monitors : currentSnapshot().monitors;
+    }
+
+    /** Returns a snapshot for the current version, copying the monitors if needed. */
+    private Snapshot currentSnapshot() {
+        synchronized (writeLock) {
+            Snapshot s = snapshot;
+            if (s.version != version) {
+                s = new Snapshot(version, ImmutableSet.copyOf(monitors));
+                snapshot = s;
+            }
+            return s;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Register a new monitor in the registry.
+     */
+    @Override
+    public void register(Monitor<?> monitor) {
+        Preconditions.checkNotNull(monitor, "monitor cannot be null");
+        registerAll(Collections.<Monitor<?>>singletonList(monitor));
+    }
+
+    /**
+     * Unregister a Monitor from the registry.
+     */
+    @Override
+    public void unregister(Monitor<?> monitor) {
+        Preconditions.checkNotNull(monitor, "monitor cannot be null");
+        unregisterAll(Collections.<Monitor<?>>singletonList(monitor));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void registerAll(Collection<? extends Monitor<?>> monitors) {
+        Preconditions.checkNotNull(monitors, "monitors cannot be null");
+        for (Monitor<?> m : monitors) {
+            Preconditions.checkNotNull(m, "monitor cannot be null");
+        }
+        synchronized (writeLock) {
+            final ImmutableList.Builder<Monitor<?>> added = ImmutableList.builder();
+            for (Monitor<?> m : monitors) {
+                if (this.monitors.add(m)) {
+                    added.add(m);
+                }
+            }
+
+            final List<Monitor<?>> addedList = added.build();
+            if (!addedList.isEmpty()) {
+                update(addedList, ImmutableList.<Monitor<?>>of());
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void unregisterAll(Collection<? extends Monitor<?>> monitors) {
+        Preconditions.checkNotNull(monitors, "monitors cannot be null");
+        for (Monitor<?> m : monitors) {
+            Preconditions.checkNotNull(m, "monitor cannot be null");
+        }
+        synchronized (writeLock) {
+            final ImmutableList.Builder<Monitor<?>> removed = ImmutableList.builder();
+            for (Monitor<?> m : monitors) {
+                if (this.monitors.remove(m)) {
+                    removed.add(m);
+                }
+            }
+
+            final List<Monitor<?>> removedList = removed.build();
+            if (!removedList.isEmpty()) {
+                update(ImmutableList.<Monitor<?>>of(), removedList);
+            }
+        }
+    }
+
+    /** Publish the new version and notify listeners, must hold the write lock. */
+    private void update(List<Monitor<?>> added, List<Monitor<?>> removed) {
+        final long v = version + 1;
+        version = v;
+        for (MonitorRegistryListener listener : listeners) {
+            notify(listener, v, added, removed);
+        }
+    }
+
+    private static void notify(MonitorRegistryListener listener, long version,
+                               Collection<Monitor<?>> added, Collection<Monitor<?>> removed) {
+        try {
+            listener.onChange(version, added, removed);
+        } catch (Exception e) {
+            LOGGER.warn("registry listener " + listener + " failed", e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addListener(MonitorRegistryListener listener) {
+        Preconditions.checkNotNull(listener, "listener cannot be null");
+        synchronized (writeLock) {
+            listeners.add(listener);
+            final Snapshot current = currentSnapshot();
+            notify(listener, current.version, current.monitors,
+                    ImmutableList.<Monitor<?>>of());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void removeListener(MonitorRegistryListener listener) {
+        listeners.remove(listener);
+    }
+}
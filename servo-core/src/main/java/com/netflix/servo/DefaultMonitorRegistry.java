@@ -15,6 +15,8 @@
  */
 package com.netflix.servo;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.netflix.servo.jmx.JmxMonitorRegistry;
 import com.netflix.servo.monitor.Monitor;
 import org.slf4j.Logger;
@@ -22,6 +24,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Properties;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Default registry that delegates all actions to a class specified by the
@@ -29,8 +34,14 @@ import java.util.Collection;
  * specified registry class must have a constructor with no arguments. If the
  * property is not specified or the class cannot be loaded an instance of
  * {@link com.netflix.servo.jmx.JmxMonitorRegistry} will be used.
+ *
+ * <p>If the registry class implements {@link VersionedMonitorRegistry} the version and listener
+ * methods are delegated to it. Otherwise this registry tracks the version and notifies listeners
+ * itself for each register or unregister call made through it. Since the inner registry does
+ * not report whether a call changed it, the added and removed monitors passed to listeners are
+ * the ones given to each call.</p>
  */
-public final class DefaultMonitorRegistry implements MonitorRegistry {
+public final class DefaultMonitorRegistry implements VersionedMonitorRegistry {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultMonitorRegistry.class);
     private static final String CLASS_NAME = DefaultMonitorRegistry.class.getCanonicalName();
@@ -41,6 +52,18 @@ public final class DefaultMonitorRegistry implements MonitorRegistry {
 
     private final MonitorRegistry registry;
 
+    /*
+     * Version and listeners for registries that do not track them. Changes are made through
+     * this class so it can track them itself.
+     */
+    private final Object writeLock = new Object();
+
+    private final List<MonitorRegistryListener> listeners =
+            new CopyOnWriteArrayList<MonitorRegistryListener>();
+
+    /** Incremented after each change to the monitors, written with the write lock held. */
+    private volatile long version = 0L;
+
     /**
      * Returns the instance of this registry.
      */
@@ -94,7 +117,12 @@ public final class DefaultMonitorRegistry implements MonitorRegistry {
      */
     @Override
     public void register(Monitor<?> monitor) {
-        registry.register(monitor);
+        final VersionedMonitorRegistry r = versioned();
+        if (r != null) {
+            r.register(monitor);
+        } else {
+            registerAll(Collections.<Monitor<?>>singletonList(monitor));
+        }
     }
 
     /**
@@ -102,7 +130,113 @@ public final class DefaultMonitorRegistry implements MonitorRegistry {
      */
     @Override
     public void unregister(Monitor<?> monitor) {
-        registry.unregister(monitor);
+        final VersionedMonitorRegistry r = versioned();
+        if (r != null) {
+            r.unregister(monitor);
+        } else {
+            unregisterAll(Collections.<Monitor<?>>singletonList(monitor));
+        }
+    }
+
+    private VersionedMonitorRegistry versioned() {
+        return (registry instanceof VersionedMonitorRegistry)
+                ? (VersionedMonitorRegistry) registry
+                : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getVersion() {
+        final VersionedMonitorRegistry r = versioned();
+        return (r != null) ? r.getVersion() : version;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void registerAll(Collection<? extends Monitor<?>> monitors) {
+        final VersionedMonitorRegistry r = versioned();
+        if (r != null) {
+            r.registerAll(monitors);
+        } else {
+            synchronized (writeLock) {
+                for (Monitor<?> m : monitors) {
+                    registry.register(m);
+                }
+                update(copyOf(monitors), ImmutableList.<Monitor<?>>of());
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void unregisterAll(Collection<? extends Monitor<?>> monitors) {
+        final VersionedMonitorRegistry r = versioned();
+        if (r != null) {
+            r.unregisterAll(monitors);
+        } else {
+            synchronized (writeLock) {
+                for (Monitor<?> m : monitors) {
+                    registry.unregister(m);
+                }
+                update(ImmutableList.<Monitor<?>>of(), copyOf(monitors));
+            }
+        }
+    }
+
+    /** Copy of the monitors for listeners, null monitors are not passed on. */
+    private static List<Monitor<?>> copyOf(Collection<? extends Monitor<?>> monitors) {
+        final ImmutableList.Builder<Monitor<?>> builder = ImmutableList.builder();
+        for (Monitor<?> m : monitors) {
+            if (m != null) {
+                builder.add(m);
+            }
+        }
+        return builder.build();
+    }
+
+    /** Increment the version and notify listeners, must hold the write lock. */
+    private void update(List<Monitor<?>> added, List<Monitor<?>> removed) {
+        final long v = version + 1;
+        version = v;
+        for (MonitorRegistryListener listener : listeners) {
+            notify(listener, v, added, removed);
+        }
+    }
+
+    private static void notify(MonitorRegistryListener listener, long version,
+                               Collection<Monitor<?>> added, Collection<Monitor<?>> removed) {
+        try {
+            listener.onChange(version, added, removed);
+        } catch (Exception e) {
+            LOG.warn("registry listener " + listener + " failed", e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addListener(MonitorRegistryListener listener) {
+        Preconditions.checkNotNull(listener, "listener cannot be null");
+        final VersionedMonitorRegistry r = versioned();
+        if (r != null) {
+            r.addListener(listener);
+        } else {
+            synchronized (writeLock) {
+                listeners.add(listener);
+                notify(listener, version, ImmutableList.copyOf(registry.getRegisteredMonitors()),
+                        ImmutableList.<Monitor<?>>of());
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void removeListener(MonitorRegistryListener listener) {
+        final VersionedMonitorRegistry r = versioned();
+        if (r != null) {
+            r.removeListener(listener);
+        } else {
+            listeners.remove(listener);
+        }
     }
 
     /**
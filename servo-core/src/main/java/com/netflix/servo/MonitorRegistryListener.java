@@ -0,0 +1,36 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo;
+
+import com.netflix.servo.monitor.Monitor;
+
+import java.util.Collection;
+
+/**
+ * Listener for changes to a {@link VersionedMonitorRegistry}. Notifications are delivered in
+ * version order while the registry holds its write lock, so implementations should be quick
+ * and must not register or unregister monitors.
+ */
+public interface MonitorRegistryListener {
+    /**
+     * Called after the set of registered monitors changes.
+     *
+     * @param version  version of the registry after the change
+     * @param added    monitors that were added, never null
+     * @param removed  monitors that were removed, never null
+     */
+    void onChange(long version, Collection<Monitor<?>> added, Collection<Monitor<?>> removed);
+}
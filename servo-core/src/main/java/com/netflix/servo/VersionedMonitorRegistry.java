@@ -0,0 +1,56 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo;
+
+import com.netflix.servo.monitor.Monitor;
+
+import java.util.Collection;
+
+/**
+ * Registry that tracks a version number that is incremented for each change to the set of
+ * registered monitors and can notify listeners about the changes. This allows consumers such as
+ * pollers to skip work when nothing has changed, or to only process the monitors that were
+ * added or removed.
+ */
+public interface VersionedMonitorRegistry extends MonitorRegistry {
+    /**
+     * Returns the current version. The version is incremented each time a register or
+     * unregister call changes the set of registered monitors.
+     */
+    long getVersion();
+
+    /**
+     * Register a batch of monitors. Listeners are notified once for the batch.
+     */
+    void registerAll(Collection<? extends Monitor<?>> monitors);
+
+    /**
+     * Unregister a batch of monitors. Listeners are notified once for the batch.
+     */
+    void unregisterAll(Collection<? extends Monitor<?>> monitors);
+
+    /**
+     * Add a listener that will be notified of changes. The listener is called immediately
+     * with all monitors that are currently registered as added, so there is no gap between
+     * reading the current state and receiving updates.
+     */
+    void addListener(MonitorRegistryListener listener);
+
+    /**
+     * Remove a listener that was previously added.
+     */
+    void removeListener(MonitorRegistryListener listener);
+}
@@ -47,7 +47,14 @@ public enum DataSourceType implements Tag {
      * debugging, but will not be collected as metrics for monitoring purposes.
      * These values are made available in JMX.
      */
-    INFORMATIONAL;
+    INFORMATIONAL,
+
+    /**
+     * A distribution is for a sketch of the values recorded during an interval, see
+     * {@link com.netflix.servo.stats.QuantileSketch}. The value is not numeric, observers that
+     * support it can merge the sketches from many instances to compute percentiles.
+     */
+    DISTRIBUTION;
 
     /** Key name used for the data source type tag. */
     public static final String KEY = "type";
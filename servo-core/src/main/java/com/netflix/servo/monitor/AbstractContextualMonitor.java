@@ -18,6 +18,7 @@ package com.netflix.servo.monitor;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 
+import com.netflix.servo.tag.BasicTagList;
 import com.netflix.servo.tag.TaggingContext;
 import com.netflix.servo.tag.TagList;
 
@@ -43,9 +44,39 @@ public abstract class AbstractContextualMonitor<T, M extends Monitor<T>>
     /** Factory funtion used to create a new instance of a monitor. */
     protected final Function<MonitorConfig, M> newMonitor;
 
-    /** Thread-safe map keeping track of the distinct monitors that have been created so far. */
+    /**
+     * Thread-safe map keeping track of the distinct monitors that have been created so far.
+     * Subclasses may add monitors but must not remove or replace them: {@link #getMonitors()}
+     * caches the list and only refreshes it when the size of the map changes.
+     */
     protected final ConcurrentMap<MonitorConfig, M> monitors;
 
+    /**
+     * Monitors keyed by the tag list returned from the context, so a monitor can be found
+     * without creating a new config. A null tag list is stored as an empty list.
+     */
+    private final ConcurrentMap<TagList, M> monitorsByContext;
+
+    /**
+     * Most recent context tags seen on each thread and the monitor for them. Contexts usually
+     * return the same tag list instance until they are changed, so this is checked by identity
+     * before doing any lookups.
+     */
+    private final ThreadLocal<Resolved<M>> lastResolved = new ThreadLocal<Resolved<M>>();
+
+    /** Cached list of monitors returned by {@link #getMonitors()}. */
+    private volatile List<Monitor<?>> monitorList = ImmutableList.of();
+
+    private static final class Resolved<M> {
+        private final TagList tags;
+        private final M monitor;
+
+        Resolved(TagList tags, M monitor) {
+            this.tags = tags;
+            this.monitor = monitor;
+        }
+    }
+
     /**
      * Create a new instance of the monitor.
      *
@@ -62,6 +93,7 @@ public abstract class AbstractContextualMonitor<T, M extends Monitor<T>>
         this.newMonitor = newMonitor;
 
         monitors = new ConcurrentHashMap<MonitorConfig, M>();
+        monitorsByContext = new ConcurrentHashMap<TagList, M>();
     }
 
     /** {@inheritDoc} */
@@ -75,22 +107,35 @@ public abstract class AbstractContextualMonitor<T, M extends Monitor<T>>
      * context then a new one will be created.
      */
     protected M getMonitorForCurrentContext() {
-        MonitorConfig contextConfig = getConfig();
-        M monitor = monitors.get(contextConfig);
+        final TagList contextTags = context.getTags();
+        final Resolved<M> last = lastResolved.get();
+        if (last != null && last.tags == contextTags) {
+            return last.monitor;
+        }
+        final M monitor = getMonitor(contextTags);
+        lastResolved.set(new Resolved<M>(contextTags, monitor));
+        return monitor;
+    }
+
+    private M getMonitor(TagList contextTags) {
+        final TagList key = (contextTags == null) ? BasicTagList.EMPTY : contextTags;
+        M monitor = monitorsByContext.get(key);
         if (monitor == null) {
-            M newMon = newMonitor.apply(contextConfig);
-            monitor = monitors.putIfAbsent(contextConfig, newMon);
+            MonitorConfig contextConfig = newConfig(contextTags);
+            monitor = monitors.get(contextConfig);
             if (monitor == null) {
-                monitor = newMon;
+                M newMon = newMonitor.apply(contextConfig);
+                monitor = monitors.putIfAbsent(contextConfig, newMon);
+                if (monitor == null) {
+                    monitor = newMon;
+                }
             }
+            monitorsByContext.putIfAbsent(key, monitor);
         }
         return monitor;
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public MonitorConfig getConfig() {
-        TagList contextTags = context.getTags();
+    private MonitorConfig newConfig(TagList contextTags) {
         return MonitorConfig.builder(baseConfig.getName())
             .withTags(baseConfig.getTags())
             .withTags(contextTags)
@@ -99,7 +144,21 @@ public abstract class AbstractContextualMonitor<T, M extends Monitor<T>>
 
     /** {@inheritDoc} */
     @Override
+    public MonitorConfig getConfig() {
+        return newConfig(context.getTags());
+    }
+
+    /**
+     * {@inheritDoc} Monitors are never removed from {@link #monitors}, so the cached list only
+     * needs to be refreshed when the number of monitors changes.
+     */
+    @Override
     public List<Monitor<?>> getMonitors() {
-        return ImmutableList.<Monitor<?>>copyOf(monitors.values());
+        List<Monitor<?>> list = monitorList;
+        if (list.size() != monitors.size()) {
+            list = ImmutableList.<Monitor<?>>copyOf(monitors.values());
+            monitorList = list;
+        }
+        return list;
     }
 }
@@ -0,0 +1,257 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.netflix.servo.annotations.DataSourceLevel;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.MonitorTags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Reflection metadata for the monitors declared by a class, i.e., fields of type
+ * {@link Monitor}, fields and methods with a {@link com.netflix.servo.annotations.Monitor}
+ * annotation and the {@link MonitorTags} member. The metadata comes from a
+ * {@link MonitorMetadataFactory} generated for the class if there is one, otherwise the class
+ * is scanned and the members are made accessible once, so registering many instances of the
+ * same class does not repeat the scan and reading the values does not need to check the access
+ * each time.
+ */
+final class AnnotatedClass {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotatedClass.class);
+
+    /**
+     * Metadata for each class that has been scanned. The keys are weak and the values soft so
+     * the cache will not keep classes from being unloaded.
+     */
+    private static final Cache<Class<?>, AnnotatedClass> CACHE = CacheBuilder.newBuilder()
+            .weakKeys()
+            .softValues()
+            .build();
+
+    /** A field or method with a monitor annotation. */
+    static final class Attribute {
+        private final MemberAccessor<Object> accessor;
+        private final String name;
+        private final DataSourceType type;
+        private final DataSourceLevel level;
+
+        Attribute(MemberAccessor<Object> accessor, String name, DataSourceType type,
+                  DataSourceLevel level) {
+            this.accessor = accessor;
+            this.name = name.isEmpty() ? accessor.getName() : name;
+            this.type = type;
+            this.level = level;
+        }
+
+        MemberAccessor<Object> getAccessor() {
+            return accessor;
+        }
+
+        /** Name from the annotation or the name of the member if the annotation name is empty. */
+        String getName() {
+            return name;
+        }
+
+        DataSourceType getType() {
+            return type;
+        }
+
+        DataSourceLevel getLevel() {
+            return level;
+        }
+
+        boolean isInformational() {
+            return type == DataSourceType.INFORMATIONAL;
+        }
+    }
+
+    private final List<MemberAccessor<Object>> monitorFields;
+    private final List<Attribute> attributes;
+    private final MemberAccessor<Object> tagsAccessor;
+
+    /**
+     * Returns the metadata for the members declared by a class, members of super classes are not
+     * included. If the class has a {@link MonitorMetadataFactory} it is used, otherwise the class
+     * is scanned using reflection.
+     *
+     * @throws IllegalArgumentException if a non-informational annotation is used on a member
+     *                                  that is not numeric
+     */
+    static AnnotatedClass get(Class<?> c) {
+        AnnotatedClass metadata = CACHE.getIfPresent(c);
+        if (metadata == null) {
+            final MonitorMetadataFactory<Object> factory = findFactory(c);
+            final Builder builder = new Builder();
+            if (factory == null) {
+                scan(c, builder);
+            } else {
+                factory.describe(builder);
+            }
+            metadata = new AnnotatedClass(builder);
+            CACHE.put(c, metadata);
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the generated factory for a class or null if there isn't one. The factory is loaded
+     * with the class loader of the class so it is only found if it was built with the class.
+     */
+    @SuppressWarnings("unchecked")
+    private static MonitorMetadataFactory<Object> findFactory(Class<?> c) {
+        final ClassLoader loader = c.getClassLoader();
+        if (loader == null) {
+            return null;
+        }
+        try {
+            final Class<?> factoryClass =
+                    Class.forName(c.getName() + MonitorMetadataFactory.SUFFIX, true, loader);
+            if (!MonitorMetadataFactory.class.isAssignableFrom(factoryClass)) {
+                return null;
+            }
+            return (MonitorMetadataFactory<Object>) factoryClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (LinkageError e) {
+            LOGGER.warn("failed to load monitor metadata factory for " + c.getName(), e);
+            return null;
+        } catch (Exception e) {
+            LOGGER.warn("failed to create monitor metadata factory for " + c.getName(), e);
+            return null;
+        }
+    }
+
+    /** Collects the members from either a factory or the reflection scan. */
+    private static final class Builder implements MonitorMetadataFactory.Members<Object> {
+        private final ImmutableList.Builder<MemberAccessor<Object>> monitorFields =
+                ImmutableList.builder();
+        private final ImmutableList.Builder<Attribute> attributes = ImmutableList.builder();
+        private MemberAccessor<Object> tags;
+
+        @Override
+        public void addMonitorField(MemberAccessor<Object> field) {
+            monitorFields.add(field);
+        }
+
+        @Override
+        public void addAttribute(MemberAccessor<Object> member, String name, DataSourceType type,
+                                 DataSourceLevel level) {
+            attributes.add(new Attribute(member, name, type, level));
+        }
+
+        @Override
+        public void setTags(MemberAccessor<Object> member) {
+            if (tags == null) {
+                tags = member;
+            }
+        }
+    }
+
+    private AnnotatedClass(Builder builder) {
+        monitorFields = builder.monitorFields.build();
+        attributes = builder.attributes.build();
+        tagsAccessor = builder.tags;
+    }
+
+    /** Find the members of a class using reflection. */
+    private static void scan(Class<?> c, Builder builder) {
+        final Class<com.netflix.servo.annotations.Monitor> annoClass =
+                com.netflix.servo.annotations.Monitor.class;
+
+        for (Field field : c.getDeclaredFields()) {
+            if (Monitor.class.isAssignableFrom(field.getType())) {
+                builder.addMonitorField(MemberAccessor.of(field));
+            }
+            final com.netflix.servo.annotations.Monitor anno = field.getAnnotation(annoClass);
+            if (anno != null) {
+                if (anno.type() != DataSourceType.INFORMATIONAL) {
+                    checkType(anno, field.getType(), c);
+                }
+                builder.addAttribute(MemberAccessor.of(field), anno.name(), anno.type(),
+                        anno.level());
+            }
+            if (field.getAnnotation(MonitorTags.class) != null) {
+                builder.setTags(MemberAccessor.of(field));
+            }
+        }
+
+        MemberAccessor<Object> tagsMethod = null;
+        for (Method method : c.getDeclaredMethods()) {
+            final com.netflix.servo.annotations.Monitor anno = method.getAnnotation(annoClass);
+            if (anno != null) {
+                if (anno.type() != DataSourceType.INFORMATIONAL) {
+                    checkType(anno, method.getReturnType(), c);
+                }
+                builder.addAttribute(MemberAccessor.of(method), anno.name(), anno.type(),
+                        anno.level());
+            }
+            if (tagsMethod == null && method.getAnnotation(MonitorTags.class) != null) {
+                tagsMethod = MemberAccessor.of(method);
+            }
+        }
+
+        // Fields with the tags annotation take precedence over methods
+        if (tagsMethod != null) {
+            builder.setTags(tagsMethod);
+        }
+    }
+
+    /** Verify that the type for the annotated field is numeric. */
+    private static void checkType(
+            com.netflix.servo.annotations.Monitor anno, Class<?> type, Class<?> container) {
+        if (!isNumericType(type)) {
+            final String msg = "annotation of type " + anno.type().name() + " can only be used"
+                + " with numeric values, " + anno.name() + " in class " + container.getName()
+                + " is applied to a field or method of type " + type.getName();
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
+    /** Returns true if {@code c} can be assigned to a number. */
+    private static boolean isNumericType(Class<?> c) {
+        return Number.class.isAssignableFrom(c)
+            || double.class == c
+            || float.class == c
+            || long.class == c
+            || int.class == c
+            || short.class == c
+            || byte.class == c;
+    }
+
+    /** Fields with a type of {@link Monitor}. */
+    List<MemberAccessor<Object>> getMonitorFields() {
+        return monitorFields;
+    }
+
+    /** Fields and methods with a monitor annotation. */
+    List<Attribute> getAttributes() {
+        return attributes;
+    }
+
+    /** Field or method with the {@link MonitorTags} annotation or null if there isn't one. */
+    MemberAccessor<Object> getTagsAccessor() {
+        return tagsAccessor;
+    }
+}
@@ -18,19 +18,15 @@ package com.netflix.servo.monitor;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
 
-import java.lang.reflect.AccessibleObject;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-
 /**
  * Wraps an annotated field and exposes it as a numeric monitor object.
  */
 class AnnotatedNumberMonitor extends AbstractMonitor<Number> implements NumericMonitor<Number> {
 
     private final Object object;
-    private final AccessibleObject field;
+    private final MemberAccessor<Object> field;
 
-    AnnotatedNumberMonitor(MonitorConfig config, Object object, AccessibleObject field) {
+    AnnotatedNumberMonitor(MonitorConfig config, Object object, MemberAccessor<Object> field) {
         super(config);
         this.object = object;
         this.field = field;
@@ -40,12 +36,7 @@ class AnnotatedNumberMonitor extends AbstractMonitor<Number> implements NumericM
     @Override
     public Number getValue(int pollerIdx) {
         try {
-            field.setAccessible(true);
-            if (field instanceof Field) {
-                return (Number) ((Field) field).get(object);
-            } else {
-                return (Number) ((Method) field).invoke(object);
-            }
+            return (Number) field.get(object);
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
@@ -18,19 +18,15 @@ package com.netflix.servo.monitor;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
 
-import java.lang.reflect.AccessibleObject;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-
 /**
  * Wraps an annotated field and exposes it as a monitor object.
  */
 class AnnotatedStringMonitor extends AbstractMonitor<String> {
 
     private final Object object;
-    private final AccessibleObject field;
+    private final MemberAccessor<Object> field;
 
-    AnnotatedStringMonitor(MonitorConfig config, Object object, AccessibleObject field) {
+    AnnotatedStringMonitor(MonitorConfig config, Object object, MemberAccessor<Object> field) {
         super(config);
         this.object = object;
         this.field = field;
@@ -41,12 +37,7 @@ class AnnotatedStringMonitor extends AbstractMonitor<String> {
     public String getValue(int pollerIndex) {
         Object v;
         try {
-            field.setAccessible(true);
-            if (field instanceof Field) {
-                v =  ((Field) field).get(object);
-            } else {
-                v = ((Method) field).invoke(object);
-            }
+            v = field.get(object);
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
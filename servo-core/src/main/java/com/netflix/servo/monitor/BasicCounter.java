@@ -18,16 +18,16 @@ package com.netflix.servo.monitor;
 import com.google.common.base.Objects;
 
 import com.netflix.servo.annotations.DataSourceType;
-
-import java.util.concurrent.atomic.AtomicLong;
+import com.netflix.servo.jsr166e.LongAdder;
 
 /**
- * A simple counter implementation backed by an {@link java.util.concurrent.atomic.AtomicLong}.
+ * A simple counter implementation backed by a {@link LongAdder}. Updates are striped across
+ * cells when contended and the cells are only summed when the value is polled.
  * The value is the total count for the life of the counter. Observers are responsible
  * for converting to a rate and handling overflows if they occur.
  */
 public final class BasicCounter extends AbstractMonitor<Number> implements Counter {
-    private final AtomicLong count = new AtomicLong();
+    private final LongAdder count = new LongAdder();
 
     /**
      * Creates a new instance of the counter.
@@ -39,19 +39,19 @@ public final class BasicCounter extends AbstractMonitor<Number> implements Count
     /** {@inheritDoc} */
     @Override
     public void increment() {
-        count.incrementAndGet();
+        count.increment();
     }
 
     /** {@inheritDoc} */
     @Override
     public void increment(long amount) {
-        count.getAndAdd(amount);
+        count.add(amount);
     }
 
     /** {@inheritDoc} */
     @Override
     public Number getValue(int pollerIdx) {
-        return count.get();
+        return count.sum();
     }
 
     /** {@inheritDoc} */
@@ -61,13 +61,13 @@ public final class BasicCounter extends AbstractMonitor<Number> implements Count
             return false;
         }
         BasicCounter m = (BasicCounter) obj;
-        return config.equals(m.getConfig()) && count.get() == m.count.get();
+        return config.equals(m.getConfig()) && count.sum() == m.count.sum();
     }
 
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        return Objects.hashCode(config, count.get());
+        return Objects.hashCode(config, count.sum());
     }
 
     /** {@inheritDoc} */
@@ -75,7 +75,7 @@ public final class BasicCounter extends AbstractMonitor<Number> implements Count
     public String toString() {
         return Objects.toStringHelper(this)
                 .add("config", config)
-                .add("count", count.get())
+                .add("count", count.sum())
                 .toString();
     }
 }
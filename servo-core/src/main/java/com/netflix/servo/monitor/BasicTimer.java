@@ -17,6 +17,7 @@ package com.netflix.servo.monitor;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
+import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.tag.Tag;
 import com.netflix.servo.tag.Tags;
 import com.netflix.servo.util.Clock;
@@ -40,30 +41,71 @@ public class BasicTimer extends AbstractMonitor<Long> implements Timer, Composit
 
     private final TimeUnit timeUnit;
     private final double timeUnitNanosFactor;
-    private final StepCounter totalTime;
-    private final StepCounter count;
-    private final MinGauge min;
-    private final MaxGauge max;
+    private final StepStats stats;
 
     private final List<Monitor<?>> monitors;
 
-    private static class FactorMonitor<T extends Number> extends AbstractMonitor<Double>
-            implements NumericMonitor<Double> {
-        private final Monitor<T> wrapped;
-        private final double factor;
+    /** Base class for the monitors published for each statistic. */
+    private abstract class StatMonitor extends AbstractMonitor<Number>
+            implements NumericMonitor<Number> {
+        StatMonitor(MonitorConfig config) {
+            super(config.withAdditionalTag(DataSourceType.GAUGE));
+        }
+    }
+
+    /** Rate per second for the total time in the previous interval. */
+    private final class TotalTimeMonitor extends StatMonitor {
+        TotalTimeMonitor(MonitorConfig config) {
+            super(config);
+        }
+
+        @Override
+        public Number getValue(int pollerIndex) {
+            return toRate(stats.pollTotal(pollerIndex), pollerIndex) * timeUnitNanosFactor;
+        }
+    }
+
+    /** Rate per second for the number of updates in the previous interval. */
+    private final class CountMonitor extends StatMonitor {
+        CountMonitor(MonitorConfig config) {
+            super(config);
+        }
+
+        @Override
+        public Number getValue(int pollerIndex) {
+            return toRate(stats.pollCount(pollerIndex), pollerIndex);
+        }
+    }
+
+    /** Min for the current interval. */
+    private final class MinMonitor extends StatMonitor {
+        MinMonitor(MonitorConfig config) {
+            super(config);
+        }
+
+        @Override
+        public Number getValue(int pollerIndex) {
+            return getMinNanos(pollerIndex) * timeUnitNanosFactor;
+        }
+    }
 
-        private FactorMonitor(Monitor<T> wrapped, double factor) {
-            super(wrapped.getConfig());
-            this.wrapped = wrapped;
-            this.factor = factor;
+    /** Max for the current interval. */
+    private final class MaxMonitor extends StatMonitor {
+        MaxMonitor(MonitorConfig config) {
+            super(config);
         }
 
         @Override
-        public Double getValue(int pollerIndex) {
-            return wrapped.getValue(pollerIndex).doubleValue() * factor;
+        public Number getValue(int pollerIndex) {
+            return stats.getCurrentMax(pollerIndex) * timeUnitNanosFactor;
         }
     }
 
+    private static double toRate(Datapoint dp, int pollerIndex) {
+        final double stepSeconds = Pollers.POLLING_INTERVALS[pollerIndex] / 1000.0;
+        return dp.isUnknown() ? Double.NaN : dp.getValue() / stepSeconds;
+    }
+
     /**
      * Creates a new instance of the timer with a unit of milliseconds.
      */
@@ -81,24 +123,20 @@ public class BasicTimer extends AbstractMonitor<Long> implements Timer, Composit
         final MonitorConfig unitConfig = config.withAdditionalTag(unitTag);
         timeUnit = unit;
         timeUnitNanosFactor = 1.0 / timeUnit.toNanos(1);
+        stats = new StepStats(clock);
 
-        totalTime = new StepCounter(unitConfig.withAdditionalTag(STAT_TOTAL), clock);
-        count = new StepCounter(unitConfig.withAdditionalTag(STAT_COUNT), clock);
-        min = new MinGauge(unitConfig.withAdditionalTag(STAT_MIN), clock);
-        max = new MaxGauge(unitConfig.withAdditionalTag(STAT_MAX), clock);
-
-        final FactorMonitor<Number> totalTimeFactor = new FactorMonitor<Number>(totalTime, timeUnitNanosFactor);
-        final FactorMonitor<Long> minFactor = new FactorMonitor<Long>(min, timeUnitNanosFactor);
-        final FactorMonitor<Long> maxFactor = new FactorMonitor<Long>(max, timeUnitNanosFactor);
-
-        monitors = ImmutableList.<Monitor<?>>of(totalTimeFactor, count, minFactor, maxFactor);
+        monitors = ImmutableList.<Monitor<?>>of(
+                new TotalTimeMonitor(unitConfig.withAdditionalTag(STAT_TOTAL)),
+                new CountMonitor(unitConfig.withAdditionalTag(STAT_COUNT)),
+                new MinMonitor(unitConfig.withAdditionalTag(STAT_MIN)),
+                new MaxMonitor(unitConfig.withAdditionalTag(STAT_MAX)));
     }
 
     /**
      * Creates a new instance of the timer.
      */
     public BasicTimer(MonitorConfig config, TimeUnit unit) {
-        this(config, unit, Clock.WALL);
+        this(config, unit, DefaultClock.get());
     }
 
 
@@ -124,10 +162,7 @@ public class BasicTimer extends AbstractMonitor<Long> implements Timer, Composit
 
     private void recordNanos(long nanos) {
         if (nanos > 0) {
-            totalTime.increment(nanos);
-            count.increment();
-            min.update(nanos);
-            max.update(nanos);
+            stats.record(nanos);
         }
     }
 
@@ -146,13 +181,18 @@ public class BasicTimer extends AbstractMonitor<Long> implements Timer, Composit
     }
 
     private double getTotal(int pollerIndex) {
-        return totalTime.getCurrentCount(pollerIndex) * timeUnitNanosFactor;
+        return stats.getCurrentTotal(pollerIndex) * timeUnitNanosFactor;
+    }
+
+    private long getMinNanos(int pollerIndex) {
+        final long v = stats.getCurrentMin(pollerIndex);
+        return (v == Long.MAX_VALUE) ? 0L : v;
     }
 
     /** {@inheritDoc} */
     @Override
     public Long getValue(int pollerIndex) {
-        final long cnt = count.getCurrentCount(pollerIndex);
+        final long cnt = stats.getCurrentCount(pollerIndex);
         final long value = (long) (getTotal(pollerIndex) / cnt);
         return (cnt == 0) ? 0L : value;
     }
@@ -164,17 +204,17 @@ public class BasicTimer extends AbstractMonitor<Long> implements Timer, Composit
 
     /** Get the total number of updates. */
     public Long getCount() {
-        return count.getCurrentCount(0);
+        return stats.getCurrentCount(0);
     }
 
     /** Get the min value since the last reset. */
     public Double getMin() {
-        return min.getValue(0) * timeUnitNanosFactor;
+        return getMinNanos(0) * timeUnitNanosFactor;
     }
 
     /** Get the max value since the last reset. */
     public Double getMax() {
-        return max.getValue(0) * timeUnitNanosFactor;
+        return stats.getCurrentMax(0) * timeUnitNanosFactor;
     }
 
     /** {@inheritDoc} */
@@ -188,16 +228,18 @@ public class BasicTimer extends AbstractMonitor<Long> implements Timer, Composit
         }
         BasicTimer m = (BasicTimer) obj;
         return config.equals(m.getConfig())
-                && totalTime.equals(m.totalTime)
-                && count.equals(m.count)
-                && min.equals(m.min)
-                && max.equals(m.max);
+                && timeUnit == m.timeUnit
+                && stats.getCurrentCount(0) == m.stats.getCurrentCount(0)
+                && stats.getCurrentTotal(0) == m.stats.getCurrentTotal(0)
+                && getMinNanos(0) == m.getMinNanos(0)
+                && stats.getCurrentMax(0) == m.stats.getCurrentMax(0);
     }
 
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        return Objects.hashCode(config, totalTime, count, min, max);
+        return Objects.hashCode(config, timeUnit, stats.getCurrentCount(0),
+                stats.getCurrentTotal(0), getMinNanos(0), stats.getCurrentMax(0));
     }
 
     /** {@inheritDoc} */
@@ -205,10 +247,8 @@ public class BasicTimer extends AbstractMonitor<Long> implements Timer, Composit
     public String toString() {
         return Objects.toStringHelper(this)
                 .add("config", config)
-                .add("totalTime", totalTime)
-                .add("count", count)
-                .add("min", min)
-                .add("max", max)
+                .add("timeUnit", timeUnit)
+                .add("stats", stats)
                 .toString();
     }
 }
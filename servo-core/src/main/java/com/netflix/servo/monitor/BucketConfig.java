@@ -25,12 +25,17 @@ import java.util.concurrent.TimeUnit;
  * <p>
  * By default we publish count (number of times the timer was executed), totalTime, and
  * the counts and times for the following buckets: 0ms, 100ms, 200ms, 500ms 1000ms 2000ms, 3000ms, 5000ms
+ * <p>
+ * Buckets can also be generated with an exponential or log-linear layout, and percentiles can be
+ * estimated from the bucket counts for each polling interval.
  */
 public final class BucketConfig {
 
     public static class Builder {
         private TimeUnit timeUnit = TimeUnit.MILLISECONDS;
         private long[] buckets = null;
+        private int logLinearPrecision = -1;
+        private double[] percentiles = new double[0];
 
         /**
          * Sets the timeunit for the buckets.
@@ -60,6 +65,73 @@ public final class BucketConfig {
             this.buckets = Arrays.copyOf(buckets, buckets.length);
             Preconditions.checkArgument(this.buckets.length > 0, "buckets cannot be empty");
             Preconditions.checkArgument(isAscending(this.buckets), "buckets must be in ascending order");
+            this.logLinearPrecision = -1;
+            return this;
+        }
+
+        /**
+         * Generates buckets where the upper bound grows exponentially, i.e., the bucket values
+         * are {@code first, first * factor, first * factor^2, ...}. Values are rounded and
+         * duplicates after rounding are dropped, so fewer than {@code count} buckets can be
+         * created for small values of {@code first}.
+         *
+         * @param first   upper bound of the first bucket, must be positive
+         * @param factor  ratio between the bounds of consecutive buckets, must be greater than 1
+         * @param count   number of buckets to generate
+         */
+        public Builder withExponentialBuckets(long first, double factor, int count) {
+            Preconditions.checkArgument(first > 0L, "first must be greater than 0");
+            Preconditions.checkArgument(factor > 1.0, "factor must be greater than 1");
+            Preconditions.checkArgument(count > 0, "count must be greater than 0");
+            final long[] values = new long[count];
+            int n = 0;
+            double v = first;
+            for (int i = 0; i < count && v < Long.MAX_VALUE; ++i, v *= factor) {
+                final long bound = Math.round(v);
+                if (n == 0 || bound > values[n - 1]) {
+                    values[n++] = bound;
+                }
+            }
+            return withBuckets(Arrays.copyOf(values, n));
+        }
+
+        /**
+         * Generates log-linear buckets that cover the range from 0 to {@code max}. Each power
+         * of 2 is split into {@code 2^precision} buckets of equal width, so the relative width
+         * of a bucket is at most {@code 2^-precision}. For these buckets the timer can compute
+         * the bucket for a value in constant time.
+         *
+         * @param max        smallest value that must be covered by the last bucket
+         * @param precision  number of bits for the linear buckets, in the range [0, 10]
+         */
+        public Builder withLogLinearBuckets(long max, int precision) {
+            Preconditions.checkArgument(max > 0L, "max must be greater than 0");
+            Preconditions.checkArgument(precision >= 0
+                    && precision <= StepHistogram.MAX_LAYOUT_PRECISION,
+                    "precision must be in the range [0, %s]", StepHistogram.MAX_LAYOUT_PRECISION);
+            final int n = StepHistogram.bucketIndex(max, precision) + 1;
+            final long[] values = new long[n];
+            for (int i = 0; i < n; ++i) {
+                values[i] = StepHistogram.bucketUpperBound(i, precision) - 1L;
+            }
+            withBuckets(values);
+            this.logLinearPrecision = precision;
+            return this;
+        }
+
+        /**
+         * Sets the percentiles that should be estimated from the bucket counts for each
+         * polling interval, for example { 95.0, 99.0 }. By default no percentiles are
+         * published.
+         */
+        public Builder withPercentiles(double[] percentiles) {
+            Preconditions.checkNotNull(percentiles, "percentiles cannot be null");
+            final double max = 100.0; // SUPPRESS CHECKSTYLE MagicNumber
+            for (double p : percentiles) {
+                Preconditions.checkArgument(p > 0.0 && p <= max,
+                        "percentiles must be in the interval (0.0, 100.0]");
+            }
+            this.percentiles = Arrays.copyOf(percentiles, percentiles.length);
             return this;
         }
 
@@ -81,10 +153,15 @@ public final class BucketConfig {
 
     private final TimeUnit timeUnit;
     private final long[] buckets;
+    private final int logLinearPrecision;
+    private final double[] percentiles;
 
     private BucketConfig(Builder builder) {
+        Preconditions.checkNotNull(builder.buckets, "buckets must be set");
         this.timeUnit = builder.timeUnit;
         this.buckets = Arrays.copyOf(builder.buckets, builder.buckets.length);
+        this.logLinearPrecision = builder.logLinearPrecision;
+        this.percentiles = Arrays.copyOf(builder.percentiles, builder.percentiles.length);
     }
 
     /**
@@ -117,12 +194,48 @@ public final class BucketConfig {
         return Arrays.copyOf(buckets, buckets.length);
     }
 
+    /**
+     * Get a copy of the array with the percentiles to estimate from the bucket counts.
+     */
+    public double[] getPercentiles() {
+        return Arrays.copyOf(percentiles, percentiles.length);
+    }
+
+    /** Number of buckets, not including the overflow bucket. */
+    int getNumBuckets() {
+        return buckets.length;
+    }
+
+    /** Upper bound of a bucket, the index must be less than the number of buckets. */
+    long getBucket(int idx) {
+        return buckets[idx];
+    }
+
+    /**
+     * Returns the index of the bucket for a value or the number of buckets if the value
+     * belongs in the overflow bucket. This is constant time for log-linear buckets and uses a
+     * binary search otherwise.
+     */
+    int indexOf(long value) {
+        if (logLinearPrecision >= 0) {
+            if (value <= 0L) {
+                return 0;
+            }
+            return (value > buckets[buckets.length - 1])
+                    ? buckets.length
+                    : StepHistogram.bucketIndex(value, logLinearPrecision);
+        }
+        final int idx = Arrays.binarySearch(buckets, value);
+        return (idx >= 0) ? idx : -idx - 1;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString() {
         return Objects.toStringHelper(this)
                 .add("timeUnit", timeUnit)
-                .add("buckets", buckets)
+                .add("buckets", Arrays.toString(buckets))
+                .add("percentiles", Arrays.toString(percentiles))
                 .toString();
     }
 
@@ -136,6 +249,7 @@ public final class BucketConfig {
 
         if (timeUnit != that.timeUnit) return false;
         if (!Arrays.equals(buckets, that.buckets)) return false;
+        if (!Arrays.equals(percentiles, that.percentiles)) return false;
 
         return true;
     }
@@ -145,6 +259,7 @@ public final class BucketConfig {
     public int hashCode() {
         int result = timeUnit.hashCode();
         result = 31 * result + Arrays.hashCode(buckets);
+        result = 31 * result + Arrays.hashCode(percentiles);
         return result;
     }
 }
@@ -18,6 +18,7 @@ package com.netflix.servo.monitor;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.tag.Tag;
 import com.netflix.servo.tag.Tags;
 import com.netflix.servo.util.Clock;
@@ -65,7 +66,7 @@ public class BucketTimer extends AbstractMonitor<Long> implements Timer, Composi
      * Creates a new instance of the timer.
      */
     public BucketTimer(MonitorConfig config, BucketConfig bucketConfig, TimeUnit unit) {
-        this(config, bucketConfig, unit, Clock.WALL);
+        this(config, bucketConfig, unit, DefaultClock.get());
     }
 
     BucketTimer(MonitorConfig config, BucketConfig bucketConfig, TimeUnit unit, Clock clock) {
@@ -97,13 +98,105 @@ public class BucketTimer extends AbstractMonitor<Long> implements Timer, Composi
             );
         }
 
-        this.monitors = new ImmutableList.Builder<Monitor<?>>()
+        final ImmutableList.Builder<Monitor<?>> builder = new ImmutableList.Builder<Monitor<?>>()
             .add(totalTime)
             .add(min)
             .add(max)
             .addAll(Arrays.asList(bucketCount))
-            .add(overflowCount)
-            .build();
+            .add(overflowCount);
+
+        final double[] percentiles = bucketConfig.getPercentiles();
+        if (percentiles.length > 0) {
+            final BucketPercentiles estimator = new BucketPercentiles(percentiles, clock);
+            for (int i = 0; i < percentiles.length; i++) {
+                final Tag tag = StatsMonitor.percentileTag(percentiles[i]);
+                builder.add(new PercentileGauge(unitConfig.withAdditionalTag(tag), estimator, i));
+            }
+        }
+        this.monitors = builder.build();
+    }
+
+    /**
+     * Estimates percentiles from the change in the bucket counts since the start of the
+     * previous poll interval. The estimate is computed once per interval for each poller and
+     * shared by all of the percentile gauges.
+     */
+    private final class BucketPercentiles {
+        private final double[] percentiles;
+        private final Clock clock;
+        private final long[] lastStep = new long[Pollers.NUM_POLLERS];
+        private final long[][] lastCounts;
+        private final double[][] values;
+
+        BucketPercentiles(double[] percentiles, Clock clock) {
+            this.percentiles = percentiles;
+            this.clock = clock;
+            this.lastCounts = new long[Pollers.NUM_POLLERS][bucketCount.length + 1];
+            this.values = new double[Pollers.NUM_POLLERS][percentiles.length];
+        }
+
+        synchronized double get(int pollerIndex, int percentileIndex) {
+            final long stepTime = clock.now() / Pollers.POLLING_INTERVALS[pollerIndex];
+            if (stepTime != lastStep[pollerIndex]) {
+                update(pollerIndex);
+                lastStep[pollerIndex] = stepTime;
+            }
+            return values[pollerIndex][percentileIndex];
+        }
+
+        private void update(int pollerIndex) {
+            final long[] last = lastCounts[pollerIndex];
+            final long[] deltas = new long[last.length];
+            long n = 0L;
+            for (int i = 0; i < last.length; i++) {
+                final Counter c = (i < bucketCount.length) ? bucketCount[i] : overflowCount;
+                final long current = c.getValue(pollerIndex).longValue();
+                deltas[i] = current - last[i];
+                last[i] = current;
+                n += deltas[i];
+            }
+            for (int i = 0; i < percentiles.length; i++) {
+                values[pollerIndex][i] = (n == 0L) ? 0.0 : estimate(deltas, n, percentiles[i]);
+            }
+        }
+
+        /**
+         * Find the bucket containing the rank and interpolate linearly within that bucket.
+         * Values in the overflow bucket are reported as the upper bound of the last bucket.
+         */
+        private double estimate(long[] deltas, long n, double percent) {
+            final double rank = percent * n / 100.0; // SUPPRESS CHECKSTYLE MagicNumber
+            final int numBuckets = bucketConfig.getNumBuckets();
+            long seen = 0L;
+            for (int i = 0; i < numBuckets; i++) {
+                final long c = deltas[i];
+                if (c > 0L && seen + c >= rank) {
+                    final double lower = (i == 0) ? 0.0 : bucketConfig.getBucket(i - 1);
+                    final double upper = bucketConfig.getBucket(i);
+                    return lower + (upper - lower) * (rank - seen) / c;
+                }
+                seen += c;
+            }
+            return bucketConfig.getBucket(numBuckets - 1);
+        }
+    }
+
+    /** Gauge reporting one of the estimated percentiles. */
+    private static final class PercentileGauge extends AbstractMonitor<Double>
+            implements NumericMonitor<Double> {
+        private final BucketPercentiles estimator;
+        private final int index;
+
+        PercentileGauge(MonitorConfig config, BucketPercentiles estimator, int index) {
+            super(config.withAdditionalTag(DataSourceType.GAUGE));
+            this.estimator = estimator;
+            this.index = index;
+        }
+
+        @Override
+        public Double getValue(int pollerIndex) {
+            return estimator.get(pollerIndex, index);
+        }
     }
 
     /** {@inheritDoc} */
@@ -133,14 +226,12 @@ public class BucketTimer extends AbstractMonitor<Long> implements Timer, Composi
         min.update(duration);
         max.update(duration);
 
-        final long[] buckets = bucketConfig.getBuckets();
-        for (int i = 0; i < buckets.length; i++) {
-            if (duration <= buckets[i]) {
-                bucketCount[i].increment();
-                return;
-            }
+        final int idx = bucketConfig.indexOf(duration);
+        if (idx < bucketCount.length) {
+            bucketCount[idx].increment();
+        } else {
+            overflowCount.increment();
         }
-        overflowCount.increment();
     }
 
     /** {@inheritDoc} */
@@ -21,6 +21,12 @@ import java.util.List;
  * Used as a mixin for monitors that are composed of a number of sub-monitors.
  */
 public interface CompositeMonitor<T> extends Monitor<T> {
-    /** Returns a list of sub-monitors for this composite. */
+    /**
+     * Returns a list of sub-monitors for this composite. Pollers cache the flattened tree and
+     * only re-flatten a composite when this returns a different instance, so implementations
+     * should return the same immutable list until the sub-monitors change and a new list after
+     * that. A mutable list that is modified in place also works, but is compared element by
+     * element on each refresh.
+     */
     List<Monitor<?>> getMonitors();
 }
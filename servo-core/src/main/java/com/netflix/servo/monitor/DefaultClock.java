@@ -0,0 +1,61 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.util.CachedClock;
+import com.netflix.servo.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Clock used by the monitors in this package unless one is passed in explicitly. By default this
+ * is {@link Clock#WALL}. Setting the {@code servo.clock.resolution} system property to a positive
+ * number of milliseconds selects a {@link CachedClock} with that resolution instead, which avoids
+ * reading the system time on every update. The step boundaries used by the monitors only need
+ * millisecond accuracy so a resolution of 1 is usually a good choice for hot code paths.
+ */
+public final class DefaultClock {
+    private DefaultClock() {
+    }
+
+    /**
+     * Resolution in milliseconds for the cached clock, 0 to use the system time directly.
+     */
+    public static final String RESOLUTION = System.getProperty("servo.clock.resolution", "0");
+
+    private static final Clock CLOCK = create(RESOLUTION);
+
+    /**
+     * Get the clock that is used by default for monitors.
+     */
+    public static Clock get() {
+        return CLOCK;
+    }
+
+    /**
+     * Parse the resolution and create the clock, in case of errors the system time is used.
+     */
+    static Clock create(String resolution) {
+        try {
+            final long resolutionMs = Long.parseLong(resolution.trim());
+            return (resolutionMs > 0) ? new CachedClock(resolutionMs) : Clock.WALL;
+        } catch (NumberFormatException e) {
+            Logger logger = LoggerFactory.getLogger(DefaultClock.class);
+            logger.error("Cannot parse '{}' as a long: {}", resolution, e.getMessage());
+            return Clock.WALL;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.stats.QuantileSketch;
+import com.netflix.servo.tag.Tag;
+import com.netflix.servo.tag.Tags;
+import com.netflix.servo.util.Clock;
+
+import java.util.List;
+
+/**
+ * Tracks the distribution of a set of values, for example the size of requests. For each polling
+ * interval it publishes the rate of values and total amount, and a {@link QuantileSketch} of the
+ * recorded values tagged with {@link DataSourceType#DISTRIBUTION}. Unlike the percentiles
+ * published by {@link StatsMonitor}, the sketches from many instances can be merged with
+ * {@link QuantileSketch#mergeAll(java.util.Collection)} to get accurate percentiles for the whole
+ * cluster. Observers that send the sketch to another process should use
+ * {@link QuantileSketch#toByteArray()}.
+ *
+ * <p>Recording is lock-free and memory use is fixed based on the relative accuracy.
+ */
+public class DistributionSummary extends AbstractMonitor<Long>
+        implements CompositeMonitor<Long> {
+
+    private static final String STATISTIC = "statistic";
+
+    private static final Tag STAT_TOTAL = Tags.newTag(STATISTIC, "totalAmount");
+    private static final Tag STAT_COUNT = Tags.newTag(STATISTIC, "count");
+    private static final Tag STAT_DISTRIBUTION = Tags.newTag(STATISTIC, "distribution");
+
+    private final StepSketch sketch;
+    private final List<Monitor<?>> monitors;
+
+    /** Rate per second for the count or total amount. */
+    private final class RateMonitor extends AbstractMonitor<Double>
+            implements NumericMonitor<Double> {
+        private final boolean useTotal;
+
+        RateMonitor(MonitorConfig config, boolean useTotal) {
+            super(config.withAdditionalTag(DataSourceType.GAUGE));
+            this.useTotal = useTotal;
+        }
+
+        @Override
+        public Double getValue(int pollerIndex) {
+            final QuantileSketch s = sketch.getPrevious(pollerIndex);
+            final double v = useTotal ? s.getTotal() : s.getCount();
+            return v * 1000.0 / Pollers.POLLING_INTERVALS[pollerIndex];
+        }
+    }
+
+    /** Sketch of the values recorded during the previous interval. */
+    private final class SketchMonitor extends AbstractMonitor<QuantileSketch> {
+        SketchMonitor(MonitorConfig config) {
+            super(config.withAdditionalTag(DataSourceType.DISTRIBUTION));
+        }
+
+        @Override
+        public QuantileSketch getValue(int pollerIndex) {
+            return sketch.getPrevious(pollerIndex);
+        }
+    }
+
+    /**
+     * Creates a new instance using the default relative accuracy.
+     */
+    public DistributionSummary(MonitorConfig config) {
+        this(config, QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param config            base configuration for the monitor
+     * @param relativeAccuracy  max relative error for percentiles computed from the sketches
+     */
+    public DistributionSummary(MonitorConfig config, double relativeAccuracy) {
+        this(config, relativeAccuracy, DefaultClock.get());
+    }
+
+    DistributionSummary(MonitorConfig config, double relativeAccuracy, Clock clock) {
+        super(config);
+        sketch = new StepSketch(relativeAccuracy, clock);
+        monitors = ImmutableList.<Monitor<?>>of(
+                new RateMonitor(config.withAdditionalTag(STAT_TOTAL), true),
+                new RateMonitor(config.withAdditionalTag(STAT_COUNT), false),
+                new SketchMonitor(config.withAdditionalTag(STAT_DISTRIBUTION)));
+    }
+
+    /**
+     * Record a value, negative values are ignored.
+     */
+    public void record(long amount) {
+        sketch.record(amount);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Monitor<?>> getMonitors() {
+        return monitors;
+    }
+
+    /** Returns the mean of the values recorded during the previous interval. */
+    @Override
+    public Long getValue(int pollerIndex) {
+        return (long) sketch.getPrevious(pollerIndex).getMean();
+    }
+
+    /** Returns the sketch of the values recorded during the previous interval. */
+    public QuantileSketch getSketch(int pollerIndex) {
+        return sketch.getPrevious(pollerIndex);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || !(obj instanceof DistributionSummary)) {
+            return false;
+        }
+        DistributionSummary m = (DistributionSummary) obj;
+        return config.equals(m.getConfig())
+                && sketch.getRelativeAccuracy() == m.sketch.getRelativeAccuracy();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(config, sketch.getRelativeAccuracy());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("config", config)
+                .add("sketch", sketch)
+                .toString();
+    }
+}
@@ -59,7 +59,7 @@ public class DurationTimer extends AbstractMonitor<Long> implements CompositeMon
      * Create a new DurationTimer using the provided configuration.
      */
     public DurationTimer(MonitorConfig config) {
-        this(config, Clock.WALL);
+        this(config, DefaultClock.get());
     }
 
     /**
@@ -24,6 +24,7 @@ import com.netflix.servo.util.ExpiringCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -38,12 +39,74 @@ public final class DynamicCounter extends AbstractMonitor<Long> implements Compo
     private static final String CLASS_NAME = DynamicCounter.class.getCanonicalName();
     private static final String EXPIRATION_PROP = CLASS_NAME + ".expiration";
     private static final String EXPIRATION_PROP_UNIT = CLASS_NAME + ".expirationUnit";
+    private static final String MAX_SIZE_PROP = CLASS_NAME + ".maxSize";
+    private static final String DEFAULT_MAX_SIZE = "100000";
     private static final String INTERNAL_ID = "servoCounters";
     private static final MonitorConfig BASE_CONFIG = new MonitorConfig.Builder(INTERNAL_ID).build();
 
+    /**
+     * Max number of entries in the index of raw names and tags, the least recently used are
+     * evicted beyond that.
+     */
+    private static final int MAX_RAW_KEYS = 10000;
+
+    private static final ThreadLocal<RawKey> PROBE = new ThreadLocal<RawKey>() {
+        @Override
+        protected RawKey initialValue() {
+            return new RawKey();
+        }
+    };
+
     private static final DynamicCounter INSTANCE = new DynamicCounter();
 
     private final ExpiringCache<MonitorConfig, Counter> counters;
+
+    /**
+     * Index from the raw name and tag strings passed to {@link #increment(String, String...)}
+     * to the config that was built for them, so the config only needs to be created the first
+     * time a given name and set of tags is seen.
+     */
+    private final ExpiringCache<RawKey, MonitorConfig> rawKeys;
+
+    /**
+     * Key for the raw name and tags. A mutable instance is kept per thread to probe the index
+     * without allocating, the keys stored in the index are never modified.
+     */
+    static final class RawKey {
+        private String name;
+        private String[] tags;
+        private int hash;
+
+        RawKey set(String n, String[] t) {
+            name = n;
+            tags = t;
+            hash = 31 * n.hashCode() + Arrays.hashCode(t);
+            return this;
+        }
+
+        void clear() {
+            name = null;
+            tags = null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || !(obj instanceof RawKey)) {
+                return false;
+            }
+            final RawKey k = (RawKey) obj;
+            return hash == k.hash && name.equals(k.name) && Arrays.equals(tags, k.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     private DynamicCounter() {
         super(BASE_CONFIG);
         final String expiration = System.getProperty(EXPIRATION_PROP, DEFAULT_EXPIRATION);
@@ -52,14 +115,23 @@ public final class DynamicCounter extends AbstractMonitor<Long> implements Compo
         final long expirationValue = Long.valueOf(expiration);
         final TimeUnit expirationUnitValue = TimeUnit.valueOf(expirationUnit);
         final long expireAfterMs = expirationUnitValue.toMillis(expirationValue);
+        final int maxSize = Integer.valueOf(System.getProperty(MAX_SIZE_PROP, DEFAULT_MAX_SIZE));
         counters = new ExpiringCache<MonitorConfig, Counter>(expireAfterMs,
                 new ConcurrentHashMapV8.Fun<MonitorConfig, Counter>() {
                     @Override
                     public Counter apply(final MonitorConfig config) {
                         return new StepCounter(config);
                     }
-                });
+                }, maxSize, TimeUnit.MINUTES.toMillis(1), DefaultClock.get());
+        rawKeys = new ExpiringCache<RawKey, MonitorConfig>(expireAfterMs,
+                new ConcurrentHashMapV8.Fun<RawKey, MonitorConfig>() {
+                    @Override
+                    public MonitorConfig apply(final RawKey key) {
+                        return buildConfig(key.name, key.tags);
+                    }
+                }, MAX_RAW_KEYS, TimeUnit.MINUTES.toMillis(1), DefaultClock.get());
         DefaultMonitorRegistry.getInstance().register(this);
+        Monitors.registerObject(INTERNAL_ID + "Cache", counters);
     }
 
     private Counter get(final MonitorConfig config) {
@@ -77,17 +149,46 @@ public final class DynamicCounter extends AbstractMonitor<Long> implements Compo
      * Increment a counter specified by a name, and a sequence of (key, value) pairs.
      */
     public static void increment(String name, String... tags) {
-        final MonitorConfig.Builder configBuilder = MonitorConfig.builder(name);
+        final MonitorConfig config = INSTANCE.getConfig(name, tags);
+        if (config != null) {
+            increment(config);
+        }
+    }
+
+    /**
+     * Get the config for a name and sequence of (key, value) pairs. If the same name and tags
+     * have been seen before the config is found in the index without any allocation. Returns
+     * null if the tags are not valid.
+     */
+    private MonitorConfig getConfig(String name, String[] tags) {
+        if (name != null) {
+            final RawKey probe = PROBE.get().set(name, tags);
+            final MonitorConfig config = rawKeys.getIfPresent(probe);
+            probe.clear();
+            if (config != null) {
+                return config;
+            }
+        }
+
         Preconditions.checkArgument(tags.length % 2 == 0,
                 "The sequence of (key, value) pairs must have even size: one key, one value");
         try {
-            for (int i = 0; i < tags.length; i += 2) {
-                configBuilder.withTag(tags[i], tags[i + 1]);
+            if (name == null) {
+                return buildConfig(name, tags);
             }
-            increment(configBuilder.build());
+            return rawKeys.get(new RawKey().set(name, Arrays.copyOf(tags, tags.length)));
         } catch (IllegalArgumentException e) {
             LOGGER.warn("Failed to get a counter to increment: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static MonitorConfig buildConfig(String name, String[] tags) {
+        final MonitorConfig.Builder configBuilder = MonitorConfig.builder(name);
+        for (int i = 0; i < tags.length; i += 2) {
+            configBuilder.withTag(tags[i], tags[i + 1]);
         }
+        return configBuilder.build();
     }
 
 
@@ -36,21 +36,39 @@ public final class DynamicTimer extends AbstractMonitor<Long> implements Composi
     private static final String CLASS_NAME = DynamicTimer.class.getCanonicalName();
     private static final String EXPIRATION_PROP = CLASS_NAME + ".expiration";
     private static final String EXPIRATION_PROP_UNIT = CLASS_NAME + ".expirationUnit";
+    private static final String MAX_SIZE_PROP = CLASS_NAME + ".maxSize";
+    private static final String DEFAULT_MAX_SIZE = "100000";
     private static final String INTERNAL_ID = "servoTimers";
     private static final MonitorConfig BASE_CONFIG = new MonitorConfig.Builder(INTERNAL_ID).build();
 
     private static final DynamicTimer INSTANCE = new DynamicTimer();
     private final ExpiringCache<ConfigUnit, Timer> timers;
 
+    private final ThreadLocal<ConfigUnit> lookupKey = new ThreadLocal<ConfigUnit>() {
+        @Override
+        protected ConfigUnit initialValue() {
+            return new ConfigUnit(null, null);
+        }
+    };
+
+    /**
+     * Key for the cache of timers. Keys stored in the cache are never changed, the fields are
+     * only updated for the per-thread keys used to look up existing timers.
+     */
     static class ConfigUnit {
-        final MonitorConfig config;
-        final TimeUnit unit;
+        MonitorConfig config;
+        TimeUnit unit;
 
         ConfigUnit(MonitorConfig config, TimeUnit unit) {
             this.config = config;
             this.unit = unit;
         }
 
+        void set(MonitorConfig config, TimeUnit unit) {
+            this.config = config;
+            this.unit = unit;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -81,17 +99,27 @@ public final class DynamicTimer extends AbstractMonitor<Long> implements Composi
         final long expirationValue = Long.valueOf(expiration);
         final TimeUnit expirationUnitValue = TimeUnit.valueOf(expirationUnit);
         final long expireAfterMs = expirationUnitValue.toMillis(expirationValue);
+        final int maxSize = Integer.valueOf(System.getProperty(MAX_SIZE_PROP, DEFAULT_MAX_SIZE));
         timers = new ExpiringCache<ConfigUnit, Timer>(expireAfterMs, new ConcurrentHashMapV8.Fun<ConfigUnit, Timer>() {
             @Override
             public Timer apply(final ConfigUnit configUnit) {
                 return new BasicTimer(configUnit.config, configUnit.unit);
             }
-        });
+        }, maxSize, TimeUnit.MINUTES.toMillis(1), DefaultClock.get());
         DefaultMonitorRegistry.getInstance().register(this);
+        Monitors.registerObject(INTERNAL_ID + "Cache", timers);
     }
 
+    /**
+     * Get the timer for a config and unit. Existing timers are found with a reusable per-thread
+     * key, a new key is only allocated when the timer needs to be created.
+     */
     private Timer get(MonitorConfig config, TimeUnit unit) {
-        return timers.get(new ConfigUnit(config, unit));
+        final ConfigUnit key = lookupKey.get();
+        key.set(config, unit);
+        final Timer timer = timers.getIfPresent(key);
+        key.set(null, null);
+        return (timer != null) ? timer : timers.get(new ConfigUnit(config, unit));
     }
 
     /**
@@ -127,6 +155,31 @@ public final class DynamicTimer extends AbstractMonitor<Long> implements Composi
         INSTANCE.get(config, unit).record(duration, unit);
     }
 
+    /**
+     * Record the time elapsed since the start time to the dynamic timer indicated by the
+     * provided config with a TimeUnit of milliseconds. This is the same timer that is used by
+     * {@link #start(MonitorConfig)}, but no stopwatch needs to be allocated.
+     *
+     * @param config      config for the timer
+     * @param startNanos  start time returned by {@link Timers#startNanos()}
+     */
+    public static void stopNanos(MonitorConfig config, long startNanos) {
+        stopNanos(config, TimeUnit.MILLISECONDS, startNanos);
+    }
+
+    /**
+     * Record the time elapsed since the start time to the dynamic timer indicated by the
+     * provided config and unit. This is the same timer that is used by
+     * {@link #start(MonitorConfig, TimeUnit)}, but no stopwatch needs to be allocated.
+     *
+     * @param config      config for the timer
+     * @param unit        unit for the timer
+     * @param startNanos  start time returned by {@link Timers#startNanos()}
+     */
+    public static void stopNanos(MonitorConfig config, TimeUnit unit, long startNanos) {
+        Timers.stopNanos(INSTANCE.get(config, unit), startNanos);
+    }
+
     /**
      * Returns a stopwatch that has been started and will automatically
      * record its result to the dynamic timer specified by the given name, and sequence of (key,
@@ -19,8 +19,6 @@ import com.google.common.base.Objects;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.util.Clock;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 /**
  * Gauge that keeps track of the maximum value seen since the last reset. Updates should be
  * non-negative, the reset value is 0.
@@ -31,42 +29,26 @@ public class MaxGauge extends AbstractMonitor<Long>
 
     /** Creates a new instance of the gauge. */
     public MaxGauge(MonitorConfig config) {
-        this(config, Clock.WALL);
+        this(config, DefaultClock.get());
     }
 
     /** Creates a new instance of the gauge using a specific clock. Useful for unit testing. */
     MaxGauge(MonitorConfig config, Clock clock) {
         super(config.withAdditionalTag(DataSourceType.GAUGE));
-        max = new StepLong(0L, clock);
-    }
-
-    /**
-     * Update the max for the given index if the provided value is larger than the current max.
-     */
-    private void updateMax(int idx, long v) {
-        AtomicLong current = max.getCurrent(idx);
-        long m = current.get();
-        while (v > m) {
-            if (current.compareAndSet(m, v)) {
-                break;
-            }
-            m = current.get();
-        }
+        max = new StepLong(StepLong.Operation.MAX, clock);
     }
 
     /**
      * Update the max if the provided value is larger than the current max.
      */
     public void update(long v) {
-        for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
-            updateMax(i, v);
-        }
+        max.update(v);
     }
 
     /** {@inheritDoc} */
     @Override
     public Long getValue(int nth) {
-        return max.getCurrent(nth).get();
+        return max.getCurrent(nth);
     }
 
     /**
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Reads the value of a field or method without arguments that is used as a monitor. Two
+ * accessors are equal if they are for the same member, so monitors created from different
+ * accessor instances for the same member are still equal.
+ *
+ * @param <T> type of the object that declares the member
+ */
+public abstract class MemberAccessor<T> {
+
+    private final Class<?> declaringClass;
+    private final String name;
+    private final boolean method;
+
+    /**
+     * Create a new accessor.
+     *
+     * @param declaringClass  class that declares the member
+     * @param name            name of the field or method
+     * @param method          true if the member is a method
+     */
+    protected MemberAccessor(Class<?> declaringClass, String name, boolean method) {
+        this.declaringClass = Preconditions.checkNotNull(declaringClass, "declaringClass");
+        this.name = Preconditions.checkNotNull(name, "name");
+        this.method = method;
+    }
+
+    /** Returns the value of the member for the given object. */
+    public abstract Object get(T obj) throws Exception;
+
+    /** Returns the class that declares the member. */
+    public Class<?> getDeclaringClass() {
+        return declaringClass;
+    }
+
+    /** Returns the name of the field or method. */
+    public String getName() {
+        return name;
+    }
+
+    /** Returns true if the member is a method. */
+    public boolean isMethod() {
+        return method;
+    }
+
+    /**
+     * Returns an accessor that reads a field using reflection, the field is made accessible
+     * once when the accessor is created.
+     */
+    public static <T> MemberAccessor<T> ofField(Class<?> c, String name) {
+        try {
+            return new FieldAccessor<T>(c.getDeclaredField(name));
+        } catch (NoSuchFieldException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Returns an accessor that invokes a method without arguments using reflection, the method
+     * is made accessible once when the accessor is created.
+     */
+    public static <T> MemberAccessor<T> ofMethod(Class<?> c, String name) {
+        try {
+            return new MethodAccessor<T>(c.getDeclaredMethod(name));
+        } catch (NoSuchMethodException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    static <T> MemberAccessor<T> of(Field field) {
+        return new FieldAccessor<T>(field);
+    }
+
+    static <T> MemberAccessor<T> of(Method method) {
+        return new MethodAccessor<T>(method);
+    }
+
+    private static final class FieldAccessor<T> extends MemberAccessor<T> {
+        private final Field field;
+
+        FieldAccessor(Field field) {
+            super(field.getDeclaringClass(), field.getName(), false);
+            field.setAccessible(true);
+            this.field = field;
+        }
+
+        @Override
+        public Object get(T obj) throws Exception {
+            return field.get(obj);
+        }
+    }
+
+    private static final class MethodAccessor<T> extends MemberAccessor<T> {
+        private final Method method;
+
+        MethodAccessor(Method method) {
+            super(method.getDeclaringClass(), method.getName(), true);
+            method.setAccessible(true);
+            this.method = method;
+        }
+
+        @Override
+        public Object get(T obj) throws Exception {
+            return method.invoke(obj);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || !(obj instanceof MemberAccessor<?>)) {
+            return false;
+        }
+        MemberAccessor<?> m = (MemberAccessor<?>) obj;
+        return declaringClass.equals(m.declaringClass)
+                && name.equals(m.name)
+                && method == m.method;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(declaringClass, name, method);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return declaringClass.getName() + "." + name + (method ? "()" : "");
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.tag.ArrayTagList;
+import com.netflix.servo.tag.Tag;
+import com.netflix.servo.tag.TagList;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Canonical identity for the name and tags of a {@link MonitorConfig}. Instances are interned
+ * so there is a single instance for a given name and set of tags, and two ids are equal only if
+ * they are the same instance. Each id has a 64-bit fingerprint of the name and tags, a dense
+ * integer index that can be used to look up per-metric state in arrays, and the parsed value of
+ * the {@link DataSourceType} tag so that it doesn't need to be looked up for every poll.
+ */
+public final class MetricId {
+
+    private static final Interner<MetricId> INTERNER = Interners.newWeakInterner();
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger(0);
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String name;
+    private final TagList tags;
+    private final long fingerprint;
+    private final int hash;
+    private final DataSourceType type;
+
+    /** Assigned the first time it is requested, -1 until then. */
+    private final AtomicInteger index = new AtomicInteger(-1);
+
+    private MetricId(String name, TagList tags) {
+        this.name = name;
+        this.tags = tags;
+        this.fingerprint = computeFingerprint(name, tags);
+        this.hash = (int) (fingerprint ^ (fingerprint >>> 32));
+        this.type = parseType(tags.getValue(DataSourceType.KEY));
+    }
+
+    /**
+     * Returns the canonical id for a name and tag list. The tags are expected to be in a
+     * consistent order for the same set of tags, as they are for the tag lists created by
+     * {@link MonitorConfig}.
+     */
+    static MetricId intern(String name, TagList tags) {
+        return INTERNER.intern(new MetricId(name, tags));
+    }
+
+    private static long hashString(long h, String s) {
+        long result = h;
+        final int n = s.length();
+        for (int i = 0; i < n; ++i) {
+            result ^= s.charAt(i);
+            result *= FNV_PRIME;
+        }
+        return result;
+    }
+
+    private static long hashTag(long h, String key, String value) {
+        final long k = (hashString(h, key) ^ '=') * FNV_PRIME;
+        return (hashString(k, value) ^ ',') * FNV_PRIME;
+    }
+
+    /** 64-bit FNV-1a hash of the name and tags with a separator after each string. */
+    static long computeFingerprint(String name, TagList tags) {
+        long h = hashString(FNV_OFFSET_BASIS, name);
+        if (tags instanceof ArrayTagList) {
+            final ArrayTagList array = (ArrayTagList) tags;
+            for (int i = 0; i < array.size(); ++i) {
+                h = hashTag(h, array.getKey(i), array.getValue(i));
+            }
+        } else {
+            for (Tag t : tags) {
+                h = hashTag(h, t.getKey(), t.getValue());
+            }
+        }
+        return h;
+    }
+
+    private static DataSourceType parseType(String value) {
+        if (value != null) {
+            for (DataSourceType t : DataSourceType.values()) {
+                if (t.name().equals(value)) {
+                    return t;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Returns the name of the metric. */
+    public String getName() {
+        return name;
+    }
+
+    /** Returns the tags associated with the metric. */
+    public TagList getTags() {
+        return tags;
+    }
+
+    /** Returns a 64-bit fingerprint of the name and tags. */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns a small integer that is unique to this id. Indices are assigned in order of first
+     * use starting at 0 and are not reused.
+     */
+    public int getIndex() {
+        int i = index.get();
+        if (i < 0) {
+            final int next = NEXT_INDEX.getAndIncrement();
+            i = index.compareAndSet(-1, next) ? next : index.get();
+        }
+        return i;
+    }
+
+    /**
+     * Returns the value of the {@link DataSourceType#KEY} tag, or null if the tag is not present
+     * or is not a known type.
+     */
+    public DataSourceType getDataSourceType() {
+        return type;
+    }
+
+    /**
+     * Compares the name and tags. Since ids are interned, two canonical ids are equal only if
+     * they are the same instance.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || !(obj instanceof MetricId)) {
+            return false;
+        }
+        MetricId m = (MetricId) obj;
+        return fingerprint == m.fingerprint && name.equals(m.name) && tags.equals(m.tags);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("name", name)
+                .add("tags", tags)
+                .add("fingerprint", Long.toHexString(fingerprint))
+                .toString();
+    }
+}
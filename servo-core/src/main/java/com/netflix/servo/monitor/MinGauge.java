@@ -19,8 +19,6 @@ import com.google.common.base.Objects;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.util.Clock;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 /**
  * Gauge that keeps track of the minimum value seen since the last reset. The reset value is
  * Long.MAX_VALUE. If no update has been received since the last reset, then {@link #getValue}
@@ -34,7 +32,7 @@ public class MinGauge extends AbstractMonitor<Long>
      * Creates a new instance of the gauge.
      */
     MinGauge(MonitorConfig config) {
-        this(config, Clock.WALL);
+        this(config, DefaultClock.get());
     }
 
     /**
@@ -42,27 +40,14 @@ public class MinGauge extends AbstractMonitor<Long>
      */
     MinGauge(MonitorConfig config, Clock clock) {
         super(config.withAdditionalTag(DataSourceType.GAUGE));
-        min = new StepLong(Long.MAX_VALUE, clock);
-    }
-
-    private void updateMin(int idx, long v) {
-        AtomicLong current = min.getCurrent(idx);
-        long m = current.get();
-        while (v < m) {
-            if (current.compareAndSet(m, v)) {
-                break;
-            }
-            m = current.get();
-        }
+        min = new StepLong(StepLong.Operation.MIN, clock);
     }
 
     /**
      * Update the min if the provided value is smaller than the current min.
      */
     public void update(long v) {
-        for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
-            updateMin(i, v);
-        }
+        min.update(v);
     }
 
     /**
@@ -70,7 +55,7 @@ public class MinGauge extends AbstractMonitor<Long>
      */
     @Override
     public Long getValue(int pollerIdx) {
-        long v = min.getCurrent(pollerIdx).get();
+        long v = min.getCurrent(pollerIdx);
         return (v == Long.MAX_VALUE) ? 0L : v;
     }
 
@@ -17,7 +17,8 @@ package com.netflix.servo.monitor;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
-import com.netflix.servo.tag.BasicTagList;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.tag.ArrayTagList;
 import com.netflix.servo.tag.Tag;
 import com.netflix.servo.tag.TagList;
 import com.netflix.servo.tag.Tags;
@@ -25,7 +26,6 @@ import com.netflix.servo.tag.Tags;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Configuration settings associated with a monitor. A config consists of a name that is required
@@ -137,20 +137,31 @@ public final class MonitorConfig {
     private final String name;
     private final TagList tags;
     private final PublishingPolicy policy;
+    private final MetricId id;
 
-    /** Config is immutable, cache the hash code to improve performance. */
-    private final AtomicInteger cachedHashCode = new AtomicInteger(0);
+    /** Config is immutable, so the hash code is computed once from the id and policy. */
+    private final int hash;
+
+    /**
+     * Last config created by {@link #withAdditionalTag(Tag)} with a {@link DataSourceType} tag.
+     * A single field rather than a map keeps the cost per config to one reference.
+     */
+    private volatile MonitorConfig derived;
 
     /**
      * Creates a new instance with a given name and tags. If {@code tags} is
      * null an empty tag list will be used.
      */
     private MonitorConfig(Builder builder) {
-        this.name = Preconditions.checkNotNull(builder.name, "name cannot be null");
-        this.tags = (builder.tags.isEmpty())
-            ? BasicTagList.EMPTY
-            : new BasicTagList(builder.tags);
+        final String n = Preconditions.checkNotNull(builder.name, "name cannot be null");
+        final TagList t = (builder.tags.isEmpty())
+            ? ArrayTagList.EMPTY
+            : new ArrayTagList(builder.tags);
+        this.id = MetricId.intern(n, t);
+        this.name = id.getName();
+        this.tags = id.getTags();
         this.policy = builder.policy;
+        this.hash = 31 * id.hashCode() + policy.hashCode();
     }
 
     /**
@@ -174,6 +185,13 @@ public final class MonitorConfig {
         return policy;
     }
 
+    /**
+     * Returns the canonical id for the name and tags.
+     */
+    public MetricId getId() {
+        return id;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean equals(Object obj) {
@@ -184,24 +202,12 @@ public final class MonitorConfig {
             return false;
         }
         MonitorConfig m = (MonitorConfig) obj;
-        return name.equals(m.getName())
-            && tags.equals(m.getTags())
-            && policy.equals(m.getPublishingPolicy());
+        return hash == m.hash && id == m.id && policy.equals(m.getPublishingPolicy());
     }
 
-    /**
-     * This class is immutable so we cache the hash code after the first time it is computed. The
-     * value 0 is used as an indicator that the hash code has not yet been computed, this means the
-     * cache won't work for a small set of inputs, but the impact should be minimal for a decent
-     * hash function. Similar technique is used for java String class.
-     */
+    /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        int hash = cachedHashCode.get();
-        if (hash == 0) {
-            hash = Objects.hashCode(name, tags, policy);
-            cachedHashCode.set(hash);
-        }
         return hash;
     }
 
@@ -223,10 +229,22 @@ public final class MonitorConfig {
     }
 
     /**
-     * Returns a copy of the monitor config with an additional tag.
+     * Returns a copy of the monitor config with an additional tag. If the tag is a
+     * {@link DataSourceType} the last result is memoized, so adding the same type again, e.g.,
+     * for each poll, returns the same instance.
      */
     public MonitorConfig withAdditionalTag(Tag tag) {
-        return copy().withTag(tag).build();
+        if (!(tag instanceof DataSourceType)) {
+            return copy().withTag(tag).build();
+        } else if (id.getDataSourceType() == tag) {
+            return this;
+        }
+        MonitorConfig config = derived;
+        if (config == null || config.id.getDataSourceType() != tag) {
+            config = copy().withTag(tag).build();
+            derived = config;
+        }
+        return config;
     }
 
     /**
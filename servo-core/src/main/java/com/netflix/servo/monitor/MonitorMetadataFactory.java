@@ -0,0 +1,61 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.annotations.DataSourceLevel;
+import com.netflix.servo.annotations.DataSourceType;
+
+/**
+ * Describes the monitors declared by a class without scanning it using reflection. Factories are
+ * generated at build time by the annotation processor in the servo-apt module, but can also be
+ * written by hand. {@link Monitors#newObjectMonitor(String, Object)} looks for a class with the
+ * binary name of the monitored class followed by {@link #SUFFIX}, e.g.,
+ * {@code com.example.Foo$$ServoMonitors} for {@code com.example.Foo}. If it is present and has
+ * a public no-argument constructor it will be used instead of reflection for the members
+ * declared by that class. Super classes are handled separately and fall back to reflection if
+ * they do not have a factory.
+ *
+ * @param <T> type of the class being described
+ */
+public interface MonitorMetadataFactory<T> {
+
+    /** Suffix added to the binary name of a class to get the name of its factory. */
+    String SUFFIX = "$$ServoMonitors";
+
+    /** Add the members declared by the class. */
+    void describe(Members<T> members);
+
+    /**
+     * Receives the members of a class, see {@link com.netflix.servo.annotations.Monitor} and
+     * {@link com.netflix.servo.annotations.MonitorTags} for what they mean.
+     *
+     * @param <T> type of the class being described
+     */
+    interface Members<T> {
+        /** Add a field with a type of {@link Monitor}. */
+        void addMonitorField(MemberAccessor<T> field);
+
+        /**
+         * Add a field or method with a monitor annotation. The name is the name from the
+         * annotation, or the name of the member if it is empty.
+         */
+        void addAttribute(MemberAccessor<T> member, String name, DataSourceType type,
+                          DataSourceLevel level);
+
+        /** Set the member with the monitor tags annotation. */
+        void setTags(MemberAccessor<T> member);
+    }
+}
@@ -30,6 +30,11 @@ class MonitorWrapper<T> extends AbstractMonitor<T> {
         this.monitor = monitor;
     }
 
+    /** Returns the wrapped monitor. */
+    Monitor<T> getWrapped() {
+        return monitor;
+    }
+
     /** {@inheritDoc} */
     @Override
     public T getValue(int pollerIdx) {
@@ -21,15 +21,12 @@ import com.google.common.cache.Cache;
 import com.google.common.collect.Lists;
 
 import com.netflix.servo.DefaultMonitorRegistry;
+import com.netflix.servo.annotations.DataSourceLevel;
 import com.netflix.servo.annotations.DataSourceType;
-import com.netflix.servo.annotations.MonitorTags;
 import com.netflix.servo.tag.SortedTagList;
 import com.netflix.servo.tag.TaggingContext;
 import com.netflix.servo.tag.TagList;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-
 import java.util.List;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +39,10 @@ public final class Monitors {
     /** Name used for composite objects that do not have an explicit id. */
     private static final String DEFAULT_ID = "default";
 
+    /** Prefix for the monitor classes that are part of servo. */
+    private static final String MONITOR_PACKAGE =
+            Monitors.class.getName().substring(0, Monitors.class.getName().lastIndexOf('.') + 1);
+
     /** Function to create basic timers. */
     private static class TimerFactory implements Function<MonitorConfig, Timer> {
         private final TimeUnit unit;
@@ -207,6 +208,23 @@ public final class Monitors {
         DefaultMonitorRegistry.getInstance().register(newObjectMonitor(id, obj));
     }
 
+    /**
+     * Returns true if getting the value of the monitor may run code provided by the user, e.g.,
+     * the callable of a {@link BasicGauge}, an annotated field or method, or a monitor class
+     * from outside of this package. Such values can be slow or block, other monitors just read
+     * a value that is already in memory.
+     */
+    public static boolean isCallback(Monitor<?> monitor) {
+        Monitor<?> m = monitor;
+        while (m instanceof MonitorWrapper<?>) {
+            m = ((MonitorWrapper<?>) m).getWrapped();
+        }
+        return m instanceof BasicGauge<?>
+            || m instanceof AnnotatedNumberMonitor
+            || m instanceof AnnotatedStringMonitor
+            || !m.getClass().getName().startsWith(MONITOR_PACKAGE);
+    }
+
     /**
      * Returns a new monitor that adds the provided tags to the configuration returned by the
      * wrapped monitor.
@@ -239,6 +257,11 @@ public final class Monitors {
     static void addMonitorFields(
             List<Monitor<?>> monitors, String id, TagList tags, Object obj, Class<?> c) {
         try {
+            final List<MemberAccessor<Object>> fields = AnnotatedClass.get(c).getMonitorFields();
+            if (fields.isEmpty()) {
+                return;
+            }
+
             final SortedTagList.Builder builder = SortedTagList.builder();
             builder.withTag("class", className(obj.getClass()));
             if (tags != null) {
@@ -249,18 +272,14 @@ public final class Monitors {
             }
             final TagList classTags = builder.build();
 
-            final Field[] fields = c.getDeclaredFields();
-            for (Field field : fields) {
-                if (isMonitorType(field.getType())) {
-                    field.setAccessible(true);
-                    final Monitor<?> m = (Monitor<?>) field.get(obj);
-                    if (m == null) {
-                        throw new NullPointerException("field " + field.getName()
-                            + " in class " + c.getName() + " is null, all monitor fields must be"
-                            + " initialized before registering");
-                    }
-                    monitors.add(wrap(classTags, m));
+            for (MemberAccessor<Object> field : fields) {
+                final Monitor<?> m = (Monitor<?>) field.get(obj);
+                if (m == null) {
+                    throw new NullPointerException("field " + field.getName()
+                        + " in class " + c.getName() + " is null, all monitor fields must be"
+                        + " initialized before registering");
                 }
+                monitors.add(wrap(classTags, m));
             }
         } catch (Exception e) {
             throw Throwables.propagate(e);
@@ -273,96 +292,31 @@ public final class Monitors {
      */
     static void addAnnotatedFields(
             List<Monitor<?>> monitors, String id, TagList tags, Object obj, Class<?> c) {
-        final Class<com.netflix.servo.annotations.Monitor> annoClass =
-            com.netflix.servo.annotations.Monitor.class;
-        try {
-            Field[] fields = c.getDeclaredFields();
-            for (Field field : fields) {
-                final com.netflix.servo.annotations.Monitor anno = field.getAnnotation(annoClass);
-                if (anno != null) {
-                    final MonitorConfig config =
-                        newConfig(obj.getClass(), field.getName(), id, anno, tags);
-                    if (anno.type() == DataSourceType.INFORMATIONAL) {
-                        monitors.add(new AnnotatedStringMonitor(config, obj, field));
-                    } else {
-                        checkType(anno, field.getType(), c);
-                        monitors.add(new AnnotatedNumberMonitor(config, obj, field));
-                    }
-                }
-            }
-
-            Method[] methods = c.getDeclaredMethods();
-            for (Method method : methods) {
-                final com.netflix.servo.annotations.Monitor anno = method.getAnnotation(annoClass);
-                if (anno != null) {
-                    final MonitorConfig config =
-                        newConfig(obj.getClass(), method.getName(), id, anno, tags);
-                    if (anno.type() == DataSourceType.INFORMATIONAL) {
-                        monitors.add(new AnnotatedStringMonitor(config, obj, method));
-                    } else {
-                        checkType(anno, method.getReturnType(), c);
-                        monitors.add(new AnnotatedNumberMonitor(config, obj, method));
-                    }
-                }
+        for (AnnotatedClass.Attribute attr : AnnotatedClass.get(c).getAttributes()) {
+            final MemberAccessor<Object> accessor = attr.getAccessor();
+            final MonitorConfig config = newConfig(
+                    obj.getClass(), attr.getName(), id, attr.getType(), attr.getLevel(),
+                    tags);
+            if (attr.isInformational()) {
+                monitors.add(new AnnotatedStringMonitor(config, obj, accessor));
+            } else {
+                monitors.add(new AnnotatedNumberMonitor(config, obj, accessor));
             }
-        } catch (Exception e) {
-            throw Throwables.propagate(e);
         }
     }
 
     /** Get tags from annotation. */
     private static TagList getMonitorTags(Object obj) {
+        final MemberAccessor<Object> accessor =
+                AnnotatedClass.get(obj.getClass()).getTagsAccessor();
+        if (accessor == null) {
+            return null;
+        }
         try {
-            Class<?> c = obj.getClass();
-            Field[] fields = c.getDeclaredFields();
-            for (Field field : fields) {
-                final MonitorTags anno = field.getAnnotation(MonitorTags.class);
-                if (anno != null) {
-                    field.setAccessible(true);
-                    return (TagList) field.get(obj);
-                }
-            }
-
-            Method[] methods = c.getDeclaredMethods();
-            for (Method method : methods) {
-                final MonitorTags anno = method.getAnnotation(MonitorTags.class);
-                if (anno != null) {
-                    method.setAccessible(true);
-                    return (TagList) method.invoke(obj);
-                }
-            }
+            return (TagList) accessor.get(obj);
         } catch (Exception e) {
             throw Throwables.propagate(e);
         }
-
-        return null;
-    }
-
-    /** Verify that the type for the annotated field is numeric. */
-    private static void checkType(
-            com.netflix.servo.annotations.Monitor anno, Class<?> type, Class<?> container) {
-        if (!isNumericType(type)) {
-            final String msg = "annotation of type " + anno.type().name() + " can only be used"
-                + " with numeric values, " + anno.name() + " in class " + container.getName()
-                + " is applied to a field or method of type " + type.getName();
-            throw new IllegalArgumentException(msg);
-        }
-    }
-
-    /** Returns true if {@code c} can be assigned to a number. */
-    private static boolean isNumericType(Class<?> c) {
-        return Number.class.isAssignableFrom(c)
-            || double.class == c
-            || float.class == c
-            || long.class == c
-            || int.class == c
-            || short.class == c
-            || byte.class == c;
-    }
-
-    /** Returns true if {@code c} can be assigned to a monitor. */
-    private static boolean isMonitorType(Class<?> c) {
-        return Monitor.class.isAssignableFrom(c);
     }
 
     /** Creates a monitor config for a composite object. */
@@ -381,21 +335,18 @@ public final class Monitors {
         return simpleName.isEmpty() ? className(c.getEnclosingClass()) : simpleName;
     }
 
-    /** Creates a monitor config based on an annotation. */
+    /** Creates a monitor config based on the values of an annotation. */
     private static MonitorConfig newConfig(
             Class<?> c,
-            String defaultName,
+            String name,
             String id,
-            com.netflix.servo.annotations.Monitor anno,
+            DataSourceType type,
+            DataSourceLevel level,
             TagList tags) {
-        String name = anno.name();
-        if (name.isEmpty()) {
-            name = defaultName;
-        }
         MonitorConfig.Builder builder = MonitorConfig.builder(name);
         builder.withTag("class", className(c));
-        builder.withTag(anno.type());
-        builder.withTag(anno.level());
+        builder.withTag(type);
+        builder.withTag(level);
         if (tags != null) {
             builder.withTags(tags);
         }
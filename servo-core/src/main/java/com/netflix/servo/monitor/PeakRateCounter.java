@@ -16,42 +16,93 @@
 package com.netflix.servo.monitor;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.util.Clock;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * The value is the maximum count per second within the specified interval.
+ * The value is the maximum rate per second within the specified interval. The rate is measured
+ * over short windows, one second by default, so the value shows bursts that would be hidden by
+ * the average rate over the whole polling interval. For example, with a window of 100
+ * milliseconds a burst of 50 increments within 100 milliseconds will be reported as a peak rate
+ * of 500 per second.
+ *
+ * <p>Counts are kept in a small ring of buckets, one per window. Incrementing is an atomic add
+ * to the bucket of the current window. Moving to the next window clears the bucket for it
+ * under a lock before any thread can add to it, so counts are not lost at window boundaries.
+ * The current window only moves forward: an increment with a time from an earlier window, from
+ * a thread that read the clock just before a boundary or a clock that stepped backwards, is
+ * added to the bucket of that window if it is still in the ring and dropped otherwise.
  */
 public class PeakRateCounter extends AbstractMonitor<Number>
         implements Counter {
 
+    /** Number of buckets in the ring, late updates for recent windows are kept separate. */
+    private static final int NUM_BUCKETS = 4;
+
     private final Clock clock;
+    private final long windowMs;
+
+    /** Count for each of the recent windows, indexed by window modulo the number of buckets. */
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    /** Index of the current window, i.e., the time divided by the window size. */
+    private volatile long currentWindow = Long.MIN_VALUE;
 
-    private final AtomicLong currentSecond = new AtomicLong();
-    private final AtomicLong currentCount = new AtomicLong();
+    private final StepLong peakCount;
 
     /**
      * Creates a counter implementation that records the maximum count per second
      * within a specific interval.
      */
     public PeakRateCounter(MonitorConfig config) {
-        this(config, Clock.WALL);
+        this(config, 1L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a counter implementation that records the maximum rate per second within a
+     * specific interval, measured over windows of the given size.
+     *
+     * @param config  configuration for the monitor
+     * @param window  size of the window used to measure the rate, e.g., 100 milliseconds
+     * @param unit    unit for the window size
+     */
+    public PeakRateCounter(MonitorConfig config, long window, TimeUnit unit) {
+        this(config, unit.toMillis(window), DefaultClock.get());
     }
 
-    private final StepLong peakRate;
     PeakRateCounter(MonitorConfig config, Clock clock) {
-        super(config.withAdditionalTag(DataSourceType.GAUGE));
+        this(config, TimeUnit.SECONDS.toMillis(1L), clock);
+    }
 
+    PeakRateCounter(MonitorConfig config, long windowMs, Clock clock) {
+        super(config.withAdditionalTag(DataSourceType.GAUGE));
+        Preconditions.checkArgument(windowMs > 0L, "window must be at least 1 millisecond");
         this.clock = clock;
-        this.peakRate = new StepLong(0L, clock);
+        this.windowMs = windowMs;
+        this.peakCount = new StepLong(StepLong.Operation.MAX, clock);
     }
 
-    /** {@inheritDoc} */
+    /** Returns the size of the window in milliseconds. */
+    public long getWindowMillis() {
+        return windowMs;
+    }
+
+    /**
+     * Returns the peak rate per second. For the default window of one second this is the peak
+     * count as a long, otherwise the count is scaled to a rate per second as a double.
+     */
     @Override
     public Number getValue(int pollerIdx) {
-        return peakRate.getCurrent(pollerIdx);
+        final long count = peakCount.getCurrent(pollerIdx);
+        if (windowMs == 1000L) {
+            return count;
+        } else {
+            return count * 1000.0 / windowMs;
+        }
     }
 
     /**
@@ -66,13 +117,15 @@ public class PeakRateCounter extends AbstractMonitor<Number>
             return false;
         }
         PeakRateCounter c = (PeakRateCounter) obj;
-        return config.equals(c.getConfig()) && getValue(0).doubleValue() == c.getValue(0).doubleValue();
+        return config.equals(c.getConfig())
+                && windowMs == c.windowMs
+                && getValue(0).doubleValue() == c.getValue(0).doubleValue();
     }
 
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        return Objects.hashCode(config, getValue(0).doubleValue());
+        return Objects.hashCode(config, windowMs, getValue(0).doubleValue());
     }
 
     /** {@inheritDoc} */
@@ -80,6 +133,7 @@ public class PeakRateCounter extends AbstractMonitor<Number>
     public String toString() {
         return Objects.toStringHelper(this)
                 .add("config", config)
+                .add("windowMs", windowMs)
                 .add("max rate per second", getValue())
                 .toString();
     }
@@ -90,33 +144,46 @@ public class PeakRateCounter extends AbstractMonitor<Number>
         increment(1L);
     }
 
-    private void updatePeakPoller(int idx, long v) {
-        AtomicLong current = peakRate.getCurrent(idx);
-        long m = current.get();
-        while (v > m) {
-            if (current.compareAndSet(m, v)) {
-                break;
-            }
-            m = current.get();
+    /** {@inheritDoc} */
+    @Override
+    public void increment(long amount) {
+        final long now = clock.now();
+        final long window = now / windowMs;
+        if (window > currentWindow) {
+            advance(window);
+        } else if (currentWindow - window >= NUM_BUCKETS) {
+            // the bucket for the window has already been reused
+            return;
         }
+        final long count = buckets.addAndGet(bucket(window), amount);
+        peakCount.update(now, count);
     }
 
-    private void updatePeak(long v) {
-        for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
-            updatePeakPoller(i, v);
-        }
+    private static int bucket(long window) {
+        return (int) (window & (NUM_BUCKETS - 1));
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public void increment(long amount) {
-        long now = clock.now() / 1000L;
-        if (now != currentSecond.get()) {
-            currentCount.set(0);
-            currentSecond.set(now);
+    /**
+     * Clear the bucket for a new window before making it the current window. Writers wait for
+     * this to complete so no increments for the new window are lost. This should only happen
+     * once per window so the lock is not a concern for writers.
+     */
+    private synchronized void advance(long window) {
+        final long current = currentWindow;
+        if (window <= current) {
+            return;
         }
-        long count = currentCount.addAndGet(amount);
-        updatePeak(count);
+        final boolean consecutive = current != Long.MIN_VALUE
+                && window - current < NUM_BUCKETS;
+        if (consecutive) {
+            for (long w = current + 1; w <= window; ++w) {
+                buckets.set(bucket(w), 0L);
+            }
+        } else {
+            for (int i = 0; i < NUM_BUCKETS; ++i) {
+                buckets.set(i, 0L);
+            }
+        }
+        currentWindow = window;
     }
 }
-
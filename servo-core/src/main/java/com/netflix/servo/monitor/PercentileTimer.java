@@ -0,0 +1,266 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.tag.Tag;
+import com.netflix.servo.tag.Tags;
+import com.netflix.servo.util.Clock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timer that keeps a histogram of all recorded times in log-linear buckets and publishes the
+ * count, total time and a set of percentiles for each polling interval. Unlike {@link StatsTimer}
+ * every recorded value is counted, so the percentiles are not biased towards recent values at high
+ * rates, and memory use is fixed regardless of the rate. Recording is constant time and lock-free.
+ *
+ * <p>The precision controls the number of linear sub-buckets per power of two. With a precision
+ * of {@code p} the relative error of a percentile is at most {@code 2^-p}, the default of
+ * {@value #DEFAULT_PRECISION} gives an error of about 3%. The percentiles are published with the
+ * same {@code statistic=percentile_NN} tags used by {@link StatsMonitor}.
+ *
+ * <p>Each timer keeps {@code (64 - p) * 2^p} buckets of 8 bytes in {@code 2 + N} arrays, where N
+ * is the number of pollers, so memory doubles with each step of precision. With the default
+ * two pollers:
+ * <table>
+ * <tr><th>precision</th><th>relative error</th><th>memory per timer</th></tr>
+ * <tr><td>3</td><td>12.5%</td><td>16 KB</td></tr>
+ * <tr><td>4</td><td>6.3%</td><td>30 KB</td></tr>
+ * <tr><td>5</td><td>3.1%</td><td>60 KB</td></tr>
+ * <tr><td>6</td><td>1.6%</td><td>119 KB</td></tr>
+ * <tr><td>7</td><td>0.8%</td><td>233 KB</td></tr>
+ * </table>
+ * Only use a higher precision for a small number of timers.
+ */
+public class PercentileTimer extends AbstractMonitor<Long>
+        implements Timer, CompositeMonitor<Long> {
+
+    /** Default number of bits used for the linear sub-buckets. */
+    public static final int DEFAULT_PRECISION = 5;
+
+    private static final double[] DEFAULT_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private static final String STATISTIC = "statistic";
+    private static final String UNIT = "unit";
+
+    private static final Tag STAT_TOTAL = Tags.newTag(STATISTIC, "totalTime");
+    private static final Tag STAT_COUNT = Tags.newTag(STATISTIC, "count");
+
+    private final TimeUnit timeUnit;
+    private final double timeUnitNanosFactor;
+    private final StepHistogram histogram;
+    private final List<Monitor<?>> monitors;
+
+    /** Base class for the sub-monitors that read from the histogram. */
+    private abstract class HistogramMonitor extends AbstractMonitor<Double>
+            implements NumericMonitor<Double> {
+        HistogramMonitor(MonitorConfig config) {
+            super(config.withAdditionalTag(DataSourceType.GAUGE));
+        }
+
+        @Override
+        public Double getValue(int pollerIndex) {
+            return getValue(histogram.getPrevious(pollerIndex), pollerIndex);
+        }
+
+        abstract double getValue(StepHistogram.Snapshot snapshot, int pollerIndex);
+    }
+
+    /** Rate per second for the count of recorded values. */
+    private final class CountMonitor extends HistogramMonitor {
+        CountMonitor(MonitorConfig config) {
+            super(config);
+        }
+
+        @Override
+        double getValue(StepHistogram.Snapshot snapshot, int pollerIndex) {
+            return snapshot.getCount() / stepSeconds(pollerIndex);
+        }
+    }
+
+    /** Rate per second for the total time. */
+    private final class TotalMonitor extends HistogramMonitor {
+        TotalMonitor(MonitorConfig config) {
+            super(config);
+        }
+
+        @Override
+        double getValue(StepHistogram.Snapshot snapshot, int pollerIndex) {
+            return snapshot.getTotal() * timeUnitNanosFactor / stepSeconds(pollerIndex);
+        }
+    }
+
+    /** Estimated percentile for the previous interval. */
+    private final class PercentileMonitor extends HistogramMonitor {
+        private final int index;
+
+        PercentileMonitor(MonitorConfig config, int index) {
+            super(config);
+            this.index = index;
+        }
+
+        @Override
+        double getValue(StepHistogram.Snapshot snapshot, int pollerIndex) {
+            return snapshot.getPercentileValue(index) * timeUnitNanosFactor;
+        }
+    }
+
+    private static double stepSeconds(int pollerIndex) {
+        return Pollers.POLLING_INTERVALS[pollerIndex] / 1000.0;
+    }
+
+    /**
+     * Creates a new instance of the timer with a unit of milliseconds.
+     */
+    public PercentileTimer(MonitorConfig config) {
+        this(config, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new instance of the timer using the default percentiles and precision.
+     */
+    public PercentileTimer(MonitorConfig config, TimeUnit unit) {
+        this(config, unit, DEFAULT_PERCENTILES, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new instance of the timer.
+     *
+     * @param config       base configuration for the timer
+     * @param unit         unit used for the published values
+     * @param percentiles  percentiles to publish, for example { 95.0, 99.0 }
+     * @param precision    number of bits for the linear sub-buckets, must be in the range [1, 7]
+     */
+    public PercentileTimer(MonitorConfig config, TimeUnit unit, double[] percentiles,
+                           int precision) {
+        this(config, unit, percentiles, precision, DefaultClock.get());
+    }
+
+    PercentileTimer(MonitorConfig config, TimeUnit unit, double[] percentiles, int precision,
+                    Clock clock) {
+        super(config);
+
+        final Tag unitTag = Tags.newTag(UNIT, unit.name());
+        final MonitorConfig unitConfig = config.withAdditionalTag(unitTag);
+        timeUnit = unit;
+        timeUnitNanosFactor = 1.0 / timeUnit.toNanos(1);
+        histogram = new StepHistogram(precision, percentiles, clock);
+
+        final ImmutableList.Builder<Monitor<?>> builder = ImmutableList.builder();
+        builder.add(new TotalMonitor(unitConfig.withAdditionalTag(STAT_TOTAL)));
+        builder.add(new CountMonitor(unitConfig.withAdditionalTag(STAT_COUNT)));
+        for (int i = 0; i < percentiles.length; ++i) {
+            final Tag tag = StatsMonitor.percentileTag(percentiles[i]);
+            builder.add(new PercentileMonitor(unitConfig.withAdditionalTag(tag), i));
+        }
+        monitors = builder.build();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Monitor<?>> getMonitors() {
+        return monitors;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Stopwatch start() {
+        Stopwatch s = new TimedStopwatch(this);
+        s.start();
+        return s;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Deprecated
+    public void record(long duration) {
+        histogram.record(timeUnit.toNanos(duration));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void record(long duration, TimeUnit unit) {
+        histogram.record(unit.toNanos(duration));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long getValue(int pollerIndex) {
+        final StepHistogram.Snapshot snapshot = histogram.getPrevious(pollerIndex);
+        final long cnt = snapshot.getCount();
+        return (cnt == 0) ? 0L : (long) (snapshot.getTotal() * timeUnitNanosFactor / cnt);
+    }
+
+    /** Get the number of updates during the previous interval for the given poller. */
+    public long getCount(int pollerIndex) {
+        return histogram.getPrevious(pollerIndex).getCount();
+    }
+
+    /**
+     * Get the estimated value for one of the configured percentiles during the previous
+     * interval for the given poller.
+     *
+     * @param pollerIndex  index of the poller
+     * @param index        position of the percentile in the array passed to the constructor
+     */
+    public double getPercentile(int pollerIndex, int index) {
+        return histogram.getPrevious(pollerIndex).getPercentileValue(index) * timeUnitNanosFactor;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || !(obj instanceof PercentileTimer)) {
+            return false;
+        }
+        PercentileTimer m = (PercentileTimer) obj;
+        return config.equals(m.getConfig())
+                && timeUnit == m.timeUnit
+                && histogram.getPrecision() == m.histogram.getPrecision()
+                && Arrays.equals(histogram.getPercentiles(), m.histogram.getPercentiles());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(config, timeUnit, histogram.getPrecision(),
+                Arrays.hashCode(histogram.getPercentiles()));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("config", config)
+                .add("timeUnit", timeUnit)
+                .add("histogram", histogram)
+                .toString();
+    }
+}
@@ -33,6 +33,7 @@ import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.servo.stats.RecordingBuffer;
 import com.netflix.servo.stats.StatsBuffer;
 import com.netflix.servo.stats.StatsConfig;
 import com.netflix.servo.tag.BasicTagList;
@@ -62,9 +63,11 @@ public class StatsMonitor extends AbstractMonitor<Long> implements CompositeMoni
     private final List<GaugeWrapper> gaugeWrappers;
     private final Runnable startComputingAction;
 
-    private final Object updateLock = new Object();
-    private StatsBuffer cur;
-    private StatsBuffer prev;
+    /** Written by all threads calling record, drained by the thread computing the stats. */
+    private final RecordingBuffer cur;
+
+    /** Only accessed by the thread computing the stats. */
+    private final StatsBuffer prev;
 
     private static final String STATISTIC = "statistic";
     private static final String PERCENTILE_FMT = "percentile_%.2f";
@@ -199,19 +202,23 @@ public class StatsMonitor extends AbstractMonitor<Long> implements CompositeMoni
         }
     }
 
+    /**
+     * Returns the statistic tag used for a percentile, for example {@code statistic=percentile_99}
+     * or {@code statistic=percentile_99.90}.
+     */
+    static Tag percentileTag(double percentile) {
+        String percentileStr = String.format(PERCENTILE_FMT, percentile);
+        if (percentileStr.endsWith(".00")) {
+            percentileStr = percentileStr.substring(0, percentileStr.length() - 3);
+        }
+
+        return Tags.newTag(STATISTIC, percentileStr);
+    }
+
     private static class PercentileGaugeWrapper extends DoubleGaugeWrapper {
         private final double percentile;
         private final int index;
 
-        private static Tag percentileTag(double percentile) {
-            String percentileStr = String.format(PERCENTILE_FMT, percentile);
-            if (percentileStr.endsWith(".00")) {
-                percentileStr = percentileStr.substring(0, percentileStr.length() - 3);
-            }
-
-            return Tags.newTag(STATISTIC, percentileStr);
-        }
-
         PercentileGaugeWrapper(MonitorConfig baseConfig, double percentile, int index) {
             super(baseConfig.withAdditionalTag(percentileTag(percentile)));
             this.percentile = percentile;
@@ -293,7 +300,7 @@ public class StatsMonitor extends AbstractMonitor<Long> implements CompositeMoni
         final Tag statsTotal = Tags.newTag(STATISTIC, totalTagName);
         TagList additionalTagList = new BasicTagList(Arrays.asList(additionalTags));
         this.baseConfig = config.withAdditionalTags(additionalTagList);
-        this.cur = new StatsBuffer(statsConfig.getSampleSize(), statsConfig.getPercentiles());
+        this.cur = new RecordingBuffer(statsConfig.getSampleSize());
         this.prev = new StatsBuffer(statsConfig.getSampleSize(), statsConfig.getPercentiles());
         this.count = new BasicCounter(baseConfig.withAdditionalTag(STAT_COUNT));
         this.totalMeasurement = new BasicCounter(baseConfig.withAdditionalTag(statsTotal));
@@ -327,14 +334,7 @@ public class StatsMonitor extends AbstractMonitor<Long> implements CompositeMoni
             @Override
             public void run() {
                 try {
-                    synchronized (updateLock) {
-                        final StatsBuffer tmp = prev;
-                        prev = cur;
-                        cur = tmp;
-                    }
-                    prev.computeStats();
-                    updateGauges();
-                    prev.reset();
+                    computeStats();
                 } catch (Exception e) {
                     handleException(e);
                 }
@@ -344,6 +344,17 @@ public class StatsMonitor extends AbstractMonitor<Long> implements CompositeMoni
         executor.scheduleWithFixedDelay(command, frequencyMillis, frequencyMillis, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Compute the stats for the values recorded since the last computation and update the gauges.
+     * This is normally called by the executor every compute period.
+     */
+    synchronized void computeStats() {
+        cur.drainTo(prev);
+        prev.computeStats();
+        updateGauges();
+        prev.reset();
+    }
+
     private void updateGauges() {
         for (GaugeWrapper gauge: gaugeWrappers) {
             gauge.update(prev);
@@ -358,9 +369,7 @@ public class StatsMonitor extends AbstractMonitor<Long> implements CompositeMoni
 
     /** Record the measurement we want to perform statistics on */
     public void record(long measurement) {
-        synchronized(updateLock) {
-            cur.record(measurement);
-        }
+        cur.record(measurement);
         count.increment();
         totalMeasurement.increment(measurement);
     }
@@ -20,18 +20,18 @@ import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.util.Clock;
 
 /**
- * A simple counter implementation backed by a StepLong. The value returned is a rate for the
+ * A simple counter implementation backed by a StepLongAdder. The value returned is a rate for the
  * previous interval as defined by the step.
  */
 public class StepCounter extends AbstractMonitor<Number> implements Counter {
 
-    private final StepLong count;
+    private final StepLongAdder count;
 
     /**
      * Creates a new instance of the counter.
      */
     public StepCounter(MonitorConfig config) {
-        this(config, Clock.WALL);
+        this(config, DefaultClock.get());
     }
 
     /**
@@ -42,7 +42,7 @@ public class StepCounter extends AbstractMonitor<Number> implements Counter {
         // expected for type=COUNTER. This class looks like a counter to the user and a gauge to
         // the publishing pipeline receiving the value.
         super(config.withAdditionalTag(DataSourceType.GAUGE));
-        count = new StepLong(0L, clock);
+        count = new StepLongAdder(clock);
     }
 
     /**
@@ -50,7 +50,7 @@ public class StepCounter extends AbstractMonitor<Number> implements Counter {
      */
     @Override
     public void increment() {
-        count.addAndGet(1L);
+        count.add(1L);
     }
 
     /**
@@ -59,7 +59,7 @@ public class StepCounter extends AbstractMonitor<Number> implements Counter {
     @Override
     public void increment(long amount) {
         if (amount > 0L) {
-            count.addAndGet(amount);
+            count.add(amount);
         }
     }
 
@@ -78,7 +78,7 @@ public class StepCounter extends AbstractMonitor<Number> implements Counter {
     }
 
     long getCurrentCount(int pollerIndex) {
-        return count.getCurrent(pollerIndex).get();
+        return count.getCurrent(pollerIndex);
     }
 
     /**
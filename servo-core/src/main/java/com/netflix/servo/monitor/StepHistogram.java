@@ -0,0 +1,269 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.google.common.base.Preconditions;
+import com.netflix.servo.jsr166e.LongAdder;
+import com.netflix.servo.util.Clock;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Histogram of non-negative long values using log-linear buckets, tracked over the step intervals
+ * configured in {@link Pollers}. Each power of two is split into {@code 2^precision} linear
+ * sub-buckets so the relative error of an estimated value is at most {@code 2^-precision}, and
+ * values smaller than {@code 2^precision} are counted exactly. Recording a value is a constant
+ * time index computation and one atomic increment.
+ *
+ * <p>Like {@link StepLongAdder} the bucket counts only ever increase. When a step boundary is
+ * crossed the counts are compared with the snapshot taken at the previous boundary to produce a
+ * {@link Snapshot} with the count, total and requested percentiles for the interval that just
+ * completed.
+ */
+class StepHistogram extends StepSegment {
+
+    /**
+     * Max supported precision for a histogram, 2^7 sub-buckets gives a relative error of about
+     * 0.8%. The memory use doubles with each step, see {@link #memoryBytes(int)}.
+     */
+    static final int MAX_PRECISION = 7;
+
+    /**
+     * Max precision for the static bucket functions. Layouts that only cover values up to a
+     * given max, such as {@link BucketConfig}, do not need all of the buckets so can use a
+     * higher precision than a histogram.
+     */
+    static final int MAX_LAYOUT_PRECISION = 10;
+
+    /** Summary of the values recorded during a step interval. */
+    static final class Snapshot {
+        private final long count;
+        private final long total;
+        private final double[] percentileValues;
+
+        Snapshot(long count, long total, double[] percentileValues) {
+            this.count = count;
+            this.total = total;
+            this.percentileValues = percentileValues;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        double getPercentileValue(int i) {
+            return percentileValues[i];
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{count=" + count
+                    + ", total=" + total
+                    + ", percentileValues=" + Arrays.toString(percentileValues)
+                    + '}';
+        }
+    }
+
+    private final int precision;
+    private final double[] percentiles;
+    private final Clock clock;
+
+    private final AtomicLongArray counts;
+    private final LongAdder total = new LongAdder();
+
+    /** Copy of the counts when rolling, only used with the lock held. */
+    private final long[] rollCounts;
+
+    private final long[][] stepStartCounts;
+    private final long[] stepStartTotal;
+    private final AtomicReferenceArray<Snapshot> previous;
+
+    /** Total while rolling, only used with the lock held. */
+    private long rollTotal;
+
+    /** True if {@link #rollCounts} has been filled for the current roll. */
+    private boolean rollCopied;
+
+    StepHistogram(int precision, double[] percentiles, Clock clock) {
+        Preconditions.checkArgument(precision > 0 && precision <= MAX_PRECISION,
+                "precision must be in the range [1, %s]", MAX_PRECISION);
+        for (double p : percentiles) {
+            Preconditions.checkArgument(p > 0.0 && p <= 100.0, // SUPPRESS CHECKSTYLE MagicNumber
+                    "percentiles must be in the interval (0.0, 100.0]");
+        }
+        this.precision = precision;
+        this.percentiles = Arrays.copyOf(percentiles, percentiles.length);
+        this.clock = clock;
+
+        final int numBuckets = numBuckets(precision);
+        counts = new AtomicLongArray(numBuckets);
+        rollCounts = new long[numBuckets];
+        stepStartCounts = new long[Pollers.NUM_POLLERS][numBuckets];
+        stepStartTotal = new long[Pollers.NUM_POLLERS];
+        previous = new AtomicReferenceArray<Snapshot>(Pollers.NUM_POLLERS);
+        final Snapshot empty = new Snapshot(0L, 0L, new double[percentiles.length]);
+        for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
+            previous.set(i, empty);
+        }
+    }
+
+    /** Number of buckets needed to cover all non-negative long values. */
+    static int numBuckets(int precision) {
+        return (Long.SIZE - precision) << precision;
+    }
+
+    /**
+     * Approximate number of bytes used by the bucket arrays for a precision: the live counts,
+     * a copy used when rolling to the next step, and the counts at the start of the step for
+     * each poller.
+     */
+    static long memoryBytes(int precision) {
+        return (2L + Pollers.NUM_POLLERS) * numBuckets(precision) * (Long.SIZE / Byte.SIZE);
+    }
+
+    /** Index of the bucket for a non-negative value. */
+    static int bucketIndex(long v, int precision) {
+        if (v < (1L << precision)) {
+            return (int) v;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(v) - precision;
+        return (shift << precision) + (int) (v >>> shift);
+    }
+
+    /** Smallest value that maps to the bucket. */
+    static long bucketLowerBound(int idx, int precision) {
+        if (idx < (1 << precision)) {
+            return idx;
+        }
+        final int shift = (idx >>> precision) - 1;
+        return (long) (idx - (shift << precision)) << shift;
+    }
+
+    /** Smallest value that maps to the next bucket, i.e., the exclusive upper bound. */
+    static long bucketUpperBound(int idx, int precision) {
+        return (idx + 1 == numBuckets(precision))
+                ? Long.MAX_VALUE
+                : bucketLowerBound(idx + 1, precision);
+    }
+
+    /** Number of bits used for the linear sub-buckets. */
+    int getPrecision() {
+        return precision;
+    }
+
+    /** Get the percentiles that are computed for each interval. Callers must not modify. */
+    double[] getPercentiles() {
+        return percentiles;
+    }
+
+    /** Record a value, negative values are ignored. */
+    void record(long v) {
+        if (v >= 0L) {
+            checkSegment(clock.now());
+            counts.incrementAndGet(bucketIndex(v, precision));
+            total.add(v);
+        }
+    }
+
+    /** Get the summary for the last completed interval of the given poller. */
+    Snapshot getPrevious(int pollerIndex) {
+        checkSegment(clock.now());
+        return previous.get(pollerIndex);
+    }
+
+    /**
+     * Compute the snapshot for each poller that has crossed a step boundary. This should only
+     * happen once for each step boundary so the lock is not a concern for writers. The counts
+     * are only copied if at least one poller moved to a new step.
+     */
+    @Override
+    void startRoll() {
+        rollCopied = false;
+    }
+
+    @Override
+    void startStep(int pollerIndex, boolean consecutive) {
+        final long[] current = rollCounts;
+        if (!rollCopied) {
+            rollTotal = total.sum();
+            for (int j = 0; j < current.length; ++j) {
+                current[j] = counts.get(j);
+            }
+            rollCopied = true;
+        }
+        final long[] startCounts = stepStartCounts[pollerIndex];
+        previous.set(pollerIndex, consecutive
+                ? newSnapshot(startCounts, current, rollTotal - stepStartTotal[pollerIndex])
+                : new Snapshot(0L, 0L, new double[percentiles.length]));
+        System.arraycopy(current, 0, startCounts, 0, current.length);
+        stepStartTotal[pollerIndex] = rollTotal;
+    }
+
+    private Snapshot newSnapshot(long[] startCounts, long[] endCounts, long intervalTotal) {
+        long n = 0L;
+        for (int j = 0; j < endCounts.length; ++j) {
+            n += endCounts[j] - startCounts[j];
+        }
+
+        final double[] values = new double[percentiles.length];
+        if (n > 0L) {
+            for (int i = 0; i < percentiles.length; ++i) {
+                values[i] = estimate(startCounts, endCounts, n, percentiles[i]);
+            }
+        }
+        return new Snapshot(n, intervalTotal, values);
+    }
+
+    /**
+     * Estimate the value for a percentile by finding the bucket containing the rank and
+     * interpolating linearly within that bucket.
+     */
+    private double estimate(long[] startCounts, long[] endCounts, long n, double percent) {
+        final double rank = percent * n / 100.0; // SUPPRESS CHECKSTYLE MagicNumber
+        long seen = 0L;
+        int last = 0;
+        for (int j = 0; j < endCounts.length; ++j) {
+            final long c = endCounts[j] - startCounts[j];
+            if (c == 0L) {
+                continue;
+            }
+            last = j;
+            if (seen + c >= rank) {
+                final double lower = bucketLowerBound(j, precision);
+                final double upper = bucketUpperBound(j, precision) - 1L;
+                return lower + (upper - lower) * (rank - seen) / c;
+            }
+            seen += c;
+        }
+        return bucketUpperBound(last, precision) - 1L;
+    }
+
+    @Override
+    public String toString() {
+        return "StepHistogram{" +
+                "precision=" + precision +
+                ", percentiles=" + Arrays.toString(percentiles) +
+                ", total=" + total +
+                ", previous=" + previous +
+                '}';
+    }
+}
@@ -15,108 +15,128 @@
  */
 package com.netflix.servo.monitor;
 
-import com.netflix.servo.DefaultMonitorRegistry;
 import com.netflix.servo.util.Clock;
 
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Utility class for managing a set of AtomicLong instances mapped to a particular step interval.
- * The current implementation keeps an array of with two items where one is the current value
- * being updated and the other is the value from the previous interval and is only available for
- * polling.
+ * Utility class for tracking the max or min of a value over the current step interval of each
+ * poller. Updates go to a single segment value that covers the span of time where no poller
+ * crosses a step boundary. When a boundary is crossed the segment is folded into the value of
+ * each poller, so an update is one clock read and at most one atomic update regardless of the
+ * number of pollers that are configured. See {@link StepSegment} for updates with a stale time.
  */
-class StepLong {
+class StepLong extends StepSegment {
+
+    /** How values are combined. */
+    enum Operation {
+        /** Keep the largest value seen, the reset value is 0. */
+        MAX(0L) {
+            long combine(long a, long b) {
+                return Math.max(a, b);
+            }
+        },
+
+        /** Keep the smallest value seen, the reset value is Long.MAX_VALUE. */
+        MIN(Long.MAX_VALUE) {
+            long combine(long a, long b) {
+                return Math.min(a, b);
+            }
+        };
+
+        private final long init;
+
+        Operation(long init) {
+            this.init = init;
+        }
 
-    private static final Counter REPOLLED_INTERVALS = newCounter("servo.monitor.repolledIntervals");
-    private static final Counter POLLED_INTERVALS = newCounter("servo.monitor.polledIntervals");
-    private static final Counter MISSED_INTERVALS = newCounter("servo.monitor.missedIntervals");
+        abstract long combine(long a, long b);
+
+        /** Atomically combine the value with the current value of the reference. */
+        void update(AtomicLong ref, long v) {
+            long m = ref.get();
+            long n = combine(m, v);
+            while (n != m) {
+                if (ref.compareAndSet(m, n)) {
+                    break;
+                }
+                m = ref.get();
+                n = combine(m, v);
+            }
+        }
 
-    private static Counter newCounter(String name) {
-        Counter c = Monitors.newCounter(name);
-        DefaultMonitorRegistry.getInstance().register(c);
-        return c;
+        /** Value used when no updates have been received. */
+        long getInit() {
+            return init;
+        }
     }
 
-    private final long init;
+    private final Operation op;
     private final Clock clock;
 
-    private final AtomicLong[] data;
+    /** Value for the current segment, updated by all writers. */
+    private final AtomicLong segment;
 
-    private final AtomicLong[] lastPollTime;
+    /** Value for the completed segments of the current interval of each poller. */
+    private final AtomicLong[] data;
 
-    private final AtomicLong[] lastInitPos;
+    /** Value of the last segment while rolling, only used with the lock held. */
+    private long rollValue;
 
-    StepLong(long init, Clock clock) {
-        this.init = init;
+    StepLong(Operation op, Clock clock) {
+        this.op = op;
         this.clock = clock;
-        lastInitPos = new AtomicLong[Pollers.NUM_POLLERS];
-        lastPollTime = new AtomicLong[Pollers.NUM_POLLERS];
+        segment = new AtomicLong(op.init);
+        data = new AtomicLong[Pollers.NUM_POLLERS];
         for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
-            lastInitPos[i] = new AtomicLong(0L);
-            lastPollTime[i] = new AtomicLong(0L);
-        }
-        data = new AtomicLong[2 * Pollers.NUM_POLLERS];
-        for (int i = 0; i < data.length; ++i) {
-            data[i] = new AtomicLong(init);
+            data[i] = new AtomicLong(op.init);
         }
     }
 
-    void addAndGet(long amount) {
-        for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
-            int pos = getIndex(i);
-            data[pos].addAndGet(amount);
-        }
+    /** Combine the value with the value for the current interval of all pollers. */
+    void update(long v) {
+        update(clock.now(), v);
     }
 
-    private int getIndex(int pollerIndex) {
-        final long now = clock.now();
-        final long step = Pollers.POLLING_INTERVALS[pollerIndex];
-        final long stepTime = now / step;
-        final int pos = 2 * pollerIndex + (int) (stepTime % 2);
-        final long v = data[pos].get();
-        final long lastInit = lastInitPos[pollerIndex].get();
-        if (lastInit != stepTime && lastInitPos[pollerIndex].compareAndSet(lastInit, stepTime)) {
-            data[pos].compareAndSet(v, init);
-        }
-        return pos;
+    /** Same as {@link #update(long)} for callers that have already read the clock. */
+    void update(long now, long v) {
+        checkSegment(now);
+        op.update(segment, v);
     }
 
-    AtomicLong getCurrent(int pollerIndex) {
-        return data[getIndex(pollerIndex)];
+    /** Get the value for the current interval of a given poller. */
+    long getCurrent(int pollerIndex) {
+        checkSegment(clock.now());
+        return op.combine(data[pollerIndex].get(), segment.get());
     }
 
-    Datapoint poll(int pollerIndex) {
-        final long now = clock.now();
-        final long step = Pollers.POLLING_INTERVALS[pollerIndex];
-        final long stepTime = now / step;
-        final int prevPos = 2 * pollerIndex + (int) ((stepTime + 1) % 2);
-        final long value = data[prevPos].getAndSet(init);
-
-        final long last = lastPollTime[pollerIndex].getAndSet(now);
-        final long missed = (now - last) / step - 1;
-
-        if (last / step == now / step) {
-            REPOLLED_INTERVALS.increment();
-            return new Datapoint(now / step * step, value);
-        } else if (last > 0L && missed > 0L) {
-            MISSED_INTERVALS.increment(missed);
-            return Datapoint.UNKNOWN;
-        } else {
-            POLLED_INTERVALS.increment();
-            return new Datapoint(now / step * step, value);
-        }
+    /**
+     * Fold the last segment into the value of each poller that is still in the same interval,
+     * pollers that have moved to a new interval are reset.
+     */
+    @Override
+    void startRoll() {
+        rollValue = segment.getAndSet(op.init);
+    }
+
+    @Override
+    void startStep(int pollerIndex, boolean consecutive) {
+        data[pollerIndex].set(op.init);
+    }
+
+    @Override
+    void continueStep(int pollerIndex) {
+        data[pollerIndex].set(op.combine(data[pollerIndex].get(), rollValue));
     }
 
     @Override
     public String toString() {
         return "StepLong{" +
-                "init=" + init +
+                "op=" + op +
+                ", segment=" + segment +
                 ", data=" + Arrays.toString(data) +
-                ", lastPollTime=" + Arrays.toString(lastPollTime) +
-                ", lastInitPos=" + Arrays.toString(lastInitPos) +
+                ", currentStep=" + currentStepString() +
                 '}';
     }
 }
-
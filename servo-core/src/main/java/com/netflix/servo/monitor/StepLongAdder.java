@@ -0,0 +1,136 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.DefaultMonitorRegistry;
+import com.netflix.servo.jsr166e.LongAdder;
+import com.netflix.servo.util.Clock;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Utility class for tracking a count over the step intervals configured in {@link Pollers}. All
+ * updates go to a single monotonically increasing {@link LongAdder} so that contended increments
+ * do not fight over one cache line. For each poller the total is snapshotted when a step boundary
+ * is crossed and the count for an interval is the difference between two snapshots. The cost of
+ * an update is one clock read, a range check and an add regardless of the number of pollers.
+ */
+class StepLongAdder extends StepSegment {
+
+    private static final Counter REPOLLED_INTERVALS = newCounter("servo.monitor.repolledIntervals");
+    private static final Counter POLLED_INTERVALS = newCounter("servo.monitor.polledIntervals");
+    private static final Counter MISSED_INTERVALS = newCounter("servo.monitor.missedIntervals");
+
+    private static Counter newCounter(String name) {
+        Counter c = Monitors.newCounter(name);
+        DefaultMonitorRegistry.getInstance().register(c);
+        return c;
+    }
+
+    private final Clock clock;
+
+    private final LongAdder total = new LongAdder();
+
+    /** Value of {@link #total} at the start of the current interval for each poller. */
+    private final AtomicLong[] stepStart;
+
+    /** Count for the last completed interval for each poller. */
+    private final AtomicLong[] previous;
+
+    private final AtomicLong[] lastPollTime;
+
+    /** Value of {@link #total} while rolling, only used with the lock held. */
+    private long rollSum;
+
+    StepLongAdder(Clock clock) {
+        this.clock = clock;
+        stepStart = new AtomicLong[Pollers.NUM_POLLERS];
+        previous = new AtomicLong[Pollers.NUM_POLLERS];
+        lastPollTime = new AtomicLong[Pollers.NUM_POLLERS];
+        for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
+            stepStart[i] = new AtomicLong(0L);
+            previous[i] = new AtomicLong(0L);
+            lastPollTime[i] = new AtomicLong(0L);
+        }
+    }
+
+    void add(long amount) {
+        checkSegment(clock.now());
+        total.add(amount);
+    }
+
+    /**
+     * Snapshot the total for each poller that has crossed a step boundary. This should only
+     * happen once for each step boundary so the lock is not a concern for writers.
+     */
+    @Override
+    void startRoll() {
+        rollSum = total.sum();
+    }
+
+    @Override
+    void startStep(int pollerIndex, boolean consecutive) {
+        final long prevStart = stepStart[pollerIndex].getAndSet(rollSum);
+        previous[pollerIndex].set(consecutive ? rollSum - prevStart : 0L);
+    }
+
+    long getCurrent(int pollerIndex) {
+        checkSegment(clock.now());
+        return total.sum() - stepStart[pollerIndex].get();
+    }
+
+    Datapoint poll(int pollerIndex) {
+        final long now = clock.now();
+        checkSegment(now);
+        return poll(now, pollerIndex, previous[pollerIndex], lastPollTime[pollerIndex]);
+    }
+
+    /**
+     * Take the value for the last completed interval and check if any intervals were missed
+     * since the last poll. Also used by other classes that track counts for the pollers.
+     */
+    static Datapoint poll(long now, int pollerIndex, AtomicLong previous,
+                          AtomicLong lastPollTime) {
+        final long step = Pollers.POLLING_INTERVALS[pollerIndex];
+        final long value = previous.getAndSet(0L);
+
+        final long last = lastPollTime.getAndSet(now);
+        final long missed = (now - last) / step - 1;
+
+        if (last / step == now / step) {
+            REPOLLED_INTERVALS.increment();
+            return new Datapoint(now / step * step, value);
+        } else if (last > 0L && missed > 0L) {
+            MISSED_INTERVALS.increment(missed);
+            return Datapoint.UNKNOWN;
+        } else {
+            POLLED_INTERVALS.increment();
+            return new Datapoint(now / step * step, value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StepLongAdder{" +
+                "total=" + total +
+                ", currentStep=" + currentStepString() +
+                ", stepStart=" + Arrays.toString(stepStart) +
+                ", previous=" + Arrays.toString(previous) +
+                ", lastPollTime=" + Arrays.toString(lastPollTime) +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import java.util.Arrays;
+
+/**
+ * Base class for values tracked over the step intervals configured in {@link Pollers}. Writers
+ * only need to check that the time is before the end of the current segment, the span of time
+ * where no poller crosses a step boundary. When the end is reached the segment is rolled once
+ * under a lock and subclasses are told which pollers moved to a new step.
+ *
+ * <p>The segment only ever moves forward. A writer that read the clock before another thread
+ * rolled will see a time before the start of the current segment and its update is applied to
+ * the current segment, it will never move the window back and reset the completed intervals.
+ */
+abstract class StepSegment {
+
+    /** Step index of the current interval of each poller, only used with the lock held. */
+    private final long[] currentStep = new long[Pollers.NUM_POLLERS];
+
+    /** End of the current segment, i.e., the next step boundary of any poller. */
+    private volatile long segmentEnd = Long.MIN_VALUE;
+
+    /** Roll the segment if the time is at or past the end of the current segment. */
+    final void checkSegment(long now) {
+        if (now >= segmentEnd) {
+            roll(now);
+        }
+    }
+
+    private synchronized void roll(long now) {
+        if (now < segmentEnd) {
+            return;
+        }
+        startRoll();
+        long end = Long.MAX_VALUE;
+        for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
+            final long step = Pollers.POLLING_INTERVALS[i];
+            final long stepTime = now / step;
+            final long last = currentStep[i];
+            if (last != stepTime) {
+                startStep(i, stepTime == last + 1);
+                currentStep[i] = stepTime;
+            } else {
+                continueStep(i);
+            }
+            end = Math.min(end, stepTime * step + step);
+        }
+        segmentEnd = end;
+    }
+
+    /** Called with the lock held before the pollers are checked for a roll. */
+    abstract void startRoll();
+
+    /**
+     * Called with the lock held for a poller that moved to a new step. If consecutive is false
+     * one or more steps were skipped and the values for the last step should not be reported.
+     */
+    abstract void startStep(int pollerIndex, boolean consecutive);
+
+    /** Called with the lock held for a poller that is still in the same step. */
+    void continueStep(int pollerIndex) {
+    }
+
+    /** Step indices of the current interval of each poller, for use in toString. */
+    synchronized String currentStepString() {
+        return Arrays.toString(currentStep);
+    }
+}
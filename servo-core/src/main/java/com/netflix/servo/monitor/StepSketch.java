@@ -0,0 +1,138 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.jsr166e.LongAdder;
+import com.netflix.servo.stats.QuantileSketch;
+import com.netflix.servo.util.Clock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tracks a {@link QuantileSketch} over the step intervals configured in {@link Pollers}. The
+ * bucket counts are kept in a fixed size array of atomic longs so recording is lock-free and the
+ * memory use does not depend on the number of values. Like {@link StepHistogram} the counts only
+ * ever increase and the sketch for an interval is computed from the difference with the counts
+ * at the previous step boundary.
+ */
+class StepSketch extends StepSegment {
+
+    private final double relativeAccuracy;
+    private final Clock clock;
+
+    /** Only used to map values to buckets, never updated. */
+    private final QuantileSketch.Builder mapping;
+
+    private final AtomicLongArray counts;
+    private final LongAdder total = new LongAdder();
+
+    /** Copy of the counts when rolling, only used with the lock held. */
+    private final long[] rollCounts;
+
+    private final long[][] stepStartCounts;
+    private final long[] stepStartTotal;
+    private final AtomicReferenceArray<QuantileSketch> previous;
+
+    /** Total while rolling, only used with the lock held. */
+    private long rollTotal;
+
+    /** True if {@link #rollCounts} has been filled for the current roll. */
+    private boolean rollCopied;
+
+    StepSketch(double relativeAccuracy, Clock clock) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.clock = clock;
+        mapping = new QuantileSketch.Builder(relativeAccuracy);
+
+        final int numBuckets = mapping.numBuckets();
+        counts = new AtomicLongArray(numBuckets);
+        rollCounts = new long[numBuckets];
+        stepStartCounts = new long[Pollers.NUM_POLLERS][numBuckets];
+        stepStartTotal = new long[Pollers.NUM_POLLERS];
+        previous = new AtomicReferenceArray<QuantileSketch>(Pollers.NUM_POLLERS);
+        final QuantileSketch empty = QuantileSketch.empty(relativeAccuracy);
+        for (int i = 0; i < Pollers.NUM_POLLERS; ++i) {
+            previous.set(i, empty);
+        }
+    }
+
+    double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /** Record a value, negative values are ignored. */
+    void record(long v) {
+        if (v >= 0L) {
+            checkSegment(clock.now());
+            counts.incrementAndGet(mapping.bucketIndex(v));
+            total.add(v);
+        }
+    }
+
+    /** Get the sketch for the last completed interval of the given poller. */
+    QuantileSketch getPrevious(int pollerIndex) {
+        checkSegment(clock.now());
+        return previous.get(pollerIndex);
+    }
+
+    /**
+     * Compute the sketch for each poller that has crossed a step boundary. This should only
+     * happen once for each step boundary so the lock is not a concern for writers.
+     */
+    @Override
+    void startRoll() {
+        rollCopied = false;
+    }
+
+    @Override
+    void startStep(int pollerIndex, boolean consecutive) {
+        final long[] current = rollCounts;
+        if (!rollCopied) {
+            rollTotal = total.sum();
+            for (int j = 0; j < current.length; ++j) {
+                current[j] = counts.get(j);
+            }
+            rollCopied = true;
+        }
+        final long[] startCounts = stepStartCounts[pollerIndex];
+        previous.set(pollerIndex, consecutive
+                ? newSketch(startCounts, current, rollTotal - stepStartTotal[pollerIndex])
+                : QuantileSketch.empty(relativeAccuracy));
+        System.arraycopy(current, 0, startCounts, 0, current.length);
+        stepStartTotal[pollerIndex] = rollTotal;
+    }
+
+    private QuantileSketch newSketch(long[] startCounts, long[] endCounts, long intervalTotal) {
+        final QuantileSketch.Builder builder = new QuantileSketch.Builder(relativeAccuracy);
+        for (int j = 0; j < endCounts.length; ++j) {
+            final long c = endCounts[j] - startCounts[j];
+            if (c != 0L) {
+                builder.addBucket(j, c);
+            }
+        }
+        return builder.addTotal(intervalTotal).build();
+    }
+
+    @Override
+    public String toString() {
+        return "StepSketch{" +
+                "relativeAccuracy=" + relativeAccuracy +
+                ", total=" + total +
+                ", previous=" + previous +
+                '}';
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.jsr166e.LongAdder;
+import com.netflix.servo.util.Clock;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the count, total, min and max of a set of values over the step intervals configured in
+ * {@link Pollers}. This combines {@link StepLongAdder} for the count and total and
+ * {@link StepLong} for the min and max so that recording a value does a single clock read and
+ * segment check instead of one for each statistic.
+ */
+class StepStats extends StepSegment {
+
+    private static final StepLong.Operation MIN = StepLong.Operation.MIN;
+    private static final StepLong.Operation MAX = StepLong.Operation.MAX;
+
+    private final Clock clock;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong segmentMin = new AtomicLong(MIN.getInit());
+    private final AtomicLong segmentMax = new AtomicLong(MAX.getInit());
+
+    private final AtomicLong[] countStart;
+    private final AtomicLong[] totalStart;
+    private final AtomicLong[] previousCount;
+    private final AtomicLong[] previousTotal;
+    private final AtomicLong[] lastCountPollTime;
+    private final AtomicLong[] lastTotalPollTime;
+
+    /** Min and max for the completed segments of the current interval of each poller. */
+    private final AtomicLong[] min;
+    private final AtomicLong[] max;
+
+    /** Values of the last segment while rolling, only used with the lock held. */
+    private long rollCount;
+    private long rollTotal;
+    private long rollMin;
+    private long rollMax;
+
+    StepStats(Clock clock) {
+        this.clock = clock;
+        countStart = newArray(0L);
+        totalStart = newArray(0L);
+        previousCount = newArray(0L);
+        previousTotal = newArray(0L);
+        lastCountPollTime = newArray(0L);
+        lastTotalPollTime = newArray(0L);
+        min = newArray(MIN.getInit());
+        max = newArray(MAX.getInit());
+    }
+
+    private static AtomicLong[] newArray(long init) {
+        final AtomicLong[] values = new AtomicLong[Pollers.NUM_POLLERS];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = new AtomicLong(init);
+        }
+        return values;
+    }
+
+    /** Record a value, it will be included in the statistics for all pollers. */
+    void record(long v) {
+        checkSegment(clock.now());
+        count.increment();
+        total.add(v);
+        MIN.update(segmentMin, v);
+        MAX.update(segmentMax, v);
+    }
+
+    /**
+     * Snapshot the count and total and reset the min and max for each poller that has crossed a
+     * step boundary, and fold the min and max of the last segment into the other pollers. This
+     * should only happen once for each step boundary so the lock is not a concern for writers.
+     */
+    @Override
+    void startRoll() {
+        rollCount = count.sum();
+        rollTotal = total.sum();
+        rollMin = segmentMin.getAndSet(MIN.getInit());
+        rollMax = segmentMax.getAndSet(MAX.getInit());
+    }
+
+    @Override
+    void startStep(int pollerIndex, boolean consecutive) {
+        final long prevCount = countStart[pollerIndex].getAndSet(rollCount);
+        final long prevTotal = totalStart[pollerIndex].getAndSet(rollTotal);
+        previousCount[pollerIndex].set(consecutive ? rollCount - prevCount : 0L);
+        previousTotal[pollerIndex].set(consecutive ? rollTotal - prevTotal : 0L);
+        min[pollerIndex].set(MIN.getInit());
+        max[pollerIndex].set(MAX.getInit());
+    }
+
+    @Override
+    void continueStep(int pollerIndex) {
+        min[pollerIndex].set(MIN.combine(min[pollerIndex].get(), rollMin));
+        max[pollerIndex].set(MAX.combine(max[pollerIndex].get(), rollMax));
+    }
+
+    /** Count for the current interval of a poller. */
+    long getCurrentCount(int pollerIndex) {
+        checkSegment(clock.now());
+        return count.sum() - countStart[pollerIndex].get();
+    }
+
+    /** Total for the current interval of a poller. */
+    long getCurrentTotal(int pollerIndex) {
+        checkSegment(clock.now());
+        return total.sum() - totalStart[pollerIndex].get();
+    }
+
+    /** Min for the current interval of a poller or Long.MAX_VALUE if there were no updates. */
+    long getCurrentMin(int pollerIndex) {
+        checkSegment(clock.now());
+        return MIN.combine(min[pollerIndex].get(), segmentMin.get());
+    }
+
+    /** Max for the current interval of a poller or 0 if there were no updates. */
+    long getCurrentMax(int pollerIndex) {
+        checkSegment(clock.now());
+        return MAX.combine(max[pollerIndex].get(), segmentMax.get());
+    }
+
+    /** Count for the last completed interval, see {@link StepLongAdder#poll(int)}. */
+    Datapoint pollCount(int pollerIndex) {
+        final long now = clock.now();
+        checkSegment(now);
+        return StepLongAdder.poll(now, pollerIndex,
+                previousCount[pollerIndex], lastCountPollTime[pollerIndex]);
+    }
+
+    /** Total for the last completed interval, see {@link StepLongAdder#poll(int)}. */
+    Datapoint pollTotal(int pollerIndex) {
+        final long now = clock.now();
+        checkSegment(now);
+        return StepLongAdder.poll(now, pollerIndex,
+                previousTotal[pollerIndex], lastTotalPollTime[pollerIndex]);
+    }
+
+    @Override
+    public String toString() {
+        return "StepStats{" +
+                "count=" + count +
+                ", total=" + total +
+                ", segmentMin=" + segmentMin +
+                ", segmentMax=" + segmentMax +
+                ", currentStep=" + currentStepString() +
+                ", min=" + Arrays.toString(min) +
+                ", max=" + Arrays.toString(max) +
+                '}';
+    }
+}
@@ -24,6 +24,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class creates a {@link java.lang.reflect.Proxy} monitor that tracks all calls to methods
@@ -50,6 +51,37 @@ public final class TimedInterface {
     static final String INTERFACE_TAG = "interface";
     static final String CLASS_TAG = "class";
     static final String ID_TAG = "id";
+
+    /** Timer for all methods with a given name, created the first time one of them is called. */
+    private static final class MethodTimer {
+        private final MonitorConfig config;
+        private final AtomicReference<Timer> timer = new AtomicReference<Timer>();
+
+        MethodTimer(MonitorConfig config) {
+            this.config = config;
+        }
+
+        Timer get() {
+            Timer t = timer.get();
+            if (t == null) {
+                timer.compareAndSet(null, new BasicTimer(config));
+                t = timer.get();
+            }
+            return t;
+        }
+    }
+
+    /** Pre-resolved information for a method of the interface. */
+    private static final class Target {
+        private final Method method;
+        private final MethodTimer timer;
+
+        Target(Method method, MethodTimer timer) {
+            this.method = method;
+            this.timer = timer;
+        }
+    }
+
     private static class TimedHandler<T> implements InvocationHandler, CompositeMonitor<Long> {
         final T concrete;
 
@@ -57,18 +89,26 @@ public final class TimedInterface {
          * {@inheritDoc}
          */
         @Override
-        @SuppressWarnings("unchecked")
         public List<Monitor<?>> getMonitors() {
-            List dynamicTimers = new ArrayList();
-            for (Timer timer : timers.values()) {
-                dynamicTimers.add(timer);
+            final List<Monitor<?>> dynamicTimers = new ArrayList<Monitor<?>>();
+            for (MethodTimer t : methodTimers.values()) {
+                final Timer timer = t.timer.get();
+                if (timer != null) {
+                    dynamicTimers.add(timer);
+                }
             }
-            return (List<Monitor<?>>) dynamicTimers;
+            return dynamicTimers;
         }
 
         @Override
         public Long getValue(int pollerIdx) {
-            return (long) timers.size();
+            long n = 0L;
+            for (MethodTimer t : methodTimers.values()) {
+                if (t.timer.get() != null) {
+                    ++n;
+                }
+            }
+            return n;
         }
 
         @Override
@@ -84,10 +124,39 @@ public final class TimedInterface {
             return baseConfig;
         }
 
-        final ConcurrentHashMapV8<String, Timer> timers;
+        /** Timers keyed by method name, overloaded methods share a timer. */
+        final ConcurrentHashMapV8<String, MethodTimer> methodTimers;
+
+        /**
+         * Targets for all methods of the interface, resolved when the proxy is created so a call
+         * only needs a single lookup. The methods are made accessible to skip the access check
+         * on each invocation.
+         */
+        final ConcurrentHashMapV8<Method, Target> targets;
+
         final MonitorConfig baseConfig;
         final TagList baseTagList;
 
+        final ConcurrentHashMapV8.Fun<String, MethodTimer> newMethodTimer =
+                new ConcurrentHashMapV8.Fun<String, MethodTimer>() {
+                    @Override
+                    public MethodTimer apply(String method) {
+                        final MonitorConfig config = MonitorConfig.builder(method)
+                                .withTags(baseTagList)
+                                .build();
+                        return new MethodTimer(config);
+                    }
+                };
+
+        /** Only used for methods that were not found when the proxy was created. */
+        final ConcurrentHashMapV8.Fun<Method, Target> newTarget =
+                new ConcurrentHashMapV8.Fun<Method, Target>() {
+                    @Override
+                    public Target apply(Method method) {
+                        return newTarget(method);
+                    }
+                };
+
         TimedHandler(Class<T> ctype, T concrete, String id) {
             this.concrete = concrete;
             BasicTagList tagList = BasicTagList.of(
@@ -99,32 +168,78 @@ public final class TimedInterface {
             baseTagList = tagList;
             baseConfig = MonitorConfig.builder(TIMED_INTERFACE).withTags(baseTagList).build();
 
-            timers = new ConcurrentHashMapV8<String, Timer>();
+            methodTimers = new ConcurrentHashMapV8<String, MethodTimer>();
+            targets = new ConcurrentHashMapV8<Method, Target>();
+            for (Method method : ctype.getMethods()) {
+                targets.put(method, newTarget(method));
+            }
         }
 
+        /**
+         * Create the target for a method, a copy of the method is made accessible so that the
+         * instance passed in by the proxy is not modified.
+         */
+        private Target newTarget(Method method) {
+            Method m;
+            try {
+                m = method.getDeclaringClass()
+                        .getMethod(method.getName(), method.getParameterTypes());
+                m.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                m = method;
+            } catch (SecurityException e) {
+                m = method;
+            }
+            return new Target(m, methodTimers.computeIfAbsent(method.getName(), newMethodTimer));
+        }
 
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            // if the method is one of the CompositeMonitor interface
             final Class<?> declaringClass = method.getDeclaringClass();
+            if (declaringClass == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            // if the method is one of the CompositeMonitor interface
             if (declaringClass.isAssignableFrom(CompositeMonitor.class)) {
-                return method.invoke(this);
+                return invokeMonitorMethod(method, args);
             }
-            final String methodName = method.getName();
-            final Timer timer = timers.computeIfAbsent(methodName, new ConcurrentHashMapV8.Fun<String, Timer>() {
-                @Override
-                public Timer apply(String method) {
-                    final MonitorConfig config = MonitorConfig.builder(method)
-                            .withTags(baseTagList)
-                            .build();
-                    return new BasicTimer(config);
-                }
-            });
-            final Stopwatch stopwatch = timer.start();
+            Target target = targets.get(method);
+            if (target == null) {
+                target = targets.computeIfAbsent(method, newTarget);
+            }
+            final Timer timer = target.timer.get();
+            final long start = Timers.startNanos();
             try {
-                return method.invoke(concrete, args);
+                return target.method.invoke(concrete, args);
             } finally {
-                stopwatch.stop();
+                Timers.stopNanos(timer, start);
+            }
+        }
+
+        private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+            final String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return hashCode();
+            } else {
+                return toString();
+            }
+        }
+
+        /** Dispatch the CompositeMonitor methods directly instead of using reflection. */
+        private Object invokeMonitorMethod(Method method, Object[] args) throws Throwable {
+            final String name = method.getName();
+            if ("getMonitors".equals(name)) {
+                return getMonitors();
+            } else if ("getConfig".equals(name)) {
+                return getConfig();
+            } else if ("getValue".equals(name)) {
+                return (args == null || args.length == 0)
+                        ? getValue()
+                        : getValue((Integer) args[0]);
+            } else {
+                return method.invoke(this, args);
             }
         }
     }
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.netflix.servo.monitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers for timing code without allocating a {@link Stopwatch} for each call. This can be used
+ * with any {@link Timer}:
+ *
+ * <pre>
+ *   long start = Timers.startNanos();
+ *   try {
+ *       ...
+ *   } finally {
+ *       Timers.stopNanos(timer, start);
+ *   }
+ * </pre>
+ */
+public final class Timers {
+
+    private Timers() {
+    }
+
+    /**
+     * Returns the start time to pass to {@link #stopNanos(Timer, long)}. The value is from
+     * {@link System#nanoTime()} and is only meaningful for computing a duration.
+     */
+    public static long startNanos() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the time elapsed since the start time to the timer.
+     *
+     * @param timer       timer that will be updated
+     * @param startNanos  start time returned by {@link #startNanos()}
+     * @return            the duration in nanoseconds
+     */
+    public static long stopNanos(Timer timer, long startNanos) {
+        final long duration = System.nanoTime() - startNanos;
+        timer.record(duration, TimeUnit.NANOSECONDS);
+        return duration;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.publish;
+
+/**
+ * Observer that can receive the values as a {@link MetricBatch} instead of a list of metrics.
+ * Use {@link MetricBatch#sendTo(MetricObserver)} to send a batch to an observer that may or
+ * may not support batches.
+ */
+public interface BatchMetricObserver extends MetricObserver {
+    /**
+     * Invoked with the most recent values for a set of metrics. The batch must not be modified.
+     */
+    void updateBatch(MetricBatch batch);
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.publish;
+
+/**
+ * Poller that can return the values as a {@link MetricBatch} instead of a list of metrics.
+ */
+public interface BatchMetricPoller extends MetricPoller {
+    /**
+     * Fetch the current values for a set of metrics that match the provided filter. See
+     * {@link #poll(MetricFilter, boolean)}.
+     *
+     * @param filter  retricts the set of metrics
+     * @param reset   ignored. This is kept for consistency with the list based poll.
+     * @return        batch with the current metric values
+     */
+    MetricBatch pollBatch(MetricFilter filter, boolean reset);
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.publish;
+
+import com.google.common.collect.ImmutableList;
+import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reads the values for a list of monitors with a single deadline for the whole batch. Monitors
+ * that just read a value in memory are read inline on the calling thread. Monitors that may run
+ * user code, see {@link Monitors#isCallback(Monitor)}, are read by a bounded pool of workers
+ * that take the next monitor from a shared index, so a slow monitor only holds up one worker.
+ * When the deadline is reached the workers are interrupted, workers that have not started are
+ * removed from the queue and the values that were not read are reported as timed out.
+ */
+final class BatchValueCollector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchValueCollector.class);
+
+    /** Marker for a value that has not been read yet. */
+    private static final Object PENDING = new Object();
+
+    /** Marker for a value that was not read before the deadline. */
+    private static final Object TIMED_OUT = new Object();
+
+    /** Values for a batch of monitors. */
+    static final class Result {
+        private final Object[] values;
+        private final List<Monitor<?>> timedOut;
+
+        Result(Object[] values, List<Monitor<?>> timedOut) {
+            this.values = values;
+            this.timedOut = timedOut;
+        }
+
+        /**
+         * Values in the same order as the monitors. The value is null if reading it failed or
+         * timed out.
+         */
+        Object[] getValues() {
+            return values;
+        }
+
+        /** Monitors whose value was not read before the deadline. */
+        List<Monitor<?>> getTimedOut() {
+            return timedOut;
+        }
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final int threads;
+    private final long timeoutNanos;
+
+    /**
+     * Create a pool for reading the values of callback monitors. The queue only has room for the
+     * workers of one batch. The workers of a batch that timed out are removed from the queue, so
+     * if the threads are stuck in a hung callback new polls do not pile up work behind them.
+     */
+    static ThreadPoolExecutor newPool(int threads, ThreadFactory factory) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(threads), factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param pool     pool used to read the values of callback monitors
+     * @param threads  max number of workers to use for a batch
+     * @param timeout  deadline for reading the values of a batch
+     * @param unit     unit for the timeout
+     */
+    BatchValueCollector(ThreadPoolExecutor pool, int threads, long timeout, TimeUnit unit) {
+        this.pool = pool;
+        this.threads = threads;
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /** Read the values for all monitors. */
+    Result collect(List<Monitor<?>> monitors) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        final int size = monitors.size();
+        final Object[] values = new Object[size];
+
+        final int[] callbacks = new int[size];
+        int numCallbacks = 0;
+        for (int i = 0; i < size; ++i) {
+            if (Monitors.isCallback(monitors.get(i))) {
+                callbacks[numCallbacks++] = i;
+            }
+        }
+
+        final Batch batch = new Batch(monitors, callbacks, numCallbacks, deadline);
+        final List<Future<?>> futures = batch.start();
+
+        // Read the values that are in memory while the workers handle the callbacks
+        int next = 0;
+        for (int i = 0; i < size; ++i) {
+            if (next < numCallbacks && callbacks[next] == i) {
+                ++next;
+            } else {
+                values[i] = getValue(monitors.get(i));
+            }
+        }
+
+        if (numCallbacks == 0) {
+            return new Result(values, ImmutableList.<Monitor<?>>of());
+        }
+
+        batch.await();
+
+        // Close the pending slots before interrupting the workers so that values read after
+        // the deadline are dropped rather than racing with the result
+        final List<Monitor<?>> timedOut = new ArrayList<Monitor<?>>();
+        for (int j = 0; j < numCallbacks; ++j) {
+            final int i = callbacks[j];
+            if (batch.values.compareAndSet(j, PENDING, TIMED_OUT)) {
+                timedOut.add(monitors.get(i));
+            } else {
+                values[i] = batch.values.get(j);
+            }
+        }
+        for (Future<?> f : futures) {
+            f.cancel(true);
+        }
+        pool.purge();
+        return new Result(values, timedOut);
+    }
+
+    /** Get the value of a monitor or null if it fails. */
+    private static Object getValue(Monitor<?> monitor) {
+        try {
+            return monitor.getValue();
+        } catch (Exception e) {
+            LOGGER.warn("failed to get value for " + monitor.getConfig(), e);
+            return null;
+        }
+    }
+
+    /** State for reading the callback monitors of one batch. */
+    private final class Batch implements Runnable {
+        private final List<Monitor<?>> monitors;
+        private final int[] indices;
+        private final int size;
+        private final long deadline;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicReferenceArray<Object> values;
+        private final CountDownLatch done;
+
+        Batch(List<Monitor<?>> monitors, int[] indices, int size, long deadline) {
+            this.monitors = monitors;
+            this.indices = indices;
+            this.size = size;
+            this.deadline = deadline;
+            this.values = new AtomicReferenceArray<Object>(size);
+            for (int i = 0; i < size; ++i) {
+                values.set(i, PENDING);
+            }
+            this.done = new CountDownLatch(size);
+        }
+
+        /** Submit the workers to the pool. */
+        List<Future<?>> start() {
+            final int workers = Math.min(threads, size);
+            final List<Future<?>> futures = new ArrayList<Future<?>>(workers);
+            try {
+                for (int i = 0; i < workers; ++i) {
+                    futures.add(pool.submit(this));
+                }
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("failed to submit worker, pool is shutdown or saturated", e);
+            }
+            return futures;
+        }
+
+        /** Wait until all values are read or the deadline is reached. */
+        void await() {
+            try {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining > 0L) {
+                    done.await(remaining, TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            int j;
+            while ((j = next.getAndIncrement()) < size) {
+                if (Thread.currentThread().isInterrupted() || System.nanoTime() >= deadline) {
+                    return;
+                }
+                values.compareAndSet(j, PENDING, getValue(monitors.get(indices[j])));
+                done.countDown();
+            }
+        }
+    }
+}
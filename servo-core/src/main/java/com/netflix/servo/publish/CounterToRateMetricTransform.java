@@ -16,12 +16,10 @@
 package com.netflix.servo.publish;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import com.netflix.servo.Metric;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.monitor.MonitorConfig;
 import com.netflix.servo.tag.Tag;
-import com.netflix.servo.tag.TagList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,12 +45,11 @@ import java.util.concurrent.TimeUnit;
  * <p>This class is not thread safe and should generally be wrapped by an async
  * observer to prevent issues.
  */
-public final class CounterToRateMetricTransform implements MetricObserver {
+public final class CounterToRateMetricTransform implements BatchMetricObserver {
 
     private static final Logger LOGGER =
         LoggerFactory.getLogger(CounterToRateMetricTransform.class);
 
-    private static final String COUNTER_VALUE = DataSourceType.COUNTER.name();
     private static final Tag RATE_TAG = DataSourceType.RATE;
 
     private final MetricObserver observer;
@@ -118,33 +115,46 @@ public final class CounterToRateMetricTransform implements MetricObserver {
         return observer.getName();
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc} The metrics are converted to a batch, see {@link #updateBatch(MetricBatch)}.
+     */
     public void update(List<Metric> metrics) {
         Preconditions.checkNotNull(metrics);
-        LOGGER.debug("received {} metrics", metrics.size());
-        final List<Metric> newMetrics = Lists.newArrayListWithCapacity(metrics.size());
-        for (Metric m : metrics) {
-            if (isCounter(m)) {
-                final MonitorConfig rateConfig = toRateConfig(m.getConfig());
+        updateBatch(MetricBatch.fromList(metrics));
+    }
+
+    /**
+     * {@inheritDoc} The rates are computed using the primitive columns of the batch and the
+     * result is forwarded as a batch if the wrapped observer supports it.
+     */
+    public void updateBatch(MetricBatch batch) {
+        Preconditions.checkNotNull(batch);
+        LOGGER.debug("received {} metrics", batch.size());
+        final MetricBatch newBatch = new MetricBatch(batch.size());
+        for (int i = 0; i < batch.size(); ++i) {
+            final MonitorConfig config = batch.getConfig(i);
+            final long timestamp = batch.getTimestamp(i);
+            if (batch.hasNumberValue(i)
+                    && config.getId().getDataSourceType() == DataSourceType.COUNTER) {
+                final double value = batch.getValue(i);
+                final MonitorConfig rateConfig = toRateConfig(config);
                 final CounterValue prev = cache.get(rateConfig);
                 if (prev != null) {
-                    final double rate = prev.computeRate(m);
-                    newMetrics.add(new Metric(rateConfig, m.getTimestamp(), rate));
+                    newBatch.add(rateConfig, timestamp, prev.update(timestamp, value));
                 } else {
-                    CounterValue current = new CounterValue(m);
+                    CounterValue current = new CounterValue(timestamp, value);
                     cache.put(rateConfig, current);
                     if (intervalMillis > 0L) {
-                        final double delta = m.getNumberValue().doubleValue();
-                        final double rate = current.computeRate(intervalMillis, delta);
-                        newMetrics.add(new Metric(rateConfig, m.getTimestamp(), rate));
+                        newBatch.add(rateConfig, timestamp,
+                                current.computeRate(intervalMillis, value));
                     }
                 }
             } else {
-                newMetrics.add(m);
+                newBatch.add(batch, i);
             }
         }
-        LOGGER.debug("writing {} metrics to downstream observer", newMetrics.size());
-        observer.update(newMetrics);
+        LOGGER.debug("writing {} metrics to downstream observer", newBatch.size());
+        newBatch.sendTo(observer);
     }
 
     /**
@@ -162,12 +172,6 @@ public final class CounterToRateMetricTransform implements MetricObserver {
         return config.withAdditionalTag(RATE_TAG);
     }
 
-    private boolean isCounter(Metric m) {
-        final TagList tags = m.getConfig().getTags();
-        final String value = tags.getValue(DataSourceType.KEY);
-        return value != null && COUNTER_VALUE.equals(value);
-    }
-
     private static class CounterValue {
         private long timestamp;
         private double value;
@@ -177,18 +181,12 @@ public final class CounterToRateMetricTransform implements MetricObserver {
             this.value = value;
         }
 
-        public CounterValue(Metric m) {
-            this(m.getTimestamp(), m.getNumberValue().doubleValue());
-        }
-
         public long getTimestamp() {
             return timestamp;
         }
 
-        public double computeRate(Metric m) {
-            final long currentTimestamp = m.getTimestamp();
-            final double currentValue = m.getNumberValue().doubleValue();
-
+        /** Update with a new sample and return the rate since the previous sample. */
+        public double update(long currentTimestamp, double currentValue) {
             final long durationMillis = currentTimestamp - timestamp;
             final double delta = currentValue - value;
 
@@ -18,6 +18,7 @@ package com.netflix.servo.publish;
 import com.google.common.base.Preconditions;
 import com.google.common.io.Closer;
 import com.netflix.servo.Metric;
+import com.netflix.servo.annotations.DataSourceType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -107,6 +108,9 @@ public final class FileMetricObserver extends BaseMetricObserver {
                 }
                 out = closer.register(new OutputStreamWriter(fileOut, "UTF-8"));
                 for (Metric m : metrics) {
+                    if (isDistribution(m)) {
+                        continue;
+                    }
                     out.append(m.getConfig().getName()).append('\t')
                        .append(m.getConfig().getTags().toString()).append('\t')
                        .append(m.getValue().toString()).append('\n');
@@ -121,4 +125,13 @@ public final class FileMetricObserver extends BaseMetricObserver {
             LOGGER.error("failed to write update to file " + file, e);
         }
     }
+
+    /**
+     * Distribution values are sketches that do not have a single line text form, they are
+     * skipped rather than written as a dump of the sketch.
+     */
+    private static boolean isDistribution(Metric m) {
+        final String type = m.getConfig().getTags().getValue(DataSourceType.KEY);
+        return DataSourceType.DISTRIBUTION.name().equals(type);
+    }
 }
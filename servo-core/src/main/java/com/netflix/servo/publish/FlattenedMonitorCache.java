@@ -0,0 +1,208 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.publish;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.netflix.servo.MonitorRegistry;
+import com.netflix.servo.VersionedMonitorRegistry;
+import com.netflix.servo.monitor.CompositeMonitor;
+import com.netflix.servo.monitor.Monitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the leaf monitors in a registry that match a filter. The composite tree is kept
+ * with the collection of children last returned by each composite and whether each leaf
+ * matched the filter. On refresh only composites whose children changed are re-flattened, and
+ * the filter is only applied to leaves that were not seen before. Composites such as
+ * {@link com.netflix.servo.monitor.BasicCompositeMonitor} return the same immutable list each
+ * time, so a refresh with no changes only needs to visit the composites. Other collections may
+ * be modified in place, so they are compared element by element with the children last seen.
+ *
+ * <p>For a {@link VersionedMonitorRegistry} the registered monitors are only re-read when the
+ * version changes. For other registries they are re-read on each refresh and compared by
+ * identity, which works for registries that return the same collection until it is changed.
+ * </p>
+ */
+final class FlattenedMonitorCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlattenedMonitorCache.class);
+
+    private static final Node[] NO_COMPOSITES = new Node[0];
+
+    private static final Monitor<?>[] NO_MONITORS = new Monitor<?>[0];
+
+    /** Node for the registry or a composite monitor. */
+    private static final class Node {
+        private final CompositeMonitor<?> monitor;
+
+        /** Collection of children last returned, compared by identity to detect changes. */
+        private Collection<? extends Monitor<?>> children;
+
+        /** Copy of the children last seen, in order. */
+        private Monitor<?>[] childArray = NO_MONITORS;
+
+        /** For each child, a {@link Node} for composites or a Boolean filter match for leaves. */
+        private Map<Monitor<?>, Object> entries = Collections.emptyMap();
+
+        /** Child composites in order, visited on each refresh. */
+        private Node[] composites = NO_COMPOSITES;
+
+        /** Leaves that matched the filter, in order. */
+        private List<Monitor<?>> leaves = ImmutableList.of();
+
+        Node(CompositeMonitor<?> monitor) {
+            this.monitor = monitor;
+        }
+    }
+
+    private final MetricFilter filter;
+    private final Node root = new Node(null);
+    private long version = -1L;
+    private long lastUpdateTime;
+
+    FlattenedMonitorCache(MetricFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Returns the leaf monitors that match the filter, refreshing the cache if it is older
+     * than the ttl.
+     *
+     * @param registry  registry with the monitors
+     * @param ttl       how long in milliseconds the cached list can be used without checking
+     *                  for changes, 0 to check on each call
+     * @param now       current time in milliseconds
+     */
+    synchronized List<Monitor<?>> get(MonitorRegistry registry, long ttl, long now) {
+        final long age = now - lastUpdateTime;
+        if (ttl > 0L && age <= ttl && root.children != null) {
+            LOGGER.debug("cache age of {} seconds is within ttl of {} seconds",
+                    age / 1000, ttl / 1000);
+            return root.leaves;
+        }
+
+        Collection<? extends Monitor<?>> registered = root.children;
+        if (registry instanceof VersionedMonitorRegistry) {
+            final long v = ((VersionedMonitorRegistry) registry).getVersion();
+            if (v != version || registered == null) {
+                registered = registry.getRegisteredMonitors();
+                version = v;
+            }
+        } else {
+            registered = registry.getRegisteredMonitors();
+        }
+
+        if (update(root, registered)) {
+            LOGGER.debug("cache refreshed, {} monitors matched filter", root.leaves.size());
+        }
+        lastUpdateTime = now;
+        return root.leaves;
+    }
+
+    /** Refresh the node for a composite, returns true if the matching leaves changed. */
+    private boolean refresh(Node node) {
+        Collection<? extends Monitor<?>> children;
+        try {
+            children = node.monitor.getMonitors();
+        } catch (Exception e) {
+            LOGGER.warn("failed to get monitors for composite " + node.monitor.getConfig(), e);
+            children = Collections.emptyList();
+        }
+        return update(node, children);
+    }
+
+    /**
+     * Returns true if the children are the same as the ones last seen for the node. An immutable
+     * collection that is the same instance cannot have changed, any other collection could have
+     * been modified in place so the elements are compared.
+     */
+    private static boolean sameChildren(Node node, Collection<? extends Monitor<?>> children) {
+        if (children != node.children) {
+            return false;
+        } else if (children instanceof ImmutableCollection<?>) {
+            return true;
+        }
+        final Monitor<?>[] previous = node.childArray;
+        if (children.size() != previous.length) {
+            return false;
+        }
+        int i = 0;
+        for (Monitor<?> m : children) {
+            if (i >= previous.length || m != previous[i++]) {
+                return false;
+            }
+        }
+        return i == previous.length;
+    }
+
+    /**
+     * Update a node with the current children, returns true if the matching leaves changed.
+     * Entries for children that were seen before are reused so the filter is not applied again.
+     */
+    private boolean update(Node node, Collection<? extends Monitor<?>> children) {
+        boolean changed = false;
+        if (!sameChildren(node, children)) {
+            final Monitor<?>[] childArray = children.toArray(new Monitor<?>[children.size()]);
+            final Map<Monitor<?>, Object> previous = node.entries;
+            final Map<Monitor<?>, Object> entries =
+                    new IdentityHashMap<Monitor<?>, Object>(childArray.length);
+            final List<Node> composites = new ArrayList<Node>();
+            for (Monitor<?> m : childArray) {
+                Object entry = previous.get(m);
+                if (entry == null) {
+                    entry = (m instanceof CompositeMonitor<?>)
+                            ? new Node((CompositeMonitor<?>) m)
+                            : Boolean.valueOf(filter.matches(m.getConfig()));
+                }
+                if (entries.put(m, entry) == null && entry instanceof Node) {
+                    composites.add((Node) entry);
+                }
+            }
+            node.children = children;
+            node.childArray = childArray;
+            node.entries = entries;
+            node.composites = composites.toArray(new Node[composites.size()]);
+            changed = true;
+        }
+
+        for (Node composite : node.composites) {
+            changed |= refresh(composite);
+        }
+
+        if (changed) {
+            final List<Monitor<?>> leaves = new ArrayList<Monitor<?>>();
+            for (Monitor<?> m : node.childArray) {
+                final Object entry = node.entries.get(m);
+                if (entry instanceof Node) {
+                    leaves.addAll(((Node) entry).leaves);
+                } else if (Boolean.TRUE.equals(entry)) {
+                    leaves.add(m);
+                }
+            }
+            node.leaves = Collections.unmodifiableList(leaves);
+        }
+        return changed;
+    }
+}
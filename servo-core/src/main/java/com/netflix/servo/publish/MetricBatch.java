@@ -0,0 +1,270 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.publish;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.netflix.servo.Metric;
+import com.netflix.servo.monitor.MonitorConfig;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar representation of a set of metrics. The configs, timestamps and values are kept in
+ * parallel arrays and numeric values are stored as primitives, so a poll of many series is a few
+ * arrays rather than a {@link Metric} and boxed number for each series. A type tag for each row
+ * records whether the value was a double, long or int so converting the batch back to metrics
+ * returns the same type that was added. Other values, e.g., strings for informational monitors,
+ * are kept in a separate column that is only allocated if needed.
+ *
+ * <p>Batches can be exchanged between a {@link BatchMetricPoller} and a
+ * {@link BatchMetricObserver}, and converted to and from {@code List<Metric>} for the rest of
+ * the pipeline. A batch is not thread safe, it should be fully built before being passed to an
+ * observer and not modified after that.</p>
+ */
+public final class MetricBatch {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Value is a double stored as raw long bits. */
+    private static final byte TYPE_DOUBLE = 0;
+
+    /** Value is a long. */
+    private static final byte TYPE_LONG = 1;
+
+    /** Value is an int stored as a long. */
+    private static final byte TYPE_INT = 2;
+
+    /** Value is in the objects column. */
+    private static final byte TYPE_OBJECT = 3;
+
+    private MonitorConfig[] configs;
+    private long[] timestamps;
+    private long[] values;
+    private byte[] types;
+
+    /** Values that are not primitive numbers, null unless at least one has been added. */
+    private Object[] objects;
+
+    /** Metrics created by {@link #toList()}, null unless a list has been requested. */
+    private Metric[] metrics;
+
+    private int size;
+
+    /** Create a new empty batch. */
+    public MetricBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Create a new empty batch with space for {@code capacity} metrics. */
+    public MetricBatch(int capacity) {
+        Preconditions.checkArgument(capacity >= 0, "capacity cannot be negative");
+        configs = new MonitorConfig[capacity];
+        timestamps = new long[capacity];
+        values = new long[capacity];
+        types = new byte[capacity];
+    }
+
+    /** Create a batch with the metrics from a list. */
+    public static MetricBatch fromList(List<Metric> metrics) {
+        final MetricBatch batch = new MetricBatch(metrics.size());
+        for (Metric m : metrics) {
+            batch.add(m.getConfig(), m.getTimestamp(), m.getValue());
+        }
+        return batch;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > configs.length) {
+            final int capacity = Math.max(n, configs.length + (configs.length >> 1) + 1);
+            configs = Arrays.copyOf(configs, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            values = Arrays.copyOf(values, capacity);
+            types = Arrays.copyOf(types, capacity);
+            if (objects != null) {
+                objects = Arrays.copyOf(objects, capacity);
+            }
+            if (metrics != null) {
+                metrics = Arrays.copyOf(metrics, capacity);
+            }
+        }
+    }
+
+    private MetricBatch add(MonitorConfig config, long timestamp, byte type, long value) {
+        Preconditions.checkNotNull(config, "config cannot be null");
+        ensureCapacity(size + 1);
+        configs[size] = config;
+        timestamps[size] = timestamp;
+        types[size] = type;
+        values[size] = value;
+        ++size;
+        return this;
+    }
+
+    /** Add a metric with a double value. */
+    public MetricBatch add(MonitorConfig config, long timestamp, double value) {
+        return add(config, timestamp, TYPE_DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /** Add a metric with a long value, it will be returned as a {@link Long}. */
+    public MetricBatch add(MonitorConfig config, long timestamp, long value) {
+        return add(config, timestamp, TYPE_LONG, value);
+    }
+
+    /**
+     * Add a metric with an arbitrary value. Doubles, longs and ints are stored as primitives and
+     * other numbers as a double, they can all be read with {@link #getValue(int)}. Values other
+     * than doubles, longs and ints are also kept as is for {@link #getObjectValue(int)}, and
+     * values that are not numbers have a double value of NaN.
+     */
+    public MetricBatch add(MonitorConfig config, long timestamp, Object value) {
+        Preconditions.checkNotNull(value, "value cannot be null");
+        if (value instanceof Double) {
+            return add(config, timestamp, ((Double) value).doubleValue());
+        } else if (value instanceof Long) {
+            return add(config, timestamp, TYPE_LONG, ((Long) value).longValue());
+        } else if (value instanceof Integer) {
+            return add(config, timestamp, TYPE_INT, ((Integer) value).longValue());
+        }
+        final double v = (value instanceof Number) ? ((Number) value).doubleValue() : Double.NaN;
+        add(config, timestamp, TYPE_OBJECT, Double.doubleToRawLongBits(v));
+        if (objects == null) {
+            objects = new Object[configs.length];
+        }
+        objects[size - 1] = value;
+        return this;
+    }
+
+    /** Add a copy of the metric at position {@code i} of another batch. */
+    public MetricBatch add(MetricBatch batch, int i) {
+        batch.check(i);
+        if (batch.types[i] == TYPE_OBJECT) {
+            return add(batch.configs[i], batch.timestamps[i], batch.objects[i]);
+        }
+        return add(batch.configs[i], batch.timestamps[i], batch.types[i], batch.values[i]);
+    }
+
+    /** Returns the number of metrics in the batch. */
+    public int size() {
+        return size;
+    }
+
+    private int check(int i) {
+        Preconditions.checkElementIndex(i, size);
+        return i;
+    }
+
+    /** Returns the config for the metric at position {@code i}. */
+    public MonitorConfig getConfig(int i) {
+        return configs[check(i)];
+    }
+
+    /** Returns the timestamp for the metric at position {@code i}. */
+    public long getTimestamp(int i) {
+        return timestamps[check(i)];
+    }
+
+    /**
+     * Returns the value for the metric at position {@code i}, or NaN if the value is not a
+     * number.
+     */
+    public double getValue(int i) {
+        switch (types[check(i)]) {
+            case TYPE_LONG:
+            case TYPE_INT:
+                return values[i];
+            default:
+                return Double.longBitsToDouble(values[i]);
+        }
+    }
+
+    /** Returns true if the metric at position {@code i} has a numeric value. */
+    public boolean hasNumberValue(int i) {
+        return types[check(i)] != TYPE_OBJECT || objects[i] instanceof Number;
+    }
+
+    /**
+     * Returns the value for the metric at position {@code i} as an object. This is the value
+     * that was added, or a boxed value of the same type for primitive values.
+     */
+    public Object getObjectValue(int i) {
+        switch (types[check(i)]) {
+            case TYPE_LONG:
+                return Long.valueOf(values[i]);
+            case TYPE_INT:
+                return Integer.valueOf((int) values[i]);
+            case TYPE_OBJECT:
+                return objects[i];
+            default:
+                return Double.valueOf(Double.longBitsToDouble(values[i]));
+        }
+    }
+
+    /** Returns the metric at position {@code i}. */
+    public Metric getMetric(int i) {
+        return new Metric(getConfig(i), timestamps[i], getObjectValue(i));
+    }
+
+    /**
+     * Returns a view of the batch as a list of metrics. The {@link Metric} objects are created
+     * the first time they are accessed and shared by all lists from this batch, so observers that
+     * only iterate once do not keep a copy and sending to many observers creates them once.
+     */
+    public List<Metric> toList() {
+        return new AbstractList<Metric>() {
+            @Override
+            public Metric get(int i) {
+                check(i);
+                if (metrics == null) {
+                    metrics = new Metric[configs.length];
+                }
+                Metric m = metrics[i];
+                if (m == null) {
+                    m = getMetric(i);
+                    metrics[i] = m;
+                }
+                return m;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Send the batch to an observer, as a batch if it is a {@link BatchMetricObserver} or as a
+     * list of metrics otherwise.
+     */
+    public void sendTo(MetricObserver observer) {
+        if (observer instanceof BatchMetricObserver) {
+            ((BatchMetricObserver) observer).updateBatch(this);
+        } else {
+            observer.update(toList());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("size", size)
+                .toString();
+    }
+}
@@ -15,6 +15,9 @@
  */
 package com.netflix.servo.publish;
 
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.TimeLimiter;
@@ -24,8 +27,9 @@ import com.google.common.util.concurrent.UncheckedTimeoutException;
 import com.netflix.servo.DefaultMonitorRegistry;
 import com.netflix.servo.Metric;
 import com.netflix.servo.MonitorRegistry;
-import com.netflix.servo.monitor.CompositeMonitor;
+import com.netflix.servo.jsr166e.ForkJoinPool;
 import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.MonitorConfig;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,33 +40,43 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
-
 /**
  * Poller for fetching {@link com.netflix.servo.annotations.Monitor} metrics
- * from a monitor registry.
+ * from a monitor registry. The leaf monitors matching each filter are cached and only the parts
+ * of the registry that changed are flattened again, see {@link FlattenedMonitorCache}.
  */
-public final class MonitorRegistryMetricPoller implements MetricPoller {
+public final class MonitorRegistryMetricPoller implements BatchMetricPoller {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MonitorRegistryMetricPoller.class);
 
+    /** Max number of timed out monitors to include in the log message for a poll. */
+    private static final int MAX_LOGGED_TIMEOUTS = 10;
+
     private final MonitorRegistry registry;
 
     private final long cacheTTL;
 
-    private final AtomicReference<List<Monitor<?>>> cachedMonitors =
-            new AtomicReference<List<Monitor<?>>>();
-
-    private final AtomicLong cacheLastUpdateTime = new AtomicLong(0L);
+    /**
+     * Flattened monitors for each filter that has been polled. Keys are weak and compared by
+     * identity so pollers with different filters do not overwrite each other.
+     */
+    private final Cache<MetricFilter, FlattenedMonitorCache> cachedMonitors =
+            CacheBuilder.newBuilder().weakKeys().build();
 
     // Put limit on fetching the monitor value in-case someone does something silly like call a
     // remote service inline
     private final TimeLimiter limiter;
     private final ExecutorService service;
 
+    // Used instead of the limiter to read all values of a poll with a single deadline
+    private final BatchValueCollector collector;
+
+    // Used instead of the limiter to read the values in parallel on a fork-join pool
+    private final ParallelMetricCollector parallel;
+
     /**
      * Creates a new instance using {@link com.netflix.servo.DefaultMonitorRegistry}.
      */
@@ -83,7 +97,8 @@ public final class MonitorRegistryMetricPoller implements MetricPoller {
      * Creates a new instance using the specified registry and a time limiter.
      *
      * @param registry registry to query for annotated objects
-     * @param cacheTTL how long to cache the filtered monitor list from the registry
+     * @param cacheTTL how long to use the filtered monitor list from the registry without
+     *                 checking for changes
      * @param unit     time unit for the cache ttl
      */
     public MonitorRegistryMetricPoller(MonitorRegistry registry, long cacheTTL, TimeUnit unit) {
@@ -94,7 +109,8 @@ public final class MonitorRegistryMetricPoller implements MetricPoller {
      * Creates a new instance using the specified registry.
      *
      * @param registry   registry to query for annotated objects
-     * @param cacheTTL   how long to cache the filtered monitor list from the registry
+     * @param cacheTTL   how long to use the filtered monitor list from the registry without
+     *                   checking for changes
      * @param unit       time unit for the cache ttl
      * @param useLimiter whether to use a time limiter for getting the values from the monitors
      */
@@ -103,6 +119,9 @@ public final class MonitorRegistryMetricPoller implements MetricPoller {
         this.registry = registry;
         this.cacheTTL = TimeUnit.MILLISECONDS.convert(cacheTTL, unit);
 
+        this.collector = null;
+        this.parallel = null;
+
         if (useLimiter) {
             final ThreadFactory factory = new ThreadFactoryBuilder()
                     .setDaemon(true)
@@ -116,6 +135,64 @@ public final class MonitorRegistryMetricPoller implements MetricPoller {
         }
     }
 
+    /**
+     * Creates a new instance that reads the values for each poll as a batch with a single
+     * deadline. Monitors that only read a value in memory, such as counters and timers, are
+     * read inline. Monitors that may run user code, see
+     * {@link com.netflix.servo.monitor.Monitors#isCallback(Monitor)}, are read by a pool with
+     * up to {@code threads} workers. If the deadline is reached the poll returns the values
+     * that were read and logs the monitors that timed out.
+     *
+     * @param registry     registry to query for annotated objects
+     * @param cacheTTL     how long to use the filtered monitor list from the registry without
+     *                     checking for changes
+     * @param unit         time unit for the cache ttl
+     * @param threads      max number of threads used to read the values of callback monitors
+     * @param timeout      deadline for reading all values of a poll
+     * @param timeoutUnit  time unit for the timeout
+     */
+    public MonitorRegistryMetricPoller(MonitorRegistry registry, long cacheTTL, TimeUnit unit,
+                                       int threads, long timeout, TimeUnit timeoutUnit) {
+        Preconditions.checkArgument(threads > 0, "threads must be positive");
+        this.registry = registry;
+        this.cacheTTL = TimeUnit.MILLISECONDS.convert(cacheTTL, unit);
+        this.limiter = null;
+
+        final ThreadFactory factory = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("ServoMonitorGetValue-%d")
+                .build();
+        final ThreadPoolExecutor pool = BatchValueCollector.newPool(threads, factory);
+        this.service = pool;
+        this.collector = new BatchValueCollector(pool, threads, timeout, timeoutUnit);
+        this.parallel = null;
+    }
+
+    /**
+     * Creates a new instance that reads the values in parallel using a fork-join pool. The
+     * filtered monitors are split into chunks that are read by separate tasks and the results
+     * are concatenated in order. This reduces the time for a poll of a large registry, but
+     * there is no time limit so it should only be used if the monitors do not block. The pool
+     * is not shutdown by {@link #shutdown()}, e.g., {@link ForkJoinPool#commonPool()} can be
+     * used.
+     *
+     * @param registry registry to query for annotated objects
+     * @param cacheTTL how long to use the filtered monitor list from the registry without
+     *                 checking for changes
+     * @param unit     time unit for the cache ttl
+     * @param pool     pool used for reading the values
+     */
+    public MonitorRegistryMetricPoller(MonitorRegistry registry, long cacheTTL, TimeUnit unit,
+                                       ForkJoinPool pool) {
+        Preconditions.checkNotNull(pool, "pool cannot be null");
+        this.registry = registry;
+        this.cacheTTL = TimeUnit.MILLISECONDS.convert(cacheTTL, unit);
+        this.limiter = null;
+        this.service = null;
+        this.collector = null;
+        this.parallel = new ParallelMetricCollector(pool);
+    }
+
     private Object getValue(Monitor<?> monitor, boolean reset) {
         try {
             if (limiter != null) {
@@ -132,35 +209,17 @@ public final class MonitorRegistryMetricPoller implements MetricPoller {
         return null;
     }
 
-    private void getMonitors(List<Monitor<?>> monitors, MetricFilter filter, Monitor<?> monitor) {
-        if (monitor instanceof CompositeMonitor<?>) {
-            for (Monitor<?> m : ((CompositeMonitor<?>) monitor).getMonitors()) {
-                getMonitors(monitors, filter, m);
-            }
-        } else if (filter.matches(monitor.getConfig())) {
-            monitors.add(monitor);
-        }
-    }
-
-    private void refreshMonitorCache(MetricFilter filter) {
-        final long age = System.currentTimeMillis() - cacheLastUpdateTime.get();
-        if (age > cacheTTL) {
-            List<Monitor<?>> monitors = Lists.newArrayList();
-            for (Monitor<?> monitor : registry.getRegisteredMonitors()) {
-                try {
-                    getMonitors(monitors, filter, monitor);
-                } catch (Exception e) {
-                    LOGGER.warn("failed to get monitors for composite " + monitor.getConfig(), e);
-                }
+    /** Returns the cache of flattened monitors for a filter, creating it if needed. */
+    private FlattenedMonitorCache getCache(MetricFilter filter) {
+        FlattenedMonitorCache cache = cachedMonitors.getIfPresent(filter);
+        if (cache == null) {
+            final FlattenedMonitorCache newCache = new FlattenedMonitorCache(filter);
+            cache = cachedMonitors.asMap().putIfAbsent(filter, newCache);
+            if (cache == null) {
+                cache = newCache;
             }
-            cacheLastUpdateTime.set(System.currentTimeMillis());
-            cachedMonitors.set(monitors);
-            LOGGER.debug("cache refreshed, {} monitors matched filter, previous age {} seconds",
-                    monitors.size(), age / 1000);
-        } else {
-            LOGGER.debug("cache age of {} seconds is within ttl of {} seconds",
-                    age / 1000, cacheTTL / 1000);
         }
+        return cache;
     }
 
     /**
@@ -171,20 +230,60 @@ public final class MonitorRegistryMetricPoller implements MetricPoller {
     }
 
     /**
-     * {@inheritDoc}
+     * {@inheritDoc} This is a view of the batch from {@link #pollBatch(MetricFilter, boolean)}.
      */
     public List<Metric> poll(MetricFilter filter, boolean reset) {
-        refreshMonitorCache(filter);
-        List<Monitor<?>> monitors = cachedMonitors.get();
-        List<Metric> metrics = Lists.newArrayListWithCapacity(monitors.size());
+        return pollBatch(filter, reset).toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public MetricBatch pollBatch(MetricFilter filter, boolean reset) {
+        final List<Monitor<?>> monitors =
+                getCache(filter).get(registry, cacheTTL, System.currentTimeMillis());
+        if (collector != null) {
+            final Object[] values = collectWithDeadline(monitors);
+            final long now = System.currentTimeMillis();
+            final MetricBatch batch = new MetricBatch(monitors.size());
+            for (int i = 0; i < values.length; ++i) {
+                if (values[i] != null) {
+                    batch.add(monitors.get(i).getConfig(), now, values[i]);
+                }
+            }
+            return batch;
+        } else if (parallel != null) {
+            return parallel.collect(monitors, System.currentTimeMillis());
+        }
+
+        final MetricBatch batch = new MetricBatch(monitors.size());
         for (Monitor<?> monitor : monitors) {
-            Object v = getValue(monitor, reset);
+            final Object v = getValue(monitor, reset);
             if (v != null) {
-                long now = System.currentTimeMillis();
-                metrics.add(new Metric(monitor.getConfig(), now, v));
+                batch.add(monitor.getConfig(), System.currentTimeMillis(), v);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Get the values for all monitors with a single deadline. Values that failed or timed out
+     * are null.
+     */
+    private Object[] collectWithDeadline(List<Monitor<?>> monitors) {
+        final BatchValueCollector.Result result = collector.collect(monitors);
+        final List<Monitor<?>> timedOut = result.getTimedOut();
+        if (!timedOut.isEmpty()) {
+            final List<MonitorConfig> configs = Lists.newArrayList();
+            for (Monitor<?> m : timedOut.subList(0, Math.min(MAX_LOGGED_TIMEOUTS,
+                    timedOut.size()))) {
+                configs.add(m.getConfig());
             }
+            LOGGER.warn("timeout trying to get values for {} of {} monitors: {}",
+                    new Object[] {timedOut.size(), monitors.size(), configs});
         }
-        return metrics;
+
+        return result.getValues();
     }
 
     /**
@@ -23,7 +23,6 @@ import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.monitor.Counter;
 import com.netflix.servo.monitor.MonitorConfig;
 import com.netflix.servo.monitor.Monitors;
-import com.netflix.servo.tag.TagList;
 import com.netflix.servo.util.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,7 +39,7 @@ public final class NormalizationTransform implements MetricObserver {
         DefaultMonitorRegistry.getInstance().register(c);
         return c;
     }
-    private static final String DEFAULT_DSTYPE = DataSourceType.RATE.name();
+    private static final DataSourceType DEFAULT_DSTYPE = DataSourceType.RATE;
     private static final Counter heartbeatExpireCount = newCounter("servo.monitor.norm.heartbeatExpireCount");
 
     private final MetricObserver observer;
@@ -73,22 +72,28 @@ public final class NormalizationTransform implements MetricObserver {
         };
     }
 
-    private static String getDataSourceType(Metric m) {
-        final TagList tags = m.getConfig().getTags();
-        final String value = tags.getValue(DataSourceType.KEY);
-        if (value != null) {
-            return value;
-        } else {
+    /** Returns the type of the metric or null if the type tag has an unknown value. */
+    private static DataSourceType getDataSourceType(Metric m) {
+        final MonitorConfig config = m.getConfig();
+        final DataSourceType type = config.getId().getDataSourceType();
+        if (type == null && !config.getTags().containsKey(DataSourceType.KEY)) {
             return DEFAULT_DSTYPE;
+        } else {
+            return type;
         }
     }
 
-    private static boolean isGauge(String dsType) {
-        return dsType.equals(DataSourceType.GAUGE.name());
+    private static boolean isGauge(DataSourceType dsType) {
+        return dsType == DataSourceType.GAUGE;
+    }
+
+    /** Distributions are a sketch of the values for the interval, not a rate to normalize. */
+    private static boolean isDistribution(DataSourceType dsType) {
+        return dsType == DataSourceType.DISTRIBUTION;
     }
 
-    private static boolean isRate(String dsType) {
-        return dsType.equals(DataSourceType.RATE.name());
+    private static boolean isRate(DataSourceType dsType) {
+        return dsType == DataSourceType.RATE;
     }
 
     private MonitorConfig toGaugeConfig(MonitorConfig config) {
@@ -114,9 +119,9 @@ public final class NormalizationTransform implements MetricObserver {
         Preconditions.checkNotNull(metrics);
         final List<Metric> newMetrics = Lists.newArrayListWithCapacity(metrics.size());
         for (Metric m : metrics) {
-            String dsType = getDataSourceType(m);
-            if (isGauge(dsType)) {
-                newMetrics.add(m); // gauges are not normalized
+            DataSourceType dsType = getDataSourceType(m);
+            if (isGauge(dsType) || isDistribution(dsType)) {
+                newMetrics.add(m); // gauges and distributions are not normalized
             } else if (isRate(dsType)) {
                 Metric normalized = normalize(m);
                 if (normalized != null) {
@@ -124,7 +129,7 @@ public final class NormalizationTransform implements MetricObserver {
                 }
             } else {
                 // TODO how to deal with this error in configuration
-                LOGGER.warn("NormalizationTransform should get only GAUGE and RATE metrics. Please use CounterToRateMetricTransform.");
+                LOGGER.warn("NormalizationTransform should get only GAUGE, RATE and DISTRIBUTION metrics. Please use CounterToRateMetricTransform.");
             }
         }
         observer.update(newMetrics);
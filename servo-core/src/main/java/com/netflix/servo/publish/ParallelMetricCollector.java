@@ -0,0 +1,135 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.publish;
+
+import com.netflix.servo.jsr166e.CountedCompleter;
+import com.netflix.servo.jsr166e.ForkJoinPool;
+import com.netflix.servo.monitor.Monitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Reads the values for a list of monitors in parallel using a fork-join pool. The list is split
+ * into chunks of consecutive monitors and each chunk is read by a single task into its own range
+ * of a shared array, so the tasks do not share any mutable state while reading. The values are
+ * then appended to a batch in the same order as the monitors.
+ */
+final class ParallelMetricCollector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelMetricCollector.class);
+
+    /** Smallest number of monitors read by a single task. */
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    /** Target number of chunks per thread in the pool so that busy threads can be balanced. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    /** Create a new instance that uses the given pool. */
+    ParallelMetricCollector(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /** Read the values for all monitors, monitors without a value are skipped. */
+    MetricBatch collect(List<Monitor<?>> monitors, long timestamp) {
+        final int size = monitors.size();
+        final int target = size / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1;
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE, target);
+        final int numChunks = (size + chunkSize - 1) / chunkSize;
+
+        final Chunks chunks = new Chunks(monitors, chunkSize);
+        if (numChunks <= 1) {
+            chunks.read(0);
+        } else {
+            pool.invoke(new ChunkTask(null, chunks, 0, numChunks));
+        }
+
+        final MetricBatch batch = new MetricBatch(size);
+        final Object[] values = chunks.values;
+        for (int i = 0; i < size; ++i) {
+            if (values[i] != null) {
+                batch.add(monitors.get(i).getConfig(), timestamp, values[i]);
+            }
+        }
+        return batch;
+    }
+
+    /** Get the value of a monitor or null if it fails. */
+    private static Object getValue(Monitor<?> monitor) {
+        try {
+            return monitor.getValue();
+        } catch (Exception e) {
+            LOGGER.warn("failed to get value for " + monitor.getConfig(), e);
+            return null;
+        }
+    }
+
+    /** Input and values for one poll, each range is only written by the task that reads it. */
+    private static final class Chunks {
+        private final List<Monitor<?>> monitors;
+        private final int chunkSize;
+        private final Object[] values;
+
+        Chunks(List<Monitor<?>> monitors, int chunkSize) {
+            this.monitors = monitors;
+            this.chunkSize = chunkSize;
+            this.values = new Object[monitors.size()];
+        }
+
+        void read(int chunk) {
+            final int start = chunk * chunkSize;
+            final int end = Math.min(monitors.size(), start + chunkSize);
+            for (int i = start; i < end; ++i) {
+                values[i] = getValue(monitors.get(i));
+            }
+        }
+    }
+
+    /**
+     * Task for a range of chunks. The upper half of the range is forked until a single chunk is
+     * left, which is read by the current task.
+     */
+    private static final class ChunkTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunks chunks;
+        private final int lo;
+        private final int hi;
+
+        ChunkTask(CountedCompleter<?> parent, Chunks chunks, int lo, int hi) {
+            super(parent);
+            this.chunks = chunks;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public void compute() {
+            int h = hi;
+            while (h - lo > 1) {
+                final int mid = (lo + h) >>> 1;
+                addToPendingCount(1);
+                new ChunkTask(this, chunks, mid, h).fork();
+                h = mid;
+            }
+            chunks.read(lo);
+            tryComplete();
+        }
+    }
+}
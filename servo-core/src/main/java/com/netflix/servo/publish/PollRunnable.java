@@ -36,6 +36,12 @@ public class PollRunnable implements Runnable {
     private final boolean reset;
     private final List<MetricObserver> observers;
 
+    /**
+     * True if the poller and all observers support {@link MetricBatch}. Batches keep the original
+     * values, so observers wrapped by a batch observer see the same metrics as with a list.
+     */
+    private final boolean useBatch;
+
     /**
      * Creates a new runnable instance that executes poll with the given filter
      * and sends the metrics to all of the given observers.
@@ -60,6 +66,16 @@ public class PollRunnable implements Runnable {
         this.filter = Preconditions.checkNotNull(filter);
         this.reset = reset;
         this.observers = ImmutableList.copyOf(observers);
+        this.useBatch = (poller instanceof BatchMetricPoller) && allBatchObservers(this.observers);
+    }
+
+    private static boolean allBatchObservers(List<MetricObserver> observers) {
+        for (MetricObserver o : observers) {
+            if (!(o instanceof BatchMetricObserver)) {
+                return false;
+            }
+        }
+        return !observers.isEmpty();
     }
 
     /**
@@ -76,6 +92,10 @@ public class PollRunnable implements Runnable {
     /** {@inheritDoc} */
     @Override
     public void run() {
+        if (useBatch) {
+            runBatch();
+            return;
+        }
         try {
             List<Metric> metrics = poller.poll(filter, reset);
             for (MetricObserver o : observers) {
@@ -89,4 +109,20 @@ public class PollRunnable implements Runnable {
             LOGGER.warn("failed to poll metrics", t);
         }
     }
+
+    /** Poll as a batch and send it to the observers. */
+    private void runBatch() {
+        try {
+            final MetricBatch batch = ((BatchMetricPoller) poller).pollBatch(filter, reset);
+            for (MetricObserver o : observers) {
+                try {
+                    ((BatchMetricObserver) o).updateBatch(batch);
+                } catch (Throwable t) {
+                    LOGGER.warn("failed to send metrics to " + o.getName(), t);
+                }
+            }
+        } catch (Throwable t) {
+            LOGGER.warn("failed to poll metrics", t);
+        }
+    }
 }
@@ -0,0 +1,368 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.stats;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable sketch of the distribution of non-negative long values that can be merged with
+ * other sketches. Values are counted in buckets with boundaries at powers of
+ * {@code gamma = (1 + a) / (1 - a)}, where {@code a} is the relative accuracy, so any percentile
+ * estimated from the sketch is within a relative error of {@code a} of an actual value. Since the
+ * bucket boundaries only depend on the relative accuracy, sketches from many instances can be
+ * merged by adding the counts and percentiles computed on the merged sketch are as accurate as if
+ * all values had been recorded in one place. This is the approach used by DDSketch.
+ *
+ * <p>The number of buckets is bounded by the range of a long: about 1100 for the default
+ * accuracy of 2%. The binary form written by {@link #toByteArray()} only includes the range of
+ * buckets that have values and uses variable length encoding for the counts.
+ */
+public final class QuantileSketch {
+
+    /** Default relative accuracy for the sketch. */
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.02;
+
+    /** Smallest relative accuracy that is supported, it needs about 22000 buckets. */
+    public static final double MIN_RELATIVE_ACCURACY = 0.001;
+
+    private static final byte VERSION = 1;
+
+    private static final int VAR_BITS = 7;
+    private static final int VAR_MASK = 0x7F;
+    private static final int VAR_MORE = 0x80;
+
+    private final double relativeAccuracy;
+    private final long count;
+    private final long total;
+
+    /** Index of the first bucket in the counts array. */
+    private final int offset;
+    private final long[] counts;
+
+    private QuantileSketch(double relativeAccuracy, long total, int offset, long[] counts) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.total = total;
+        this.offset = offset;
+        this.counts = counts;
+        long n = 0L;
+        for (long c : counts) {
+            n += c;
+        }
+        this.count = n;
+    }
+
+    /** Create an empty sketch. */
+    public static QuantileSketch empty(double relativeAccuracy) {
+        return new Builder(relativeAccuracy).build();
+    }
+
+    /** Returns the relative accuracy used for the buckets of this sketch. */
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /** Returns the number of values recorded in the sketch. */
+    public long getCount() {
+        return count;
+    }
+
+    /** Returns the sum of the values recorded in the sketch. */
+    public long getTotal() {
+        return total;
+    }
+
+    /** Returns the mean of the values recorded in the sketch or 0 if it is empty. */
+    public double getMean() {
+        return (count == 0L) ? 0.0 : (double) total / count;
+    }
+
+    /**
+     * Returns an estimate of the value for a percentile.
+     *
+     * @param percent  percentile in the range [0.0, 100.0], for example 99.0
+     * @return         estimated value or 0 if the sketch is empty
+     */
+    public double getPercentile(double percent) {
+        final double max = 100.0; // SUPPRESS CHECKSTYLE MagicNumber
+        Preconditions.checkArgument(percent >= 0.0 && percent <= max,
+                "percent must be in the range [0.0, 100.0]");
+        if (count == 0L) {
+            return 0.0;
+        }
+        final double rank = percent / max * (count - 1);
+        final double gamma = gamma(relativeAccuracy);
+        long seen = 0L;
+        int i = 0;
+        for (; i < counts.length; ++i) {
+            seen += counts[i];
+            if (seen > rank) {
+                break;
+            }
+        }
+        return bucketValue(offset + Math.min(i, counts.length - 1), gamma);
+    }
+
+    /**
+     * Returns a new sketch with the values of both this sketch and the other sketch.
+     *
+     * @throws IllegalArgumentException if the sketches use a different relative accuracy
+     */
+    public QuantileSketch merge(QuantileSketch other) {
+        return new Builder(relativeAccuracy).merge(this).merge(other).build();
+    }
+
+    /**
+     * Returns a new sketch with the values of all sketches in the collection.
+     *
+     * @throws IllegalArgumentException if the collection is empty or the sketches use a
+     *                                  different relative accuracy
+     */
+    public static QuantileSketch mergeAll(Collection<QuantileSketch> sketches) {
+        Preconditions.checkArgument(!sketches.isEmpty(), "sketches cannot be empty");
+        Builder builder = null;
+        for (QuantileSketch sketch : sketches) {
+            if (builder == null) {
+                builder = new Builder(sketch.relativeAccuracy);
+            }
+            builder.merge(sketch);
+        }
+        return builder.build();
+    }
+
+    /** Encode the sketch in a compact binary form that can be decoded with fromByteArray. */
+    public byte[] toByteArray() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(32 + counts.length * 2);
+        out.write(VERSION);
+        writeLong(out, Double.doubleToLongBits(relativeAccuracy));
+        writeVarLong(out, total);
+        writeVarLong(out, offset);
+        writeVarLong(out, counts.length);
+        for (long c : counts) {
+            writeVarLong(out, c);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a sketch that was encoded with {@link #toByteArray()}.
+     *
+     * @throws IllegalArgumentException if the data is not a valid sketch
+     */
+    public static QuantileSketch fromByteArray(byte[] data) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            final byte version = buffer.get();
+            Preconditions.checkArgument(version == VERSION, "unsupported version: %s", version);
+            final double accuracy = Double.longBitsToDouble(buffer.getLong());
+            checkRelativeAccuracy(accuracy);
+            final long total = readVarLong(buffer);
+            final long offset = readVarLong(buffer);
+            final long length = readVarLong(buffer);
+            Preconditions.checkArgument(offset >= 0L && length >= 0L
+                    && offset + length <= numBuckets(accuracy), "invalid bucket range");
+            final long[] counts = new long[(int) length];
+            for (int i = 0; i < counts.length; ++i) {
+                counts[i] = readVarLong(buffer);
+                Preconditions.checkArgument(counts[i] >= 0L, "invalid count");
+            }
+            Preconditions.checkArgument(!buffer.hasRemaining(), "unexpected data after sketch");
+            return new QuantileSketch(accuracy, total, (int) offset, counts);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated sketch data", e);
+        }
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long v) {
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            out.write((int) (v >>> shift));
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        long n = v;
+        while ((n & ~VAR_MASK) != 0L) {
+            out.write((int) ((n & VAR_MASK) | VAR_MORE));
+            n >>>= VAR_BITS;
+        }
+        out.write((int) n);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long v = 0L;
+        for (int shift = 0; shift < Long.SIZE; shift += VAR_BITS) {
+            final int b = buffer.get();
+            v |= (long) (b & VAR_MASK) << shift;
+            if ((b & VAR_MORE) == 0) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("malformed variable length value");
+    }
+
+    private static void checkRelativeAccuracy(double accuracy) {
+        Preconditions.checkArgument(accuracy >= MIN_RELATIVE_ACCURACY && accuracy < 1.0,
+                "relative accuracy must be in the interval [%s, 1.0)", MIN_RELATIVE_ACCURACY);
+    }
+
+    private static double gamma(double accuracy) {
+        return (1.0 + accuracy) / (1.0 - accuracy);
+    }
+
+    /** Number of buckets needed to cover all non-negative long values. */
+    private static int numBuckets(double accuracy) {
+        return bucketIndex(Long.MAX_VALUE, Math.log(gamma(accuracy)), Integer.MAX_VALUE) + 1;
+    }
+
+    /**
+     * Bucket 0 is used for zero, bucket {@code k + 1} has the values in the range
+     * {@code (gamma^(k-1), gamma^k]}.
+     */
+    private static int bucketIndex(long v, double logGamma, int numBuckets) {
+        if (v <= 0L) {
+            return 0;
+        }
+        final int idx = (int) Math.ceil(Math.log(v) / logGamma) + 1;
+        return Math.min(idx, numBuckets - 1);
+    }
+
+    /** Value in the middle of the bucket, its relative error is at most the accuracy. */
+    private static double bucketValue(int idx, double gamma) {
+        return (idx == 0) ? 0.0 : 2.0 * Math.pow(gamma, idx - 1) / (gamma + 1.0);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || !(obj instanceof QuantileSketch)) {
+            return false;
+        }
+        QuantileSketch s = (QuantileSketch) obj;
+        return relativeAccuracy == s.relativeAccuracy
+                && total == s.total
+                && offset == s.offset
+                && Arrays.equals(counts, s.counts);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(relativeAccuracy, total, offset, Arrays.hashCode(counts));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("relativeAccuracy", relativeAccuracy)
+                .add("count", count)
+                .add("total", total)
+                .add("offset", offset)
+                .add("counts", Arrays.toString(counts))
+                .toString();
+    }
+
+    /**
+     * Mutable builder for a sketch. The builder is not thread safe, for concurrent updates the
+     * bucket index can be computed with {@link #bucketIndex(long)} and the counts accumulated
+     * separately before adding them with {@link #addBucket(int, long)}.
+     */
+    public static final class Builder {
+        private final double relativeAccuracy;
+        private final double logGamma;
+        private final long[] counts;
+        private long total;
+
+        /** Create a new builder for sketches with the given relative accuracy. */
+        public Builder(double relativeAccuracy) {
+            checkRelativeAccuracy(relativeAccuracy);
+            this.relativeAccuracy = relativeAccuracy;
+            this.logGamma = Math.log(gamma(relativeAccuracy));
+            this.counts = new long[QuantileSketch.numBuckets(relativeAccuracy)];
+        }
+
+        /** Returns the number of buckets used for the relative accuracy of this builder. */
+        public int numBuckets() {
+            return counts.length;
+        }
+
+        /** Returns the index of the bucket for a value, negative values map to bucket 0. */
+        public int bucketIndex(long v) {
+            return QuantileSketch.bucketIndex(v, logGamma, counts.length);
+        }
+
+        /** Record a non-negative value, negative values are ignored. */
+        public Builder record(long v) {
+            if (v >= 0L) {
+                ++counts[bucketIndex(v)];
+                total += v;
+            }
+            return this;
+        }
+
+        /** Add a count to a bucket, the total must be updated separately with addTotal. */
+        public Builder addBucket(int idx, long n) {
+            counts[idx] += n;
+            return this;
+        }
+
+        /** Add to the total of the recorded values. */
+        public Builder addTotal(long amount) {
+            total += amount;
+            return this;
+        }
+
+        /**
+         * Add the values from a sketch.
+         *
+         * @throws IllegalArgumentException if the sketch uses a different relative accuracy
+         */
+        public Builder merge(QuantileSketch sketch) {
+            Preconditions.checkArgument(sketch.relativeAccuracy == relativeAccuracy,
+                    "cannot merge sketches with relative accuracy %s and %s",
+                    relativeAccuracy, sketch.relativeAccuracy);
+            for (int i = 0; i < sketch.counts.length; ++i) {
+                counts[sketch.offset + i] += sketch.counts[i];
+            }
+            total += sketch.total;
+            return this;
+        }
+
+        /** Create an immutable sketch with the values added so far. */
+        public QuantileSketch build() {
+            int first = 0;
+            while (first < counts.length && counts[first] == 0L) {
+                ++first;
+            }
+            int last = counts.length;
+            while (last > first && counts[last - 1] == 0L) {
+                --last;
+            }
+            final int offset = (first == last) ? 0 : first;
+            return new QuantileSketch(relativeAccuracy, total, offset,
+                    Arrays.copyOfRange(counts, first, last));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.stats;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A buffer that many threads can record values into while a single thread periodically drains
+ * the values recorded since the last drain into a {@link StatsBuffer}.
+ * <p>
+ * The count, total, min, max and moments are kept exactly for every value in a set of stripes,
+ * each of them only shared by the threads that hash to it. The values themselves go into a
+ * lock-free circular buffer that is only used as the sample for the percentiles: writers claim a
+ * slot by incrementing an atomic index and never block, even while a drain is in progress. Each
+ * slot is stamped with the index that wrote it so the reader can skip slots that have been
+ * overwritten or are still being written.
+ */
+public final class RecordingBuffer {
+    /** Number of times the reader will yield waiting for a claimed slot to be written. */
+    private static final int MAX_SPINS = 16;
+
+    private static final int MAX_STRIPES = 64;
+
+    private static final long WRITING = -1L;
+
+    /** Running summary of the values recorded by the threads that map to a stripe. */
+    private static final class Stripe {
+        private long count;
+        private long total;
+        private long min;
+        private long max;
+        private double mean;
+        private double m2;
+
+        synchronized void record(long n) {
+            if (count == 0) {
+                min = n;
+                max = n;
+            } else {
+                min = Math.min(min, n);
+                max = Math.max(max, n);
+            }
+            ++count;
+            total += n;
+            final double delta = n - mean;
+            mean += delta / count;
+            m2 += delta * (n - mean);
+        }
+
+        synchronized long drainTo(StatsBuffer buffer) {
+            final long n = count;
+            buffer.merge(count, total, min, max, mean, m2);
+            count = 0L;
+            total = 0L;
+            min = 0L;
+            max = 0L;
+            mean = 0.0;
+            m2 = 0.0;
+            return n;
+        }
+    }
+
+    private final int size;
+    private final AtomicLongArray values;
+    private final AtomicLongArray stamps;
+    private final AtomicLong position = new AtomicLong(0L);
+    private final Stripe[] stripes;
+
+    /** Position of the first value that has not been drained. Only accessed by the reader. */
+    private long drained = 0L;
+
+    /**
+     * Create a new buffer.
+     * @param size  the capacity of the sample used for the percentiles. If more values are
+     *              recorded between two calls to {@link #drainTo(StatsBuffer)} only the most
+     *              recent ones are used for the percentiles, all of them are counted for the
+     *              other stats.
+     */
+    public RecordingBuffer(int size) {
+        Preconditions.checkArgument(size > 0, "Size of the buffer must be greater than 0");
+        this.size = size;
+        this.values = new AtomicLongArray(size);
+        this.stamps = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            stamps.set(i, WRITING);
+        }
+
+        int numStripes = 1;
+        final int cpus = Runtime.getRuntime().availableProcessors();
+        while (numStripes < 2 * cpus && numStripes < MAX_STRIPES) {
+            numStripes <<= 1;
+        }
+        this.stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; ++i) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Record a new value. This method is safe to call from any number of threads.
+     */
+    public void record(long n) {
+        final long pos = position.getAndIncrement();
+        final int idx = (int) (pos % size);
+        stamps.lazySet(idx, WRITING);
+        values.lazySet(idx, n);
+        stamps.lazySet(idx, pos);
+
+        final int stripe = (int) Thread.currentThread().getId() & (stripes.length - 1);
+        stripes[stripe].record(n);
+    }
+
+    /**
+     * Move all values recorded since the last call into the stats buffer. This method must only
+     * be called by one thread at a time.
+     *
+     * @return the number of values that were added to the stats buffer
+     */
+    public long drainTo(StatsBuffer buffer) {
+        final long end = position.get();
+        final long start = Math.max(drained, end - size);
+        for (long pos = start; pos < end; ++pos) {
+            final int idx = (int) (pos % size);
+            long stamp = stamps.get(idx);
+            for (int i = 0; stamp < pos && i < MAX_SPINS; ++i) {
+                Thread.yield();
+                stamp = stamps.get(idx);
+            }
+            final long v = values.get(idx);
+            if (stamp == pos && stamps.get(idx) == pos) {
+                buffer.recordSample(v);
+            }
+        }
+        drained = end;
+
+        long n = 0L;
+        for (Stripe stripe : stripes) {
+            n += stripe.drainTo(buffer);
+        }
+        return n;
+    }
+
+    /**
+     * Get the capacity of this buffer.
+     */
+    public int getSize() {
+        return size;
+    }
+}
@@ -21,13 +21,28 @@ import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * A simple circular buffer that records values, and computes useful stats. This implementation is not thread
+ * A simple circular buffer that records values, and computes useful stats. The mean and variance are
+ * maintained incrementally for all values recorded using Welford's method, while the min, max and
+ * percentiles are computed from the values currently in the buffer. This implementation is not thread
  * safe.
+ * <p>
+ * Summaries computed elsewhere can be added with
+ * {@link #merge(long, long, long, long, double, double)} and samples that should only be used for
+ * the percentiles with {@link #recordSample(long)}. The min and max are then exact for all values
+ * merged rather than for the values in the buffer.
  */
 public class StatsBuffer {
+    /** Ranges smaller than this are sorted rather than partitioned when selecting percentiles. */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
     private int count;
+    private int samples;
+    private boolean mergedExtremes;
+    private long mergedMin;
+    private long mergedMax;
+    private double runningMean;
+    private double runningM2;
     private double mean;
-    private double sumSquares;
     private double variance;
     private double stddev;
     private long min;
@@ -72,13 +87,18 @@ public class StatsBuffer {
     public void reset() {
         statsComputed.set(false);
         count = 0;
+        samples = 0;
+        mergedExtremes = false;
+        mergedMin = 0L;
+        mergedMax = 0L;
         total = 0L;
         mean = 0.0;
         variance = 0.0;
         stddev = 0.0;
         min = 0L;
         max = 0L;
-        sumSquares = 0.0;
+        runningMean = 0.0;
+        runningM2 = 0.0;
         for (int i = 0; i < percentileValues.length; ++i) {
             percentileValues[i] = 0.0;
         }
@@ -88,9 +108,50 @@ public class StatsBuffer {
      * Record a new value for this buffer.
      */
     public void record(long n) {
-        values[count++ % size] = n;
+        recordSample(n);
+        ++count;
         total += n;
-        sumSquares += n * n;
+        final double delta = n - runningMean;
+        runningMean += delta / count;
+        runningM2 += delta * (n - runningMean);
+    }
+
+    /**
+     * Record a value that is only used to compute the percentiles. The count, total and moments
+     * for it are expected to be added with {@link #merge(long, long, long, long, double, double)}.
+     */
+    public void recordSample(long n) {
+        values[samples++ % size] = n;
+    }
+
+    /**
+     * Add the summary of a set of values that were recorded elsewhere.
+     *
+     * @param n     number of values
+     * @param sum   sum of the values
+     * @param lo    min of the values
+     * @param hi    max of the values
+     * @param m     mean of the values
+     * @param m2    sum of the squared differences from the mean of the values
+     */
+    public void merge(long n, long sum, long lo, long hi, double m, double m2) {
+        if (n <= 0) {
+            return;
+        }
+        final long newCount = count + n;
+        final double delta = m - runningMean;
+        runningMean += delta * n / newCount;
+        runningM2 += m2 + delta * delta * count * n / newCount;
+        count = (int) newCount;
+        total += sum;
+        if (mergedExtremes) {
+            mergedMin = Math.min(mergedMin, lo);
+            mergedMax = Math.max(mergedMax, hi);
+        } else {
+            mergedExtremes = true;
+            mergedMin = lo;
+            mergedMax = hi;
+        }
     }
 
     /**
@@ -101,16 +162,115 @@ public class StatsBuffer {
 
         if (count == 0) return;
 
-        int curSize = Math.min(count, size);
-        Arrays.sort(values, 0, curSize); // to compute percentileValues
-        min = values[0];
-        max = values[curSize - 1];
-        mean = (double)total / count;
-        variance = (sumSquares / curSize) - (mean * mean);
+        int curSize = Math.min(samples, size);
+        if (curSize > 0) {
+            selectRanks(curSize); // to compute min, max and percentileValues
+            min = values[0];
+            max = values[curSize - 1];
+        }
+        if (mergedExtremes) {
+            min = mergedMin;
+            max = mergedMax;
+        }
+        mean = runningMean;
+        variance = runningM2 / count;
         stddev = Math.sqrt(variance);
         computePercentiles(curSize);
     }
 
+    /**
+     * Partially order the values so that every position needed for the min, max and percentiles
+     * holds the value it would have if the buffer was sorted. This is linear in the size of the
+     * buffer for a small number of percentiles rather than the n log n cost of a full sort.
+     */
+    private void selectRanks(int curSize) {
+        final int[] ranks = new int[2 * percentiles.length + 2];
+        int n = 0;
+        ranks[n++] = 0;
+        ranks[n++] = curSize - 1;
+        for (double percent : percentiles) {
+            final double rank = percent * curSize / 100.0; // SUPPRESS CHECKSTYLE MagicNumber
+            final int ir = (int) Math.floor(rank);
+            if (ir < curSize) {
+                ranks[n++] = ir;
+            }
+            if (ir + 1 < curSize) {
+                ranks[n++] = ir + 1;
+            }
+        }
+        Arrays.sort(ranks, 0, n);
+        select(0, curSize - 1, ranks, 0, n - 1);
+    }
+
+    /**
+     * Multi-quickselect: place the values for ranks[rLo..rHi] into their sorted position within
+     * values[lo..hi]. Uses a three-way partition so that runs of equal values, which are common
+     * for timings, do not degrade to quadratic time.
+     */
+    private void select(int lo, int hi, int[] ranks, int rLo, int rHi) {
+        while (rLo <= rHi && lo < hi) {
+            if (hi - lo < INSERTION_SORT_THRESHOLD) {
+                insertionSort(lo, hi);
+                return;
+            }
+
+            final long pivot = medianOfThree(values[lo], values[lo + (hi - lo) / 2], values[hi]);
+            int lt = lo;
+            int gt = hi;
+            int i = lo;
+            while (i <= gt) {
+                final long v = values[i];
+                if (v < pivot) {
+                    swap(lt++, i++);
+                } else if (v > pivot) {
+                    swap(i, gt--);
+                } else {
+                    ++i;
+                }
+            }
+
+            // values[lt..gt] are equal to the pivot and in their final position
+            int leftEnd = rLo;
+            while (leftEnd <= rHi && ranks[leftEnd] < lt) {
+                ++leftEnd;
+            }
+            int rightStart = leftEnd;
+            while (rightStart <= rHi && ranks[rightStart] <= gt) {
+                ++rightStart;
+            }
+
+            select(lo, lt - 1, ranks, rLo, leftEnd - 1);
+            lo = gt + 1;
+            rLo = rightStart;
+        }
+    }
+
+    private static long medianOfThree(long a, long b, long c) {
+        if (a < b) {
+            return (b < c) ? b : Math.max(a, c);
+        } else {
+            return (a < c) ? a : Math.max(b, c);
+        }
+    }
+
+    private void insertionSort(int lo, int hi) {
+        for (int i = lo + 1; i <= hi; ++i) {
+            final long v = values[i];
+            int j = i - 1;
+            while (j >= lo && values[j] > v) {
+                values[j + 1] = values[j];
+                --j;
+            }
+            values[j + 1] = v;
+        }
+    }
+
+    private void swap(int i, int j) {
+        final long tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+
     private void computePercentiles(int curSize) {
         for (int i = 0; i < percentiles.length; ++i) {
             percentileValues[i] = calcPercentile(curSize, percentiles[i]);
@@ -0,0 +1,283 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.tag;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable tag list backed by parallel arrays of keys and values sorted by key. This uses much
+ * less memory than {@link BasicTagList} and looking up a key is a binary search. Tag objects are
+ * only created when iterating or calling {@link #getTag(String)}. An ArrayTagList is equal to a
+ * {@link BasicTagList} with the same tags and has the same hash code.
+ */
+public final class ArrayTagList implements TagList {
+
+    private static final String[] EMPTY_ARRAY = new String[0];
+
+    /** An empty tag list. */
+    public static final ArrayTagList EMPTY = new ArrayTagList(EMPTY_ARRAY, EMPTY_ARRAY);
+
+    private final String[] keys;
+    private final String[] values;
+    private final int hash;
+
+    /**
+     * Creates a new instance with a fixed set of tags. If there are multiple tags with the same
+     * key, the last one will be used.
+     *
+     * @param entries  entries to include in this tag list
+     */
+    public ArrayTagList(Iterable<Tag> entries) {
+        String[] ks = new String[4];
+        String[] vs = new String[4];
+        int n = 0;
+        for (Tag t : entries) {
+            final String k = t.getKey();
+            final int pos = Arrays.binarySearch(ks, 0, n, k);
+            if (pos >= 0) {
+                vs[pos] = Tags.intern(t.getValue());
+            } else {
+                if (n == ks.length) {
+                    ks = Arrays.copyOf(ks, n * 2);
+                    vs = Arrays.copyOf(vs, n * 2);
+                }
+                final int i = -(pos + 1);
+                System.arraycopy(ks, i, ks, i + 1, n - i);
+                System.arraycopy(vs, i, vs, i + 1, n - i);
+                ks[i] = Tags.intern(k);
+                vs[i] = Tags.intern(t.getValue());
+                ++n;
+            }
+        }
+        this.keys = (n == ks.length) ? ks : Arrays.copyOf(ks, n);
+        this.values = (n == vs.length) ? vs : Arrays.copyOf(vs, n);
+        this.hash = computeHash(keys, values);
+    }
+
+    private ArrayTagList(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.hash = computeHash(keys, values);
+    }
+
+    /** Same value as the hash code of a {@link BasicTagList} with the same tags. */
+    private static int computeHash(String[] keys, String[] values) {
+        int h = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            final int tagHash = 31 * (31 + keys[i].hashCode()) + values[i].hashCode();
+            h += keys[i].hashCode() ^ tagHash;
+        }
+        return 31 + h;
+    }
+
+    /** Returns the key of the tag at a given position, tags are sorted by key. */
+    public String getKey(int i) {
+        return keys[i];
+    }
+
+    /** Returns the value of the tag at a given position, tags are sorted by key. */
+    public String getValue(int i) {
+        return values[i];
+    }
+
+    /** {@inheritDoc} */
+    public Tag getTag(String key) {
+        final int i = Arrays.binarySearch(keys, key);
+        return (i < 0) ? null : new BasicTag(keys[i], values[i]);
+    }
+
+    /** {@inheritDoc} */
+    public String getValue(String key) {
+        final int i = Arrays.binarySearch(keys, key);
+        return (i < 0) ? null : values[i];
+    }
+
+    /** {@inheritDoc} */
+    public boolean containsKey(String key) {
+        return Arrays.binarySearch(keys, key) >= 0;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /** {@inheritDoc} */
+    public int size() {
+        return keys.length;
+    }
+
+    /** {@inheritDoc} */
+    public Iterator<Tag> iterator() {
+        return new Iterator<Tag>() {
+            private int pos = 0;
+
+            @Override
+            public boolean hasNext() {
+                return pos < keys.length;
+            }
+
+            @Override
+            public Tag next() {
+                if (pos >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                final Tag t = new BasicTag(keys[pos], values[pos]);
+                ++pos;
+                return t;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, String> asMap() {
+        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (int i = 0; i < keys.length; ++i) {
+            builder.put(keys[i], values[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns a new tag list with additional tags from {@code tags}. If there
+     * is a conflict with tag keys the tag from {@code tags} will be used.
+     */
+    public ArrayTagList copy(TagList tags) {
+        if (tags.isEmpty()) {
+            return this;
+        }
+        final ArrayTagList other = (tags instanceof ArrayTagList)
+                ? (ArrayTagList) tags
+                : new ArrayTagList(tags);
+        if (isEmpty()) {
+            return other;
+        }
+        final int n = keys.length;
+        final int m = other.keys.length;
+        String[] ks = new String[n + m];
+        String[] vs = new String[n + m];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < n || j < m) {
+            final int cmp = (i == n) ? 1 : (j == m) ? -1 : keys[i].compareTo(other.keys[j]);
+            if (cmp < 0) {
+                ks[size] = keys[i];
+                vs[size] = values[i];
+                ++i;
+            } else {
+                ks[size] = other.keys[j];
+                vs[size] = other.values[j];
+                ++j;
+                if (cmp == 0) {
+                    ++i;
+                }
+            }
+            ++size;
+        }
+        if (size < ks.length) {
+            ks = Arrays.copyOf(ks, size);
+            vs = Arrays.copyOf(vs, size);
+        }
+        return new ArrayTagList(ks, vs);
+    }
+
+    /**
+     * Returns a new tag list with an additional tag. If {@code key} is
+     * already present in this tag list the value will be overwritten with
+     * {@code value}.
+     */
+    public ArrayTagList copy(String key, String value) {
+        final String k = Tags.intern(key);
+        final String v = Tags.intern(value);
+        final int pos = Arrays.binarySearch(keys, k);
+        if (pos >= 0) {
+            final String[] vs = values.clone();
+            vs[pos] = v;
+            return new ArrayTagList(keys, vs);
+        }
+        final int i = -(pos + 1);
+        final int n = keys.length;
+        final String[] ks = new String[n + 1];
+        final String[] vs = new String[n + 1];
+        System.arraycopy(keys, 0, ks, 0, i);
+        System.arraycopy(values, 0, vs, 0, i);
+        ks[i] = k;
+        vs[i] = v;
+        System.arraycopy(keys, i, ks, i + 1, n - i);
+        System.arraycopy(values, i, vs, i + 1, n - i);
+        return new ArrayTagList(ks, vs);
+    }
+
+    /**
+     * Returns true if the other object is an ArrayTagList or {@link BasicTagList} with the same
+     * tags.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof ArrayTagList) {
+            final ArrayTagList other = (ArrayTagList) obj;
+            return hash == other.hash
+                    && Arrays.equals(keys, other.keys)
+                    && Arrays.equals(values, other.values);
+        }
+        if (obj instanceof BasicTagList) {
+            final TagList other = (TagList) obj;
+            if (other.size() != keys.length || other.hashCode() != hash) {
+                return false;
+            }
+            for (int i = 0; i < keys.length; ++i) {
+                if (!values[i].equals(other.getValue(keys[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < keys.length; ++i) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(keys[i]).append('=').append(values[i]);
+        }
+        return builder.toString();
+    }
+}
@@ -118,7 +118,8 @@ public final class BasicTagList implements TagList {
         if (this == obj) {
             return true;
         } else {
-            return (obj instanceof BasicTagList) && tagMap.equals(((BasicTagList) obj).tagMap);
+            return ((obj instanceof BasicTagList) && tagMap.equals(((BasicTagList) obj).tagMap))
+                || ((obj instanceof ArrayTagList) && obj.equals(this));
         }
     }
 
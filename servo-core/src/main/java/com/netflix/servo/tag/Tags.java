@@ -16,17 +16,20 @@
 package com.netflix.servo.tag;
 
 import com.google.common.collect.Interner;
-import com.google.common.collect.Interners;
+import com.netflix.servo.util.ShardedInterner;
 
 /**
  * Helper functions for working with tags and tag lists.
  */
 public final class Tags {
-    /** Keep track of the strings that have been used for keys and values. */
-    private static final Interner<String> STR_CACHE = Interners.newWeakInterner();
+    /**
+     * Keep track of the strings that have been used for keys and values. The interners are
+     * sharded to reduce contention when many threads create tags, see {@link ShardedInterner}.
+     */
+    private static final Interner<String> STR_CACHE = new ShardedInterner<String>();
 
     /** Keep track of tags that have been seen before and reuse. */
-    private static final Interner<Tag> TAG_CACHE = Interners.newWeakInterner();
+    private static final Interner<Tag> TAG_CACHE = new ShardedInterner<Tag>();
 
     /** Intern strings used for tag keys or values. */
     public static String intern(String v) {
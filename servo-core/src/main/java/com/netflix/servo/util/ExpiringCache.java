@@ -17,66 +17,96 @@ package com.netflix.servo.util;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.jsr166e.ConcurrentHashMapV8;
+import com.netflix.servo.jsr166e.LongAdder;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A semi-persistent mapping from keys to values. Values are automatically loaded
  * by the cache, and are stored in the cache until evicted.
  *
+ * <p>Entries are tracked in a timer wheel with one slot per expiration interval. An entry is
+ * added to the slot for the interval of its last access, so expiring entries only needs to look
+ * at the slots that have become too old instead of scanning the whole map. The access time is
+ * only written the first time an entry is used in an interval, so reads of hot keys do not write
+ * to shared memory. If a maximum size is set, the least recently used entries are evicted when
+ * the cache grows beyond it. Eviction removes a batch of entries at a time so its cost is
+ * amortized over many inserts, and is done by the thread that inserts an entry only if no other
+ * thread is already evicting, otherwise it is left to that thread. An inserting thread only waits
+ * for another thread to finish evicting if the cache has grown a full batch over the maximum.
+ *
  * @param <K> The type of keys maintained
  * @param <V> The type of values maintained
  */
 public class ExpiringCache<K, V> {
-    private final ConcurrentHashMapV8<K, Entry<V>> map;
+    /** Eviction removes 1/16 of the maximum size at a time. */
+    private static final int EVICTION_BATCH_SHIFT = 4;
+
+    private final ConcurrentHashMapV8<K, Entry<K, V>> map;
     private final long expireAfterMs;
-    private final ConcurrentHashMapV8.Fun<K, Entry<V>> entryGetter;
+    private final ConcurrentHashMapV8.Fun<K, Entry<K, V>> entryGetter;
     private final Clock clock;
+    private final int maxSize;
 
-    private static class Entry<V> {
-        private volatile long accessTime;
-        private final V value;
-        private final Clock clock;
+    /** Size the cache is reduced to when it grows beyond the maximum size. */
+    private final int lowWaterMark;
 
-        private Entry(V value, long accessTime, Clock clock) {
-            this.value = value;
-            this.accessTime = accessTime;
-            this.clock = clock;
-        }
+    /**
+     * Size above which an inserting thread waits for the lock to evict instead of leaving it to
+     * the thread that holds it, so the cache never grows more than a batch over the maximum.
+     */
+    private final int highWaterMark;
 
-        private V getValue() {
-            accessTime = clock.now();
-            return value;
-        }
+    /** Width of a slot in the timer wheel. */
+    private final long tickMs;
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
+    /** Number of ticks after which an entry that has not been accessed will be expired. */
+    private final long expireTicks;
 
-            Entry entry = (Entry) o;
+    /**
+     * Entries in each slot of the wheel. An entry can also be in older slots if it was accessed
+     * since it was added, those references are ignored when the slot is processed.
+     */
+    private final ConcurrentLinkedQueue<Entry<K, V>>[] wheel;
 
-            return accessTime == entry.accessTime && value.equals(entry.value);
-        }
+    /** Guards removing entries from the wheel. */
+    private final Lock lock = new ReentrantLock();
 
-        @Override
-        public int hashCode() {
-            int result = (int) (accessTime ^ (accessTime >>> 32));
-            result = 31 * result + value.hashCode();
-            return result;
+    /** Most recent tick that has been expired, guarded by the lock. */
+    private long lastExpiredTick;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static class Entry<K, V> {
+        private final K key;
+        private final V value;
+
+        /** Tick of the last access, -1 until the entry has been added to the wheel. */
+        private final AtomicLong tick = new AtomicLong(-1L);
+
+        private Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
         }
 
         @Override
         public String toString() {
             return "Entry{" +
-                    "accessTime=" + accessTime +
+                    "tick=" + tick +
                     ", value=" + value +
                     '}';
         }
@@ -103,6 +133,19 @@ public class ExpiringCache<K, V> {
         this(expireAfterMs, getter, TimeUnit.MINUTES.toMillis(1), Clock.WALL);
     }
 
+    /**
+     * Create a new ExpiringCache that will expire entries after a given number of milliseconds
+     * and evict the least recently used entries if there are more than {@code maxSize}.
+     *
+     * @param expireAfterMs Number of milliseconds after which entries will be evicted
+     * @param getter        Function that will be used to compute the values
+     * @param maxSize       Maximum number of entries to keep in the cache
+     */
+    public ExpiringCache(final long expireAfterMs, final ConcurrentHashMapV8.Fun<K, V> getter,
+                         final int maxSize) {
+        this(expireAfterMs, getter, maxSize, TimeUnit.MINUTES.toMillis(1), Clock.WALL);
+    }
+
     /**
      * For unit tests.
      * Create a new ExpiringCache that will expire entries after a given number of milliseconds
@@ -114,31 +157,56 @@ public class ExpiringCache<K, V> {
      */
     public ExpiringCache(final long expireAfterMs, final ConcurrentHashMapV8.Fun<K, V> getter,
                          final long expirationFreqMs, final Clock clock) {
+        this(expireAfterMs, getter, Integer.MAX_VALUE, expirationFreqMs, clock);
+    }
+
+    /**
+     * Create a new ExpiringCache that will expire entries after a given number of milliseconds
+     * computing the values as needed using the given getter.
+     *
+     * @param expireAfterMs    Number of milliseconds after which entries will be evicted
+     * @param getter           Function that will be used to compute the values
+     * @param maxSize          Maximum number of entries to keep in the cache
+     * @param expirationFreqMs Frequency at which to schedule the job that evicts entries from
+     *                         the cache, this is also the granularity of the access time.
+     * @param clock            Clock used for the access time
+     */
+    @SuppressWarnings("unchecked")
+    public ExpiringCache(final long expireAfterMs, final ConcurrentHashMapV8.Fun<K, V> getter,
+                         final int maxSize, final long expirationFreqMs, final Clock clock) {
         Preconditions.checkArgument(expireAfterMs > 0, "expireAfterMs must be positive.");
         Preconditions.checkArgument(expirationFreqMs > 0, "expirationFreqMs must be positive.");
-        this.map = new ConcurrentHashMapV8<K, Entry<V>>();
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be positive.");
+        this.map = new ConcurrentHashMapV8<K, Entry<K, V>>();
         this.expireAfterMs = expireAfterMs;
         this.entryGetter = toEntry(getter);
         this.clock = clock;
+        this.maxSize = maxSize;
+        this.lowWaterMark = maxSize - (maxSize >> EVICTION_BATCH_SHIFT);
+        final long highWater = (long) maxSize + (maxSize >> EVICTION_BATCH_SHIFT);
+        this.highWaterMark = (int) Math.min(Integer.MAX_VALUE, highWater);
+        this.tickMs = expirationFreqMs;
+        this.expireTicks = (expireAfterMs + expirationFreqMs - 1) / expirationFreqMs;
+        this.wheel = new ConcurrentLinkedQueue[(int) Math.min(expireTicks + 2, Integer.MAX_VALUE)];
+        for (int i = 0; i < wheel.length; ++i) {
+            wheel[i] = new ConcurrentLinkedQueue<Entry<K, V>>();
+        }
+        this.lastExpiredTick = clock.now() / tickMs - 1;
         final Runnable expirationJob = new Runnable() {
             @Override
             public void run() {
-                long tooOld = clock.now() - expireAfterMs;
-                for (Map.Entry<K, Entry<V>> entry : map.entrySet()) {
-                    if (entry.getValue().accessTime < tooOld) {
-                        map.remove(entry.getKey(), entry.getValue());
-                    }
-                }
+                expire();
             }
         };
         service.scheduleWithFixedDelay(expirationJob, 1, expirationFreqMs, TimeUnit.MILLISECONDS);
     }
 
-    private ConcurrentHashMapV8.Fun<K, Entry<V>> toEntry(final ConcurrentHashMapV8.Fun<K, V> underlying) {
-        return new ConcurrentHashMapV8.Fun<K, Entry<V>>() {
+    private ConcurrentHashMapV8.Fun<K, Entry<K, V>> toEntry(
+            final ConcurrentHashMapV8.Fun<K, V> underlying) {
+        return new ConcurrentHashMapV8.Fun<K, Entry<K, V>>() {
             @Override
-            public Entry<V> apply(K key) {
-                return new Entry<V>(underlying.apply(key), 0L, clock);
+            public Entry<K, V> apply(K key) {
+                return new Entry<K, V>(key, underlying.apply(key));
             }
         };
     }
@@ -147,8 +215,157 @@ public class ExpiringCache<K, V> {
      * Get the (possibly cached) value for a given key.
      */
     public V get(final K key) {
-        Entry<V> entry = map.computeIfAbsent(key, entryGetter);
-        return entry.getValue();
+        Entry<K, V> entry = map.get(key);
+        if (entry == null) {
+            misses.increment();
+            entry = map.computeIfAbsent(key, entryGetter);
+            touch(entry);
+            evictIfNeeded();
+        } else {
+            hits.increment();
+            touch(entry);
+        }
+        return entry.value;
+    }
+
+    /**
+     * Get the cached value for a given key without loading it.
+     *
+     * @return the value, or null if there is no entry for the key
+     */
+    public V getIfPresent(final K key) {
+        final Entry<K, V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        hits.increment();
+        touch(entry);
+        return entry.value;
+    }
+
+    /**
+     * Update the access time of the entry. This only writes if it is the first access in the
+     * current tick, in which case the entry is added to the slot for the tick.
+     */
+    private void touch(Entry<K, V> entry) {
+        final long now = clock.now() / tickMs;
+        final long last = entry.tick.get();
+        if (last < now && entry.tick.compareAndSet(last, now)) {
+            wheel[slot(now)].add(entry);
+        }
+    }
+
+    private int slot(long tick) {
+        final int s = (int) (tick % wheel.length);
+        return (s < 0) ? s + wheel.length : s;
+    }
+
+    /**
+     * Remove entries in a slot of the wheel that were last accessed on or before the cutoff,
+     * stopping once {@code limit} entries have been removed. References to entries that have been
+     * accessed since they were added to this slot are dropped as the entries will also be in a
+     * more recent slot. Must be called with the lock held.
+     *
+     * @return number of entries that were removed from the map
+     */
+    private int drain(int slot, long cutoff, int limit) {
+        final ConcurrentLinkedQueue<Entry<K, V>> queue = wheel[slot];
+        List<Entry<K, V>> keep = null;
+        int removed = 0;
+        Entry<K, V> entry;
+        while (removed < limit && (entry = queue.poll()) != null) {
+            final long t = entry.tick.get();
+            if (slot(t) != slot) {
+                continue;
+            }
+            if (t <= cutoff) {
+                if (map.remove(entry.key, entry)) {
+                    ++removed;
+                }
+            } else {
+                // only possible if the clock moved backwards
+                if (keep == null) {
+                    keep = Lists.newArrayList();
+                }
+                keep.add(entry);
+            }
+        }
+        if (keep != null) {
+            queue.addAll(keep);
+        }
+        evictions.add(removed);
+        return removed;
+    }
+
+    /**
+     * Remove all entries that have not been accessed within the expiration time, then evict
+     * entries if the cache is still over the maximum size.
+     */
+    void expire() {
+        lock.lock();
+        try {
+            final long cutoff = clock.now() / tickMs - expireTicks - 1;
+            if (cutoff < lastExpiredTick) {
+                // clock moved backwards, entries may have been added to slots already processed
+                lastExpiredTick = cutoff - wheel.length;
+            }
+            if (cutoff - lastExpiredTick >= wheel.length) {
+                for (int i = 0; i < wheel.length; ++i) {
+                    drain(i, cutoff, Integer.MAX_VALUE);
+                }
+            } else {
+                for (long t = lastExpiredTick + 1; t <= cutoff; ++t) {
+                    drain(slot(t), cutoff, Integer.MAX_VALUE);
+                }
+            }
+            lastExpiredTick = cutoff;
+            if (map.size() > maxSize) {
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Evict entries if the cache is over the maximum size. If another thread holds the lock this
+     * relies on the holder, which checks the size again after releasing it, unless the cache is
+     * over the high water mark in which case it waits for the lock.
+     */
+    private void evictIfNeeded() {
+        boolean progress = true;
+        while (progress && map.size() > maxSize) {
+            if (map.size() > highWaterMark) {
+                lock.lock();
+            } else if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                progress = evict() > 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Remove the least recently used entries until the size is down to the low water mark.
+     * Must be called with the lock held.
+     *
+     * @return number of entries that were removed
+     */
+    private int evict() {
+        int removed = 0;
+        final long now = clock.now() / tickMs;
+        for (long t = now - wheel.length + 1; t <= now; ++t) {
+            final int excess = map.size() - lowWaterMark;
+            if (excess <= 0) {
+                break;
+            }
+            removed += drain(slot(t), t, excess);
+        }
+        return removed;
     }
 
     /**
@@ -157,7 +374,7 @@ public class ExpiringCache<K, V> {
      */
     public List<V> values() {
         ImmutableList.Builder<V> builder = ImmutableList.builder();
-        for (Entry<V> e : map.values()) {
+        for (Entry<K, V> e : map.values()) {
             builder.add(e.value); // avoid updating the access time
         }
         return builder.build();
@@ -166,16 +383,43 @@ public class ExpiringCache<K, V> {
     /**
      * Return the number of entries in the cache.
      */
+    @com.netflix.servo.annotations.Monitor(name = "size", type = DataSourceType.GAUGE)
     public int size() {
         return map.size();
     }
 
+    /**
+     * Return the number of times get found an existing entry.
+     */
+    @com.netflix.servo.annotations.Monitor(name = "hitCount", type = DataSourceType.COUNTER)
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Return the number of times get needed to load a value.
+     */
+    @com.netflix.servo.annotations.Monitor(name = "missCount", type = DataSourceType.COUNTER)
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Return the number of entries that were removed because they expired or the cache was
+     * over the maximum size.
+     */
+    @com.netflix.servo.annotations.Monitor(name = "evictionCount", type = DataSourceType.COUNTER)
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
     /**{@inheritDoc}*/
     @Override
     public String toString() {
         return "ExpiringCache{"
                 + "map=" + map
                 + ", expireAfterMs=" + expireAfterMs
+                + ", maxSize=" + maxSize
                 + '}';
     }
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Interner that spreads values over several weak interners based on the hash code, so threads
+ * interning different values rarely contend on the same segment. In front of the weak tier
+ * there is a small direct-mapped cache with strong references to the most recently interned
+ * values. A hit in the cache is a single array read and an equals check, and does not touch
+ * the reference queues of the weak tier. Values in the cache are always the canonical instances
+ * from the weak tier, so they will be retained at least until they are replaced in the cache.
+ *
+ * @param <T> type of values being interned
+ */
+public final class ShardedInterner<T> implements Interner<T> {
+
+    /** Default number of weak interners. */
+    public static final int DEFAULT_SHARDS = 16;
+
+    /** Default number of entries in the strong cache. */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private final Interner<T>[] shards;
+    private final int shardMask;
+    private final AtomicReferenceArray<T> cache;
+    private final int cacheMask;
+
+    /**
+     * Create a new interner with the default number of shards and cache size.
+     */
+    public ShardedInterner() {
+        this(DEFAULT_SHARDS, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create a new interner.
+     *
+     * @param numShards  number of weak interners, rounded up to a power of 2
+     * @param cacheSize  number of entries in the strong cache, rounded up to a power of 2. Use
+     *                   0 to disable the cache.
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedInterner(int numShards, int cacheSize) {
+        Preconditions.checkArgument(numShards > 0, "numShards must be positive.");
+        Preconditions.checkArgument(cacheSize >= 0, "cacheSize cannot be negative.");
+        final int n = roundUpToPowerOf2(numShards);
+        shards = new Interner[n];
+        for (int i = 0; i < n; ++i) {
+            shards[i] = Interners.newWeakInterner();
+        }
+        shardMask = n - 1;
+        if (cacheSize > 0) {
+            final int c = roundUpToPowerOf2(cacheSize);
+            cache = new AtomicReferenceArray<T>(c);
+            cacheMask = c - 1;
+        } else {
+            cache = null;
+            cacheMask = 0;
+        }
+    }
+
+    private static int roundUpToPowerOf2(int n) {
+        final int p = Integer.highestOneBit(n);
+        return (p == n) ? n : p << 1;
+    }
+
+    /** Spread the bits of the hash code so both the shard and slot depend on all of them. */
+    private static int spread(int h) {
+        final int x = h * 0x9e3779b9;
+        return x ^ (x >>> 16);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public T intern(T sample) {
+        final int h = spread(sample.hashCode());
+        if (cache == null) {
+            return shards[(h >>> 16) & shardMask].intern(sample);
+        }
+        final int slot = h & cacheMask;
+        final T cached = cache.get(slot);
+        if (cached != null && (cached == sample || cached.equals(sample))) {
+            return cached;
+        }
+        final T canonical = shards[(h >>> 16) & shardMask].intern(sample);
+        cache.lazySet(slot, canonical);
+        return canonical;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.netflix.servo.monitor.BasicCounter;
+import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.MonitorConfig;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class CopyOnWriteMonitorRegistryTest {
+
+    private static Monitor<?> newCounter(String name) {
+        return new BasicCounter(MonitorConfig.builder(name).build());
+    }
+
+    private static class RecordingListener implements MonitorRegistryListener {
+        private final List<Long> versions = Lists.newArrayList();
+        private final List<Monitor<?>> added = Lists.newArrayList();
+        private final List<Monitor<?>> removed = Lists.newArrayList();
+
+        @Override
+        public void onChange(long version, Collection<Monitor<?>> a, Collection<Monitor<?>> r) {
+            versions.add(version);
+            added.addAll(a);
+            removed.addAll(r);
+        }
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testRegisterNull() throws Exception {
+        new CopyOnWriteMonitorRegistry().register(null);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testUnregisterNull() throws Exception {
+        new CopyOnWriteMonitorRegistry().unregister(null);
+    }
+
+    @Test
+    public void testRegisterAndUnregister() throws Exception {
+        CopyOnWriteMonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        Monitor<?> m1 = newCounter("test1");
+        Monitor<?> m2 = newCounter("test2");
+        assertEquals(registry.getVersion(), 0L);
+        assertEquals(registry.getRegisteredMonitors().size(), 0);
+
+        registry.register(m1);
+        registry.register(m2);
+        assertEquals(registry.getVersion(), 2L);
+        Collection<Monitor<?>> monitors = registry.getRegisteredMonitors();
+        assertEquals(monitors.size(), 2);
+        assertTrue(monitors.contains(m1));
+        assertTrue(monitors.contains(m2));
+
+        // Registering again is not a change
+        registry.register(m1);
+        assertEquals(registry.getVersion(), 2L);
+        assertSame(registry.getRegisteredMonitors(), monitors);
+
+        registry.unregister(m1);
+        assertEquals(registry.getVersion(), 3L);
+        assertFalse(registry.getRegisteredMonitors().contains(m1));
+        assertTrue(registry.getRegisteredMonitors().contains(m2));
+
+        // Snapshot that was returned earlier is not modified
+        assertEquals(monitors.size(), 2);
+    }
+
+    @Test
+    public void testBatchOperations() throws Exception {
+        CopyOnWriteMonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        List<Monitor<?>> batch = Lists.newArrayList();
+        for (int i = 0; i < 100; ++i) {
+            batch.add(newCounter("test" + i));
+        }
+        registry.registerAll(batch);
+        assertEquals(registry.getVersion(), 1L);
+        assertEquals(ImmutableList.copyOf(registry.getRegisteredMonitors()), batch);
+
+        registry.unregisterAll(batch.subList(0, 50));
+        assertEquals(registry.getVersion(), 2L);
+        assertEquals(ImmutableList.copyOf(registry.getRegisteredMonitors()),
+                batch.subList(50, 100));
+    }
+
+    @Test
+    public void testSnapshotPerVersion() throws Exception {
+        CopyOnWriteMonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        List<Monitor<?>> expected = Lists.newArrayList();
+        for (int i = 0; i < 1000; ++i) {
+            Monitor<?> m = newCounter("test" + i);
+            expected.add(m);
+            registry.register(m);
+        }
+        assertEquals(registry.getVersion(), 1000L);
+
+        // Copied once on read, in registration order, and reused until the next change
+        Collection<Monitor<?>> monitors = registry.getRegisteredMonitors();
+        assertEquals(ImmutableList.copyOf(monitors), expected);
+        assertSame(registry.getRegisteredMonitors(), monitors);
+        registry.unregister(expected.get(0));
+        assertEquals(ImmutableList.copyOf(registry.getRegisteredMonitors()),
+                expected.subList(1, 1000));
+    }
+
+    @Test
+    public void testListener() throws Exception {
+        CopyOnWriteMonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        Monitor<?> m1 = newCounter("test1");
+        Monitor<?> m2 = newCounter("test2");
+        registry.register(m1);
+
+        // Listener gets the current state when it is added
+        RecordingListener listener = new RecordingListener();
+        registry.addListener(listener);
+        assertEquals(listener.versions, ImmutableList.of(1L));
+        assertEquals(listener.added, ImmutableList.of(m1));
+
+        registry.registerAll(ImmutableList.of(m1, m2));
+        registry.unregister(m1);
+        assertEquals(listener.versions, ImmutableList.of(1L, 2L, 3L));
+        assertEquals(listener.added, ImmutableList.of(m1, m2));
+        assertEquals(listener.removed, ImmutableList.of(m1));
+
+        registry.removeListener(listener);
+        registry.unregister(m2);
+        assertEquals(listener.versions, ImmutableList.of(1L, 2L, 3L));
+    }
+
+    @Test
+    public void testFailingListener() throws Exception {
+        CopyOnWriteMonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        registry.addListener(new MonitorRegistryListener() {
+            @Override
+            public void onChange(long v, Collection<Monitor<?>> a, Collection<Monitor<?>> r) {
+                throw new IllegalStateException("fail");
+            }
+        });
+        RecordingListener listener = new RecordingListener();
+        registry.addListener(listener);
+        registry.register(newCounter("test1"));
+        assertEquals(listener.versions, ImmutableList.of(0L, 1L));
+    }
+}
@@ -15,12 +15,17 @@
  */
 package com.netflix.servo;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.netflix.servo.jmx.JmxMonitorRegistry;
+import com.netflix.servo.monitor.BasicCounter;
 import com.netflix.servo.monitor.Monitor;
 import com.netflix.servo.monitor.MonitorConfig;
 import org.testng.annotations.Test;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -136,4 +141,79 @@ public class DefaultMonitorRegistryTest {
         assertTrue(monitors.contains(m1));
         assertTrue(monitors.contains(m2));
     }*/
+
+    private static Properties registryClassProps(Class<?> c) {
+        Properties props = new Properties();
+        props.setProperty(
+            "com.netflix.servo.DefaultMonitorRegistry.registryClass", c.getName());
+        return props;
+    }
+
+    @Test
+    public void testDelegatesVersionedRegistry() throws Exception {
+        DefaultMonitorRegistry registry =
+            new DefaultMonitorRegistry(registryClassProps(CopyOnWriteMonitorRegistry.class));
+        final List<Long> versions = Lists.newArrayList();
+        registry.addListener(new MonitorRegistryListener() {
+            @Override
+            public void onChange(long v, Collection<Monitor<?>> a, Collection<Monitor<?>> r) {
+                versions.add(v);
+            }
+        });
+
+        Monitor<?> m = new BasicCounter(MonitorConfig.builder("test").build());
+        registry.register(m);
+        registry.register(m);
+        VersionedMonitorRegistry inner = (VersionedMonitorRegistry) registry.getInnerRegistry();
+        assertEquals(registry.getVersion(), inner.getVersion());
+        assertEquals(registry.getVersion(), 1L);
+        assertEquals(versions, ImmutableList.of(0L, 1L));
+    }
+
+    @Test
+    public void testVersionForOtherRegistries() throws Exception {
+        DefaultMonitorRegistry registry =
+            new DefaultMonitorRegistry(registryClassProps(BasicMonitorRegistry.class));
+        Monitor<?> m = new BasicCounter(MonitorConfig.builder("test").build());
+        assertEquals(registry.getVersion(), 0L);
+        registry.register(m);
+        assertTrue(registry.getVersion() > 0L);
+        long v = registry.getVersion();
+        registry.unregisterAll(ImmutableList.<Monitor<?>>of(m));
+        assertTrue(registry.getVersion() > v);
+        assertEquals(registry.getRegisteredMonitors().size(), 0);
+    }
+
+    @Test
+    public void testListenerForOtherRegistries() throws Exception {
+        DefaultMonitorRegistry registry =
+            new DefaultMonitorRegistry(registryClassProps(BasicMonitorRegistry.class));
+        Monitor<?> m1 = new BasicCounter(MonitorConfig.builder("test1").build());
+        Monitor<?> m2 = new BasicCounter(MonitorConfig.builder("test2").build());
+        registry.register(m1);
+
+        final List<Long> versions = Lists.newArrayList();
+        final Set<Monitor<?>> current = Sets.newHashSet();
+        MonitorRegistryListener listener = new MonitorRegistryListener() {
+            @Override
+            public void onChange(long v, Collection<Monitor<?>> a, Collection<Monitor<?>> r) {
+                versions.add(v);
+                current.addAll(a);
+                current.removeAll(r);
+            }
+        };
+        registry.addListener(listener);
+        assertEquals(current, Sets.newHashSet(m1));
+
+        registry.register(m2);
+        assertEquals(current, Sets.newHashSet(m1, m2));
+        registry.unregister(m1);
+        assertEquals(current, Sets.newHashSet(m2));
+        assertEquals(versions, ImmutableList.of(1L, 2L, 3L));
+        assertEquals(registry.getVersion(), 3L);
+
+        registry.removeListener(listener);
+        registry.unregister(m2);
+        assertEquals(current, Sets.newHashSet(m2));
+    }
 }
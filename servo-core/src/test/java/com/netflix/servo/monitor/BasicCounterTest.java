@@ -19,6 +19,10 @@ import com.netflix.servo.tag.Tag;
 
 import org.testng.annotations.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.testng.Assert.*;
 
 public class BasicCounterTest extends AbstractMonitorTest<BasicCounter> {
@@ -54,4 +58,24 @@ public class BasicCounterTest extends AbstractMonitorTest<BasicCounter> {
         c2.increment();
         assertEquals(c1, c2);
     }
+
+    @Test
+    public void testConcurrentIncrement() throws Exception {
+        final BasicCounter c = newInstance("foo");
+        final int numThreads = 8;
+        final int numIncrements = 100000;
+        ExecutorService exec = Executors.newFixedThreadPool(numThreads);
+        for (int i = 0; i < numThreads; ++i) {
+            exec.submit(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < numIncrements; ++j) {
+                        c.increment();
+                    }
+                }
+            });
+        }
+        exec.shutdown();
+        assertTrue(exec.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(c.getValue().longValue(), (long) numThreads * numIncrements);
+    }
 }
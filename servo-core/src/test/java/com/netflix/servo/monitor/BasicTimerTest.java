@@ -15,8 +15,11 @@
  */
 package com.netflix.servo.monitor;
 
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.util.ManualClock;
 import org.testng.annotations.Test;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.assertEquals;
@@ -73,4 +76,38 @@ public class BasicTimerTest extends AbstractMonitorTest<BasicTimer> {
         assertEquals(timer.getMax(), 0.001);
         assertEquals(timer.getMin(), 0.001);
     }
+
+    private static double value(List<Monitor<?>> monitors, int i) {
+        return ((Number) monitors.get(i).getValue(0)).doubleValue();
+    }
+
+    @Test
+    public void testPublishedMonitors() throws Exception {
+        final long step = Pollers.POLLING_INTERVALS[0];
+        ManualClock clock = new ManualClock(10 * step);
+        BasicTimer timer = new BasicTimer(MonitorConfig.builder("test").build(),
+                TimeUnit.MILLISECONDS, clock);
+        List<Monitor<?>> monitors = timer.getMonitors();
+        String[] stats = {"totalTime", "count", "min", "max"};
+        assertEquals(monitors.size(), stats.length);
+        for (int i = 0; i < stats.length; ++i) {
+            MonitorConfig config = monitors.get(i).getConfig();
+            assertEquals(config.getTags().getValue("statistic"), stats[i]);
+            assertEquals(config.getTags().getValue("unit"), "MILLISECONDS");
+            assertEquals(config.getTags().getValue(DataSourceType.KEY), "GAUGE");
+        }
+
+        timer.record(10, TimeUnit.MILLISECONDS);
+        timer.record(30, TimeUnit.MILLISECONDS);
+        assertEquals(value(monitors, 2), 10.0);
+        assertEquals(value(monitors, 3), 30.0);
+
+        // Rates are for the previous interval, min and max for the current interval
+        clock.set(11 * step);
+        final double stepSeconds = step / 1000.0;
+        assertEquals(value(monitors, 0), 40.0 / stepSeconds);
+        assertEquals(value(monitors, 1), 2.0 / stepSeconds);
+        assertEquals(value(monitors, 2), 0.0);
+        assertEquals(value(monitors, 3), 0.0);
+    }
 }
@@ -106,4 +106,51 @@ public class BucketConfigTest {
         assertTrue(config1.hashCode() == config2.hashCode());
         assertTrue(config1.hashCode() != config3.hashCode());
     }
+
+    @Test
+    public void testExponentialBuckets() throws Exception {
+        BucketConfig config = new BucketConfig.Builder()
+            .withExponentialBuckets(1L, 2.0, 5)
+            .build();
+        assertEquals(config.getBuckets(), new long[] {1, 2, 4, 8, 16});
+
+        // Duplicates after rounding are dropped
+        config = new BucketConfig.Builder()
+            .withExponentialBuckets(1L, 1.1, 5)
+            .build();
+        assertEquals(config.getBuckets(), new long[] {1});
+    }
+
+    @Test
+    public void testLogLinearBuckets() throws Exception {
+        BucketConfig config = new BucketConfig.Builder()
+            .withLogLinearBuckets(10L, 1)
+            .build();
+        assertEquals(config.getBuckets(), new long[] {0, 1, 2, 3, 5, 7, 11});
+    }
+
+    @Test
+    public void testIndexOf() throws Exception {
+        BucketConfig logLinear = new BucketConfig.Builder()
+            .withLogLinearBuckets(60000L, 3)
+            .build();
+        BucketConfig arbitrary = new BucketConfig.Builder()
+            .withBuckets(logLinear.getBuckets())
+            .build();
+        final long[] buckets = logLinear.getBuckets();
+        for (long v = -2L; v <= buckets[buckets.length - 1] + 2L; v++) {
+            int expected = 0;
+            while (expected < buckets.length && v > buckets[expected]) {
+                expected++;
+            }
+            assertEquals(logLinear.indexOf(v), expected, "log-linear " + v);
+            assertEquals(arbitrary.indexOf(v), expected, "binary search " + v);
+        }
+        assertEquals(logLinear.indexOf(Long.MAX_VALUE), buckets.length);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadPercentiles() throws Exception {
+        new BucketConfig.Builder().withPercentiles(new double[] {0.0});
+    }
 }
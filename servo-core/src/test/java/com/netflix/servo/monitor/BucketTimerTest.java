@@ -19,8 +19,10 @@ package com.netflix.servo.monitor;
 import static org.testng.Assert.*;
 
 import com.google.common.collect.Maps;
+import com.netflix.servo.util.ManualClock;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.testng.annotations.Test;
 
 public class BucketTimerTest extends AbstractMonitorTest<BucketTimer> {
@@ -156,4 +158,35 @@ public class BucketTimerTest extends AbstractMonitorTest<BucketTimer> {
         c2.record(11);
         assertEquals(c1.hashCode(), c2.hashCode());
     }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        final long step = Pollers.POLLING_INTERVALS[0];
+        ManualClock clock = new ManualClock(10 * step);
+        BucketConfig bucketConfig = new BucketConfig.Builder()
+            .withLogLinearBuckets(10000L, 4)
+            .withPercentiles(new double[] {50.0, 99.0})
+            .build();
+        BucketTimer timer = new BucketTimer(
+            MonitorConfig.builder("test").build(), bucketConfig, TimeUnit.MILLISECONDS, clock);
+        List<Monitor<?>> monitors = timer.getMonitors();
+        Monitor<?> p50 = monitors.get(monitors.size() - 2);
+        Monitor<?> p99 = monitors.get(monitors.size() - 1);
+        assertEquals(p50.getConfig().getTags().getValue("statistic"), "percentile_50");
+        assertEquals(p99.getConfig().getTags().getValue("statistic"), "percentile_99");
+
+        for (int i = 1; i <= 1000; i++) {
+            timer.record(i);
+        }
+        clock.set(11 * step);
+        assertEquals((Double) p50.getValue(0), 500.0, 500.0 / 16);
+        assertEquals((Double) p99.getValue(0), 990.0, 990.0 / 16);
+
+        // Only the values recorded since the last poll are used
+        for (int i = 0; i < 100; i++) {
+            timer.record(5000);
+        }
+        clock.set(12 * step);
+        assertEquals((Double) p50.getValue(0), 5000.0, 5000.0 / 16);
+    }
 }
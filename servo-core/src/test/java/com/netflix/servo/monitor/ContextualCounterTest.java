@@ -0,0 +1,108 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.google.common.base.Function;
+import com.netflix.servo.tag.BasicTagList;
+import com.netflix.servo.tag.TagList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+@SuppressWarnings("deprecation")
+public class ContextualCounterTest {
+
+    /**
+     * Context with tags that are set by the test. The interface is deprecated, it is referenced
+     * by its full name so there is no import that would trigger a deprecation warning.
+     */
+    private static class TestContext implements com.netflix.servo.tag.TaggingContext {
+        private TagList tags;
+
+        void setTags(TagList tags) {
+            this.tags = tags;
+        }
+
+        void reset() {
+            tags = null;
+        }
+
+        @Override
+        public TagList getTags() {
+            return tags;
+        }
+    }
+
+    private final TestContext context = new TestContext();
+
+    private ContextualCounter newInstance() {
+        return new ContextualCounter(MonitorConfig.builder("test").build(), context,
+                new Function<MonitorConfig, Counter>() {
+                    @Override
+                    public Counter apply(MonitorConfig config) {
+                        return new BasicCounter(config);
+                    }
+                });
+    }
+
+    private long count(ContextualCounter c, String ctx) {
+        for (Monitor<?> m : c.getMonitors()) {
+            final String v = m.getConfig().getTags().getValue("ctx");
+            if ((ctx == null) ? v == null : ctx.equals(v)) {
+                return ((Number) m.getValue()).longValue();
+            }
+        }
+        return -1L;
+    }
+
+    @Test
+    public void testIncrement() throws Exception {
+        ContextualCounter c = newInstance();
+        TagList a = BasicTagList.of("ctx", "a");
+        TagList b = BasicTagList.of("ctx", "b");
+
+        context.setTags(a);
+        c.increment();
+        c.increment(2);
+        context.setTags(b);
+        c.increment();
+        context.setTags(a);
+        c.increment();
+        context.reset();
+        c.increment();
+
+        List<Monitor<?>> monitors = c.getMonitors();
+        assertEquals(monitors.size(), 3);
+        assertSame(c.getMonitors(), monitors);
+        assertEquals(count(c, "a"), 4L);
+        assertEquals(count(c, "b"), 1L);
+        assertEquals(count(c, null), 1L);
+    }
+
+    @Test
+    public void testEqualContextsShareMonitor() throws Exception {
+        ContextualCounter c = newInstance();
+        context.setTags(BasicTagList.of("ctx", "a"));
+        c.increment();
+        context.setTags(BasicTagList.of("ctx", "a"));
+        c.increment();
+        assertEquals(c.getMonitors().size(), 1);
+        assertEquals(count(c, "a"), 2L);
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.util.CachedClock;
+import com.netflix.servo.util.Clock;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class DefaultClockTest {
+
+    @Test
+    public void testDefault() throws Exception {
+        assertSame(DefaultClock.create("0"), Clock.WALL);
+    }
+
+    @Test
+    public void testCached() throws Exception {
+        CachedClock clock = (CachedClock) DefaultClock.create(" 5");
+        clock.stop();
+        assertEquals(clock.getResolution(), 5L);
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        assertSame(DefaultClock.create("fast"), Clock.WALL);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.stats.QuantileSketch;
+import com.netflix.servo.util.ManualClock;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class DistributionSummaryTest extends AbstractMonitorTest<DistributionSummary> {
+
+    @Override
+    public DistributionSummary newInstance(String name) {
+        return new DistributionSummary(MonitorConfig.builder(name).build());
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        final long step = Pollers.POLLING_INTERVALS[0];
+        ManualClock clock = new ManualClock(10 * step);
+        DistributionSummary summary = new DistributionSummary(
+                MonitorConfig.builder("test").build(),
+                QuantileSketch.DEFAULT_RELATIVE_ACCURACY, clock);
+        for (int i = 1; i <= 100; ++i) {
+            summary.record(i);
+        }
+        assertEquals(summary.getSketch(0).getCount(), 0L);
+
+        clock.set(11 * step);
+        QuantileSketch sketch = summary.getSketch(0);
+        assertEquals(sketch.getCount(), 100L);
+        assertEquals(sketch.getTotal(), 5050L);
+        assertEquals(summary.getValue(0).longValue(), 50L);
+
+        List<Monitor<?>> monitors = summary.getMonitors();
+        assertEquals(monitors.get(1).getValue(0), 100.0 * 1000.0 / step);
+        assertEquals(monitors.get(2).getValue(0), sketch);
+        assertEquals(monitors.get(2).getConfig().getTags().getValue(DataSourceType.KEY),
+                DataSourceType.DISTRIBUTION.name());
+
+        // Skipping an interval should give an empty sketch
+        summary.record(1L);
+        clock.set(13 * step);
+        assertEquals(summary.getSketch(0).getCount(), 0L);
+    }
+}
@@ -32,6 +32,7 @@ import java.lang.reflect.Field;
 import java.util.List;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNull;
 
 public class DynamicCounterTest {
@@ -144,4 +145,27 @@ public class DynamicCounterTest {
     public void testShouldNotThrow() throws Exception {
         DynamicCounter.increment("name", "", "");
     }
+
+    @Test
+    public void testRawKeysShareCounter() throws Exception {
+        clock.set(1L);
+        DynamicCounter.increment("byRawKey", "a", "1", "b", "2");
+        DynamicCounter.increment("byRawKey", new String[] {"a", "1", "b", "2"});
+        // Different order of the tags is a different raw key but the same counter
+        DynamicCounter.increment("byRawKey", "b", "2", "a", "1");
+        StepCounter c = getByName("byRawKey");
+        assertEquals(getCounters().size(), 1);
+        clock.set(60001L);
+        assertEquals(c.getCount(0), 3L);
+    }
+
+    @Test
+    public void testRawKeyEquals() throws Exception {
+        DynamicCounter.RawKey k1 = new DynamicCounter.RawKey().set("n", new String[] {"k", "v"});
+        DynamicCounter.RawKey k2 = new DynamicCounter.RawKey().set("n", new String[] {"k", "v"});
+        DynamicCounter.RawKey k3 = new DynamicCounter.RawKey().set("n", new String[] {"k", "w"});
+        assertEquals(k1, k2);
+        assertEquals(k1.hashCode(), k2.hashCode());
+        assertNotEquals(k1, k3);
+    }
 }
@@ -146,4 +146,35 @@ public class DynamicTimerTest {
         Timer c2 = getByName("byName2");
         assertEquals(c2.getValue().longValue(), s2.getDuration(TimeUnit.MILLISECONDS));
     }
+
+    @Test
+    public void testStopNanos() throws Exception {
+        MonitorConfig config = MonitorConfig.builder("byNanos").withTags(tagList).build();
+        DynamicTimer.stopNanos(config, Timers.startNanos() - TimeUnit.MILLISECONDS.toNanos(42));
+
+        // Uses the same timer as start(config)
+        DynamicTimer.start(config).stop();
+        Timer c = getByName("byNanos");
+        assertEquals(getTimers().size(), 1);
+        assertEquals(((BasicTimer) c).getCount().longValue(), 2L);
+        assertEquals(c.getTimeUnit(), TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testLookupWithEqualConfig() throws Exception {
+        MonitorConfig config = MonitorConfig.builder("lookup").withTags(tagList).build();
+        DynamicTimer.stopNanos(config, Timers.startNanos());
+
+        // An equal config that is a different instance finds the same timer
+        MonitorConfig copy = MonitorConfig.builder("lookup").withTags(tagList).build();
+        DynamicTimer.stopNanos(copy, Timers.startNanos());
+        DynamicTimer.stopNanos(copy, TimeUnit.SECONDS, Timers.startNanos());
+
+        assertEquals(getTimers().size(), 2);
+        for (Monitor<?> m : getTimers()) {
+            BasicTimer t = (BasicTimer) m;
+            long expected = (t.getTimeUnit() == TimeUnit.MILLISECONDS) ? 2L : 1L;
+            assertEquals(t.getCount().longValue(), expected);
+        }
+    }
 }
@@ -16,6 +16,7 @@
 package com.netflix.servo.monitor;
 
 import com.netflix.servo.util.Clock;
+import com.netflix.servo.util.ManualClock;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
@@ -36,4 +37,29 @@ public class MaxGaugeTest extends AbstractMonitorTest<MaxGauge> {
         maxGauge.update(1L);
         assertEquals(maxGauge.getValue().longValue(), 420L);
     }
+
+    @Test
+    public void testStepBoundaries() throws Exception {
+        final long step0 = Pollers.POLLING_INTERVALS[0];
+        final long step1 = Pollers.POLLING_INTERVALS[1];
+        ManualClock clock = new ManualClock(100 * step0);
+        MaxGauge maxGauge = new MaxGauge(MonitorConfig.builder("max").build(), clock);
+        maxGauge.update(42L);
+        assertEquals(maxGauge.getValue(0).longValue(), 42L);
+        assertEquals(maxGauge.getValue(1).longValue(), 42L);
+
+        // Crossing the boundary for the smaller step should only reset that poller
+        clock.set(100 * step0 + step1);
+        assertEquals(maxGauge.getValue(0).longValue(), 42L);
+        assertEquals(maxGauge.getValue(1).longValue(), 0L);
+        maxGauge.update(7L);
+        assertEquals(maxGauge.getValue(0).longValue(), 42L);
+        assertEquals(maxGauge.getValue(1).longValue(), 7L);
+
+        // Crossing the boundary for the larger step resets both
+        clock.set(101 * step0);
+        maxGauge.update(3L);
+        assertEquals(maxGauge.getValue(0).longValue(), 3L);
+        assertEquals(maxGauge.getValue(1).longValue(), 3L);
+    }
 }
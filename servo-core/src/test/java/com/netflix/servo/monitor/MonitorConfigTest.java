@@ -15,6 +15,7 @@
  */
 package com.netflix.servo.monitor;
 
+import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.tag.BasicTagList;
 import com.netflix.servo.tag.SortedTagList;
 import com.netflix.servo.tag.Tag;
@@ -125,4 +126,52 @@ public class MonitorConfigTest {
 
         MonitorConfig.setConfigSanitizer(null);
     }
+
+    @Test
+    public void testCanonicalId() throws Exception {
+        MonitorConfig m1 = MonitorConfig.builder("test").withTags(tags1).build();
+        MonitorConfig m2 = MonitorConfig.builder("test")
+                .withTag("asg", "foo-v000")
+                .withTag("cluster", "foo")
+                .build();
+        MonitorConfig m3 = MonitorConfig.builder("test").withTags(tags2).build();
+        assertSame(m1.getId(), m2.getId());
+        assertEquals(m1.getId().getFingerprint(), m2.getId().getFingerprint());
+        assertEquals(m1.getId().getIndex(), m2.getId().getIndex());
+        assertEquals(m1, m2);
+        assertNotSame(m1.getId(), m3.getId());
+        assertNotEquals(m1.getId().getFingerprint(), m3.getId().getFingerprint());
+        assertNotEquals(m1.getId().getIndex(), m3.getId().getIndex());
+    }
+
+    @Test
+    public void testDataSourceType() throws Exception {
+        MonitorConfig m = MonitorConfig.builder("test").build();
+        assertNull(m.getId().getDataSourceType());
+        assertEquals(m.withAdditionalTag(DataSourceType.COUNTER).getId().getDataSourceType(),
+                DataSourceType.COUNTER);
+        assertEquals(MonitorConfig.builder("test").withTag("type", "RATE").build()
+                .getId().getDataSourceType(), DataSourceType.RATE);
+        assertNull(MonitorConfig.builder("test").withTag("type", "foo").build()
+                .getId().getDataSourceType());
+    }
+
+    @Test
+    public void testDerivedConfigsAreMemoized() throws Exception {
+        MonitorConfig m = MonitorConfig.builder("test").withTags(tags1).build();
+        MonitorConfig rate = m.withAdditionalTag(DataSourceType.RATE);
+        assertSame(m.withAdditionalTag(DataSourceType.RATE), rate);
+        assertEquals(rate, MonitorConfig.builder("test")
+                .withTags(tags1)
+                .withTag("type", "RATE")
+                .build());
+
+        // Adding the type that is already present returns the same config
+        assertSame(rate.withAdditionalTag(DataSourceType.RATE), rate);
+
+        // Other types replace the memoized config but are still correct
+        MonitorConfig gauge = m.withAdditionalTag(DataSourceType.GAUGE);
+        assertEquals(gauge.getId().getDataSourceType(), DataSourceType.GAUGE);
+        assertEquals(m.withAdditionalTag(DataSourceType.RATE), rate);
+    }
 }
@@ -16,14 +16,19 @@
 package com.netflix.servo.monitor;
 
 import com.google.common.collect.Lists;
+import com.netflix.servo.annotations.DataSourceLevel;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.tag.SortedTagList;
 import com.netflix.servo.tag.TagList;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 public class MonitorsTest {
 
@@ -97,4 +102,96 @@ public class MonitorsTest {
         }
         assertEquals(monitors.size(), 10);
     }
+
+    @Test
+    public void testClassMetadataIsShared() throws Exception {
+        AnnotatedClass metadata = AnnotatedClass.get(ClassWithMonitors.class);
+        assertSame(AnnotatedClass.get(ClassWithMonitors.class), metadata);
+
+        // Values are read from each instance even though the metadata is shared
+        ClassWithMonitors obj1 = new ClassWithMonitors();
+        ClassWithMonitors obj2 = new ClassWithMonitors();
+        List<Monitor<?>> m1 = Monitors.newObjectMonitor("1", obj1).getMonitors();
+        List<Monitor<?>> m2 = Monitors.newObjectMonitor("2", obj2).getMonitors();
+        assertEquals(m1.size(), m2.size());
+        for (int i = 0; i < m1.size(); ++i) {
+            assertEquals(m1.get(i).getConfig().getName(), m2.get(i).getConfig().getName());
+            assertEquals(m1.get(i).getConfig().getTags().getValue("id"), "1");
+            assertEquals(m2.get(i).getConfig().getTags().getValue("id"), "2");
+        }
+    }
+
+    /** Class without annotations, the monitors are described by the factory below. */
+    public static class ClassWithFactory {
+        private long count = 42L;
+        public final Counter counter = Monitors.newCounter("counter");
+
+        public String getStatus() {
+            return "ok";
+        }
+    }
+
+    /** Factory that would be generated by the annotation processor for the class above. */
+    public static class ClassWithFactory$$ServoMonitors
+            implements MonitorMetadataFactory<ClassWithFactory> {
+        @Override
+        public void describe(Members<ClassWithFactory> members) {
+            members.addMonitorField(new MemberAccessor<ClassWithFactory>(
+                    ClassWithFactory.class, "counter", false) {
+                @Override
+                public Object get(ClassWithFactory obj) {
+                    return obj.counter;
+                }
+            });
+            members.addAttribute(MemberAccessor.<ClassWithFactory>ofField(
+                    ClassWithFactory.class, "count"), "", DataSourceType.GAUGE,
+                    DataSourceLevel.INFO);
+            members.addAttribute(new MemberAccessor<ClassWithFactory>(
+                    ClassWithFactory.class, "getStatus", true) {
+                @Override
+                public Object get(ClassWithFactory obj) {
+                    return obj.getStatus();
+                }
+            }, "status", DataSourceType.INFORMATIONAL, DataSourceLevel.DEBUG);
+        }
+    }
+
+    @Test
+    public void testMetadataFactory() throws Exception {
+        ClassWithFactory obj = new ClassWithFactory();
+        CompositeMonitor<?> cm = Monitors.newObjectMonitor("f", obj);
+        List<Monitor<?>> monitors = cm.getMonitors();
+        assertEquals(monitors.size(), 3);
+
+        assertEquals(monitors.get(0).getConfig().getName(), "counter");
+        assertEquals(monitors.get(1).getConfig().getName(), "count");
+        assertEquals(monitors.get(1).getConfig().getTags().getValue("type"), "GAUGE");
+        assertEquals(monitors.get(1).getValue(), 42L);
+        assertEquals(monitors.get(2).getConfig().getName(), "status");
+        assertEquals(monitors.get(2).getConfig().getTags().getValue("level"), "DEBUG");
+        assertEquals(monitors.get(2).getValue(), "ok");
+
+        // Monitors for the same member are equal so the object can be unregistered
+        assertEquals(Monitors.newObjectMonitor("f", obj), cm);
+    }
+
+    @Test
+    public void testIsCallback() throws Exception {
+        assertFalse(Monitors.isCallback(Monitors.newCounter("c")));
+        assertFalse(Monitors.isCallback(Monitors.newTimer("t")));
+        assertTrue(Monitors.isCallback(new BasicGauge<Integer>(
+                MonitorConfig.builder("g").build(), new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return 1;
+                    }
+                })));
+
+        // Counter fields are wrapped with the object tags, annotated members are callbacks
+        for (Monitor<?> m : Monitors.newObjectMonitor(new ClassWithMonitors()).getMonitors()) {
+            boolean counter = m.getConfig().getName().endsWith("Counter")
+                    && !m.getConfig().getName().startsWith("anno");
+            assertEquals(Monitors.isCallback(m), !counter, m.getConfig().getName());
+        }
+    }
 }
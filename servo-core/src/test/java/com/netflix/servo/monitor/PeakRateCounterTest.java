@@ -19,6 +19,10 @@ import com.netflix.servo.tag.Tag;
 import com.netflix.servo.util.ManualClock;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.testng.Assert.assertEquals;
 
 public class PeakRateCounterTest extends AbstractMonitorTest<PeakRateCounter> {
@@ -87,4 +91,109 @@ public class PeakRateCounterTest extends AbstractMonitorTest<PeakRateCounter> {
         c2 = c1;
         assertEquals(c2, c1);
     }
+
+    @Test
+    public void testSubSecondWindow() throws Exception {
+        ManualClock c = new ManualClock(0L);
+        PeakRateCounter counter =
+                new PeakRateCounter(MonitorConfig.builder("foo").build(), 100L, c);
+        assertEquals(counter.getWindowMillis(), 100L);
+
+        // Burst of 50 in the first 100ms, nothing for the rest of the second
+        counter.increment(50);
+        c.set(100L);
+        counter.increment(1);
+        c.set(900L);
+        counter.increment(1);
+        assertEquals(counter.getValue().doubleValue(), 500.0);
+    }
+
+    @Test
+    public void testLongWindow() throws Exception {
+        ManualClock c = new ManualClock(0L);
+        PeakRateCounter counter =
+                new PeakRateCounter(MonitorConfig.builder("foo").build(), 10000L, c);
+        for (int i = 0; i < 10; ++i) {
+            c.set(i * 1000L);
+            counter.increment(10);
+        }
+        assertEquals(counter.getValue().doubleValue(), 10.0);
+    }
+
+    @Test
+    public void testWindowReuse() throws Exception {
+        ManualClock c = new ManualClock(0L);
+        PeakRateCounter counter = new PeakRateCounter(MonitorConfig.builder("foo").build(), c);
+        counter.increment(7);
+        // Same bucket in the ring after several windows, skipped windows must be cleared
+        c.set(4000L);
+        counter.increment(1);
+        c.set(5000L);
+        counter.increment(2);
+        c.set(8000L);
+        counter.increment(3);
+        assertEquals(counter.getValue().longValue(), 7L);
+        c.set(60000L);
+        counter.increment(1);
+        assertEquals(counter.getValue(0).longValue(), 1L);
+    }
+
+    @Test
+    public void testLateIncrement() throws Exception {
+        ManualClock c = new ManualClock(1000L);
+        PeakRateCounter counter = new PeakRateCounter(MonitorConfig.builder("foo").build(), c);
+        counter.increment(5);
+        c.set(2000L);
+        counter.increment(1);
+
+        // Thread that read the clock before the boundary, added to the previous window
+        c.set(1999L);
+        counter.increment(3);
+        assertEquals(counter.getValue().longValue(), 8L);
+
+        // The current window must not be moved back and cleared
+        c.set(2000L);
+        counter.increment(1);
+        c.set(2500L);
+        counter.increment(6);
+        assertEquals(counter.getValue().longValue(), 8L);
+
+        // Too old, the bucket has been reused so the increment is dropped
+        c.set(10000L);
+        counter.increment(1);
+        c.set(1000L);
+        counter.increment(100);
+        assertEquals(counter.getValue().longValue(), 8L);
+        c.set(10000L);
+        counter.increment(1);
+        assertEquals(counter.getValue().longValue(), 8L);
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws Exception {
+        ManualClock c = new ManualClock(0L);
+        final PeakRateCounter counter =
+                new PeakRateCounter(MonitorConfig.builder("foo").build(), c);
+        final int numThreads = 4;
+        final int numIncrements = 10000;
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        for (int t = 0; t < numThreads; ++t) {
+            pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < numIncrements; ++i) {
+                        counter.increment();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        assertEquals(counter.getValue().longValue(), (long) numThreads * numIncrements);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadWindow() throws Exception {
+        new PeakRateCounter(MonitorConfig.builder("foo").build(), 0L, TimeUnit.MILLISECONDS);
+    }
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.tag.Tags;
+import com.netflix.servo.util.ManualClock;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class PercentileTimerTest extends AbstractMonitorTest<PercentileTimer> {
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0};
+
+    @Override
+    public PercentileTimer newInstance(String name) {
+        return new PercentileTimer(MonitorConfig.builder(name).build());
+    }
+
+    @Test
+    public void testMemoryPerArrayBounded() throws Exception {
+        // each of the bucket arrays for the max precision stays below 64KB
+        final long perArray = StepHistogram.memoryBytes(StepHistogram.MAX_PRECISION)
+                / (2 + Pollers.NUM_POLLERS);
+        assertTrue(perArray < 64 * 1024, "bytes per array: " + perArray);
+    }
+
+    @Test
+    public void testBucketBounds() throws Exception {
+        for (int p = 1; p <= StepHistogram.MAX_LAYOUT_PRECISION; ++p) {
+            final int n = StepHistogram.numBuckets(p);
+            assertEquals(StepHistogram.bucketIndex(0L, p), 0);
+            assertEquals(StepHistogram.bucketIndex(Long.MAX_VALUE, p), n - 1);
+            for (int i = 0; i < n - 1; ++i) {
+                final long lower = StepHistogram.bucketLowerBound(i, p);
+                final long upper = StepHistogram.bucketUpperBound(i, p);
+                assertEquals(StepHistogram.bucketIndex(lower, p), i);
+                assertEquals(StepHistogram.bucketIndex(upper - 1L, p), i);
+                assertEquals(StepHistogram.bucketIndex(upper, p), i + 1);
+            }
+        }
+    }
+
+    @Test
+    public void testRelativeError() throws Exception {
+        final int p = PercentileTimer.DEFAULT_PRECISION;
+        final double maxError = 1.0 / (1 << p);
+        for (long v = 1L; v > 0L && v < Long.MAX_VALUE / 3; v = v * 3 + 1) {
+            final int i = StepHistogram.bucketIndex(v, p);
+            final long lower = StepHistogram.bucketLowerBound(i, p);
+            final long upper = StepHistogram.bucketUpperBound(i, p);
+            assertTrue((double) (upper - 1L - lower) / v <= maxError, "value " + v);
+        }
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        final long step = Pollers.POLLING_INTERVALS[0];
+        ManualClock clock = new ManualClock(10 * step);
+        PercentileTimer timer = new PercentileTimer(MonitorConfig.builder("test").build(),
+                TimeUnit.MICROSECONDS, PERCENTILES, 7, clock);
+        for (int i = 1; i <= 10000; ++i) {
+            timer.record(i, TimeUnit.MICROSECONDS);
+        }
+        assertEquals(timer.getCount(0), 0L);
+
+        clock.set(11 * step);
+        assertEquals(timer.getCount(0), 10000L);
+        assertEquals(timer.getValue(0).longValue(), 5000L);
+        for (int i = 0; i < PERCENTILES.length; ++i) {
+            final double expected = PERCENTILES[i] * 100.0;
+            final double actual = timer.getPercentile(0, i);
+            assertTrue(Math.abs(actual - expected) / expected < 0.01,
+                    "percentile " + PERCENTILES[i] + ": " + actual);
+        }
+
+        // Nothing recorded in the next interval
+        clock.set(12 * step);
+        assertEquals(timer.getCount(0), 0L);
+        assertEquals(timer.getPercentile(0, 0), 0.0);
+    }
+
+    @Test
+    public void testMissedInterval() throws Exception {
+        final long step = Pollers.POLLING_INTERVALS[0];
+        ManualClock clock = new ManualClock(10 * step);
+        PercentileTimer timer = new PercentileTimer(MonitorConfig.builder("test").build(),
+                TimeUnit.MILLISECONDS, PERCENTILES, 5, clock);
+        timer.record(42L, TimeUnit.MILLISECONDS);
+        clock.set(12 * step);
+        assertEquals(timer.getCount(0), 0L);
+    }
+
+    @Test
+    public void testMonitors() throws Exception {
+        PercentileTimer timer = new PercentileTimer(MonitorConfig.builder("test").build(),
+                TimeUnit.SECONDS, PERCENTILES, 5);
+        List<Monitor<?>> monitors = timer.getMonitors();
+        assertEquals(monitors.size(), 2 + PERCENTILES.length);
+        assertEquals(monitors.get(0).getConfig().getTags().getTag("statistic").getValue(),
+                "totalTime");
+        assertEquals(monitors.get(1).getConfig().getTags().getTag("statistic").getValue(),
+                "count");
+        for (int i = 0; i < PERCENTILES.length; ++i) {
+            final MonitorConfig config = monitors.get(i + 2).getConfig();
+            assertEquals(config.getTags().getTag("statistic"),
+                    StatsMonitor.percentileTag(PERCENTILES[i]));
+            assertEquals(config.getTags().getTag("unit"), Tags.newTag("unit", "SECONDS"));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadPrecision() throws Exception {
+        new PercentileTimer(MonitorConfig.builder("test").build(), TimeUnit.SECONDS,
+                PERCENTILES, StepHistogram.MAX_PRECISION + 1);
+    }
+}
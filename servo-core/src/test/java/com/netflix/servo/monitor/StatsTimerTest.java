@@ -25,25 +25,36 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class StatsTimerTest extends AbstractMonitorTest<StatsTimer> {
     static final Logger LOGGER = LoggerFactory.getLogger(StatsTimerTest.class);
 
     @Override
     public StatsTimer newInstance(String name) {
+        return newInstance(name, 1000L);
+    }
+
+    private StatsTimer newInstance(String name, long computeFrequencyMillis) {
         final double [] percentiles = {50.0, 95.0, 99.0, 99.5};
         final StatsConfig statsConfig = new StatsConfig.Builder()
                 .withSampleSize(200000)
                 .withPercentiles(percentiles)
                 .withPublishStdDev(true)
-                .withComputeFrequencyMillis(1000)
+                .withComputeFrequencyMillis(computeFrequencyMillis)
                 .build();
         final MonitorConfig config = MonitorConfig.builder(name).build();
         return new StatsTimer(config, statsConfig);
     }
 
+    /** Timer that is only computed when the test calls {@link StatsMonitor#computeStats()}. */
+    private StatsTimer newManualInstance(String name) {
+        return newInstance(name, TimeUnit.HOURS.toMillis(1));
+    }
+
     @Test
     public void testNoRecordedValues() throws Exception {
         final StatsTimer timer = newInstance("novalue");
@@ -55,7 +66,7 @@ public class StatsTimerTest extends AbstractMonitorTest<StatsTimer> {
 
     @Test
     public void testStats() throws Exception {
-        final StatsTimer timer = newInstance("t1");
+        final StatsTimer timer = newManualInstance("t1");
         final Map<String, Number> expectedValues = Maps.newHashMap();
         final int n = 200 * 1000;
         expectedValues.put("count", (long) n);
@@ -70,7 +81,7 @@ public class StatsTimerTest extends AbstractMonitorTest<StatsTimer> {
             timer.record(i);
         }
 
-        Thread.sleep(1000L);
+        timer.computeStats();
         assertStats(timer.getMonitors(), expectedValues);
     }
 
@@ -104,7 +115,7 @@ public class StatsTimerTest extends AbstractMonitorTest<StatsTimer> {
 
     @Test
     public void testMultiThreadStats() throws Exception {
-        final StatsTimer timer = newInstance("t1");
+        final StatsTimer timer = newManualInstance("t1");
         final Map<String, Number> expectedValues = Maps.newHashMap();
         final int n = 10 * 1000;
         expectedValues.put("count", (long) n);
@@ -121,8 +132,10 @@ public class StatsTimerTest extends AbstractMonitorTest<StatsTimer> {
         for (int i = 0; i < n; ++i) {
             service.submit(new TimerTask(timer, i));
         }
+        service.shutdown();
+        assertTrue(service.awaitTermination(1, TimeUnit.MINUTES));
 
-        Thread.sleep(1000L);
+        timer.computeStats();
         assertStats(timer.getMonitors(), expectedValues);
     }
 
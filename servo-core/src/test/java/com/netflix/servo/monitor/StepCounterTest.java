@@ -18,6 +18,10 @@ package com.netflix.servo.monitor;
 import com.netflix.servo.util.ManualClock;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
@@ -100,4 +104,29 @@ public class StepCounterTest {
         assertTrue(Double.isNaN(c.getValue(1).doubleValue()));
         assertEquals(c.getCurrentCount(1), 1);
     }
+
+    @Test
+    public void testConcurrentIncrement() throws Exception {
+        clock.set(time(1));
+        final StepCounter c = newInstance("foo");
+        final int numThreads = 8;
+        final int numIncrements = 10000;
+        ExecutorService exec = Executors.newFixedThreadPool(numThreads);
+        for (int i = 0; i < numThreads; ++i) {
+            exec.submit(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < numIncrements; ++j) {
+                        c.increment();
+                    }
+                }
+            });
+        }
+        exec.shutdown();
+        assertTrue(exec.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(c.getCurrentCount(1), (long) numThreads * numIncrements);
+
+        clock.set(time(11));
+        assertEquals(c.getCount(1), (long) numThreads * numIncrements);
+        assertEquals(c.getCurrentCount(1), 0L);
+    }
 }
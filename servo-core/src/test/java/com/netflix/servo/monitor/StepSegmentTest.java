@@ -0,0 +1,130 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import com.netflix.servo.util.ManualClock;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class StepSegmentTest {
+
+    private static final long STEP = Pollers.POLLING_INTERVALS[0];
+
+    /** Time of a step boundary for all pollers. */
+    private static final long BOUNDARY = 100 * STEP;
+
+    @Test
+    public void testStepLongStaleUpdate() {
+        ManualClock clock = new ManualClock(BOUNDARY - 1);
+        StepLong max = new StepLong(StepLong.Operation.MAX, clock);
+        max.update(3L);
+
+        // Another thread rolls to the next step, then a writer that read the clock before the
+        // boundary updates with the stale time
+        clock.set(BOUNDARY + 1);
+        max.update(1L);
+        max.update(BOUNDARY - 1, 2L);
+
+        assertEquals(max.getCurrent(0), 2L);
+        assertEquals(max.getCurrent(1), 2L);
+
+        // The completed step should still be reset at the next boundary
+        clock.set(BOUNDARY + STEP);
+        assertEquals(max.getCurrent(0), 0L);
+    }
+
+    @Test
+    public void testStepLongAdderStaleUpdate() {
+        ManualClock clock = new ManualClock(BOUNDARY - 1);
+        StepLongAdder adder = new StepLongAdder(clock);
+        adder.poll(0);
+        adder.add(10L);
+
+        clock.set(BOUNDARY + 1);
+        adder.add(1L);
+
+        // Writer that read the clock before the boundary
+        adder.checkSegment(BOUNDARY - 1);
+        adder.add(1L);
+
+        assertEquals(adder.getCurrent(0), 2L);
+        assertEquals(adder.poll(0).getValue(), 10L);
+    }
+
+    @Test
+    public void testStepStatsStaleUpdate() {
+        ManualClock clock = new ManualClock(BOUNDARY - 1);
+        StepStats stats = new StepStats(clock);
+        stats.pollCount(0);
+        stats.pollTotal(0);
+        stats.record(5L);
+        stats.record(7L);
+
+        clock.set(BOUNDARY + 1);
+        stats.record(1L);
+        stats.checkSegment(BOUNDARY - 1);
+        stats.record(2L);
+
+        assertEquals(stats.getCurrentCount(0), 2L);
+        assertEquals(stats.getCurrentTotal(0), 3L);
+        assertEquals(stats.getCurrentMin(0), 1L);
+        assertEquals(stats.getCurrentMax(0), 2L);
+        assertEquals(stats.pollCount(0).getValue(), 2L);
+        assertEquals(stats.pollTotal(0).getValue(), 12L);
+    }
+
+    @Test
+    public void testStepHistogramStaleUpdate() {
+        ManualClock clock = new ManualClock(BOUNDARY - 1);
+        StepHistogram histogram = new StepHistogram(3, new double[]{50.0}, clock);
+        for (long i = 1L; i <= 5L; ++i) {
+            histogram.record(i);
+        }
+
+        clock.set(BOUNDARY + 1);
+        histogram.record(1L);
+        histogram.checkSegment(BOUNDARY - 1);
+        histogram.record(2L);
+
+        StepHistogram.Snapshot snapshot = histogram.getPrevious(0);
+        assertEquals(snapshot.getCount(), 5L);
+        assertEquals(snapshot.getTotal(), 15L);
+
+        clock.set(BOUNDARY + STEP + 1);
+        assertEquals(histogram.getPrevious(0).getCount(), 2L);
+    }
+
+    @Test
+    public void testStepSketchStaleUpdate() {
+        ManualClock clock = new ManualClock(BOUNDARY - 1);
+        StepSketch sketch = new StepSketch(0.01, clock);
+        for (long i = 1L; i <= 5L; ++i) {
+            sketch.record(i);
+        }
+
+        clock.set(BOUNDARY + 1);
+        sketch.record(1L);
+        sketch.checkSegment(BOUNDARY - 1);
+        sketch.record(2L);
+
+        assertEquals(sketch.getPrevious(0).getCount(), 5L);
+        assertEquals(sketch.getPrevious(0).getTotal(), 15L);
+
+        clock.set(BOUNDARY + STEP + 1);
+        assertEquals(sketch.getPrevious(0).getCount(), 2L);
+    }
+}
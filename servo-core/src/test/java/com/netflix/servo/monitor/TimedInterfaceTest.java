@@ -18,11 +18,13 @@ package com.netflix.servo.monitor;
 import com.netflix.servo.DefaultMonitorRegistry;
 import com.netflix.servo.tag.BasicTagList;
 import com.netflix.servo.tag.TagList;
+import com.netflix.servo.util.Benchmark;
 import org.testng.annotations.Test;
 
 import java.util.List;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class TimedInterfaceTest  {
@@ -127,4 +129,76 @@ public class TimedInterfaceTest  {
                 .withTags(tagList).build();
         assertEquals(compositeMonitor.getConfig(), expectedConfig);
     }
+
+    private interface ICounter {
+        long add(long n);
+        long add(long a, long b);
+    }
+
+    private static class CounterImpl implements ICounter {
+        private long total;
+
+        @Override
+        public long add(long n) {
+            total += n;
+            return total;
+        }
+
+        @Override
+        public long add(long a, long b) {
+            total += a + b;
+            return total;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testOverloadsShareTimer() {
+        final ICounter counter = TimedInterface.newProxy(ICounter.class, new CounterImpl());
+        assertEquals(counter.add(1L), 1L);
+        assertEquals(counter.add(2L, 3L), 6L);
+
+        final CompositeMonitor<Long> compositeMonitor = (CompositeMonitor<Long>) counter;
+        final List<Monitor<?>> monitors = compositeMonitor.getMonitors();
+        assertEquals(monitors.size(), 1);
+        assertEquals(monitors.get(0).getConfig().getName(), "add");
+    }
+
+    @Test
+    public void testObjectMethods() {
+        final ICounter c1 = TimedInterface.newProxy(ICounter.class, new CounterImpl());
+        final ICounter c2 = TimedInterface.newProxy(ICounter.class, new CounterImpl());
+        assertTrue(c1.equals(c1));
+        assertFalse(c1.equals(c2));
+        assertEquals(c1.hashCode(), c1.hashCode());
+        assertTrue(c1.toString().length() > 0);
+    }
+
+    /**
+     * Rough comparison of the overhead of calling through the proxy with calling the concrete
+     * class directly. Run with {@code gradle benchmark}.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkProxy() throws Exception {
+        final int iterations = 1000000;
+        new Benchmark("TimedInterface", iterations)
+                .add("direct", newAddTask(new CounterImpl(), iterations))
+                .add("proxy", newAddTask(
+                        TimedInterface.newProxy(ICounter.class, new CounterImpl()), iterations))
+                .run();
+    }
+
+    private static Benchmark.Task newAddTask(final ICounter counter, final int iterations) {
+        return new Benchmark.Task() {
+            @Override
+            public long run() {
+                long sum = 0L;
+                for (int i = 0; i < iterations; ++i) {
+                    sum += counter.add(1L);
+                }
+                assertTrue(sum > 0L);
+                return sum;
+            }
+        };
+    }
 }
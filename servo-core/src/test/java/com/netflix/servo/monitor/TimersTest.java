@@ -0,0 +1,36 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.monitor;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TimersTest {
+
+    @Test
+    public void testStopNanos() throws Exception {
+        BasicTimer timer = new BasicTimer(MonitorConfig.builder("test").build());
+        final long start = Timers.startNanos() - TimeUnit.MILLISECONDS.toNanos(10);
+        final long duration = Timers.stopNanos(timer, start);
+        assertTrue(duration >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(timer.getCount().longValue(), 1L);
+        assertEquals(timer.getTotalTime(), duration / 1e6, 1e-9);
+    }
+}
@@ -150,4 +150,49 @@ public class CounterToRateMetricTransformTest {
         assertEquals(metrics.size(), 3);
         assertEquals(metrics.get("m3"), 1.0, 0.00001);
     }
+
+    @Test
+    public void testBatchRate() throws Exception {
+        MemoryMetricObserver mmo = new MemoryMetricObserver("m", 1);
+        CounterToRateMetricTransform transform =
+            new CounterToRateMetricTransform(mmo, 120, TimeUnit.SECONDS);
+        long baseTime = System.currentTimeMillis() + 100000L;
+
+        transform.updateBatch(MetricBatch.fromList(mkList(baseTime + 0, 0)));
+        Map<String, Double> metrics = mkMap(mmo.getObservations());
+        assertEquals(metrics.size(), 2);
+        assertTrue(metrics.get("m3") == null);
+
+        // Delta of 5 in 5 seconds, same result as the list based update
+        transform.updateBatch(MetricBatch.fromList(mkList(baseTime + 5000, 5)));
+        metrics = mkMap(mmo.getObservations());
+        assertEquals(metrics.size(), 3);
+        assertEquals(metrics.get("m3"), 1.0, 0.00001);
+        assertEquals(metrics.get("m2"), 5.0, 0.00001);
+        assertEquals(mkTypeMap(mmo.getObservations()).get("m3"), "RATE");
+
+        // Batch and list updates share the previous values
+        transform.update(mkList(baseTime + 10000, 20));
+        metrics = mkMap(mmo.getObservations());
+        assertEquals(metrics.get("m3"), 3.0, 0.00001);
+    }
+
+    @Test
+    public void testBatchKeepsValueTypes() throws Exception {
+        MemoryMetricObserver mmo = new MemoryMetricObserver("m", 1);
+        CounterToRateMetricTransform transform =
+            new CounterToRateMetricTransform(mmo, 120, TimeUnit.SECONDS);
+        long baseTime = System.currentTimeMillis() + 100000L;
+
+        transform.updateBatch(MetricBatch.fromList(mkList(baseTime + 0, 42)));
+        transform.updateBatch(MetricBatch.fromList(mkList(baseTime + 5000, 47)));
+        for (Metric m : mmo.getObservations().get(0)) {
+            if (m.getConfig().getName().equals("m3")) {
+                assertEquals(m.getValue(), 1.0);
+            } else {
+                // Pass through values are sent downstream with the type they were polled with
+                assertEquals(m.getValue(), 47);
+            }
+        }
+    }
 }
@@ -15,9 +15,13 @@
  */
 package com.netflix.servo.publish;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
 import com.netflix.servo.Metric;
+import com.netflix.servo.monitor.DistributionSummary;
+import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.MonitorConfig;
 import com.netflix.servo.tag.SortedTagList;
 import com.netflix.servo.tag.Tag;
 import com.netflix.servo.tag.TagList;
@@ -29,6 +33,7 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
@@ -138,4 +143,33 @@ public class FileMetricObserverTest {
             deleteRecursively(dir);
         }
     }
+
+    @Test
+    public void testDistributionSkipped() throws Exception {
+        DistributionSummary summary = new DistributionSummary(
+                MonitorConfig.builder("m").withTags(TAGS).build());
+        summary.record(42L);
+        List<Metric> metrics = new ArrayList<Metric>();
+        for (Monitor<?> monitor : summary.getMonitors()) {
+            metrics.add(new Metric(monitor.getConfig(), 0L, monitor.getValue()));
+        }
+
+        File dir = Files.createTempDir();
+        try {
+            MetricObserver fmo = new FileMetricObserver("test", dir);
+            fmo.update(metrics);
+
+            File[] files = dir.listFiles();
+            assertEquals(files.length, 1);
+            List<String> lines = Files.readLines(files[0], Charsets.UTF_8);
+            assertEquals(lines.size(), metrics.size() - 1);
+            for (String line : lines) {
+                String[] parts = line.split("\t");
+                assertEquals(parts.length, 3);
+                Double.parseDouble(parts[2]);
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.publish;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.netflix.servo.Metric;
+import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.tag.SortedTagList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class MetricBatchTest {
+
+    @Test
+    public void testAddAndGet() throws Exception {
+        MetricBatch batch = new MetricBatch(0);
+        for (int i = 0; i < 100; ++i) {
+            batch.add(MonitorConfig.builder("m" + i).build(), i, (double) i);
+        }
+        assertEquals(batch.size(), 100);
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(batch.getConfig(i).getName(), "m" + i);
+            assertEquals(batch.getTimestamp(i), i);
+            assertEquals(batch.getValue(i), (double) i);
+            assertTrue(batch.hasNumberValue(i));
+        }
+    }
+
+    @Test
+    public void testNonNumericValues() throws Exception {
+        MetricBatch batch = new MetricBatch();
+        batch.add(MonitorConfig.builder("n").build(), 1L, Long.valueOf(42L));
+        batch.add(MonitorConfig.builder("s").build(), 1L, "foo");
+        assertTrue(batch.hasNumberValue(0));
+        assertEquals(batch.getValue(0), 42.0);
+        assertEquals(batch.getObjectValue(0), 42L);
+        assertFalse(batch.hasNumberValue(1));
+        assertTrue(Double.isNaN(batch.getValue(1)));
+        assertEquals(batch.getObjectValue(1), "foo");
+    }
+
+    @Test
+    public void testListRoundTrip() throws Exception {
+        List<Metric> metrics = ImmutableList.of(
+            new Metric("m1", SortedTagList.EMPTY, 1L, 1.0),
+            new Metric("m2", SortedTagList.builder().withTag("k", "v").build(), 2L, 2.0),
+            new Metric("m3", SortedTagList.EMPTY, 3L, "info"));
+        MetricBatch batch = MetricBatch.fromList(metrics);
+        assertEquals(batch.size(), 3);
+        assertEquals(batch.toList(), metrics);
+        assertEquals(Lists.newArrayList(batch.toList()), metrics);
+    }
+
+    @Test
+    public void testKeepsNumberTypes() throws Exception {
+        final long big = (1L << 53) + 1;
+        MetricBatch batch = new MetricBatch(1);
+        batch.add(MonitorConfig.builder("l").build(), 1L, Long.valueOf(big));
+        batch.add(MonitorConfig.builder("i").build(), 1L, Integer.valueOf(7));
+        batch.add(MonitorConfig.builder("d").build(), 1L, 1.5);
+
+        MetricBatch copy = new MetricBatch();
+        for (int i = 0; i < batch.size(); ++i) {
+            copy.add(batch, i);
+        }
+        List<Metric> metrics = copy.toList();
+        assertEquals(metrics.get(0).getValue(), big);
+        assertEquals(metrics.get(1).getValue(), 7);
+        assertEquals(metrics.get(2).getValue(), 1.5);
+    }
+
+    @Test
+    public void testPrimitiveLong() throws Exception {
+        final long big = (1L << 53) + 1;
+        MetricBatch batch = new MetricBatch();
+        batch.add(MonitorConfig.builder("l").build(), 1L, big);
+        assertTrue(batch.hasNumberValue(0));
+        assertEquals(batch.getObjectValue(0), big);
+        assertEquals(batch.getValue(0), (double) big);
+    }
+
+    @Test
+    public void testListCreatesMetricsOnce() throws Exception {
+        MetricBatch batch = new MetricBatch(1);
+        batch.add(MonitorConfig.builder("m1").build(), 1L, 1L);
+        Metric m1 = batch.toList().get(0);
+        assertSame(batch.toList().get(0), m1);
+
+        batch.add(MonitorConfig.builder("m2").build(), 2L, 2.0);
+        List<Metric> metrics = batch.toList();
+        assertSame(metrics.get(0), m1);
+        assertSame(metrics.get(1), metrics.get(1));
+        assertEquals(metrics.get(1).getValue(), 2.0);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() throws Exception {
+        MetricBatch batch = new MetricBatch(10);
+        batch.add(MonitorConfig.builder("m").build(), 1L, 1.0);
+        batch.getValue(1);
+    }
+
+    @Test
+    public void testSendTo() throws Exception {
+        MetricBatch batch = new MetricBatch();
+        batch.add(MonitorConfig.builder("m").build(), 1L, 1.0);
+        MemoryMetricObserver observer = new MemoryMetricObserver("m", 1);
+        batch.sendTo(observer);
+        assertEquals(observer.getObservations().get(0), batch.toList());
+    }
+}
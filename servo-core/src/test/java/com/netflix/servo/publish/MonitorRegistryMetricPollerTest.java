@@ -15,19 +15,35 @@
  */
 package com.netflix.servo.publish;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.netflix.servo.BasicMonitorRegistry;
+import com.netflix.servo.CopyOnWriteMonitorRegistry;
 import com.netflix.servo.Metric;
 import com.netflix.servo.MonitorRegistry;
 import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.jsr166e.ForkJoinPool;
 import com.netflix.servo.monitor.AbstractMonitor;
+import com.netflix.servo.monitor.BasicGauge;
+import com.netflix.servo.monitor.CompositeMonitor;
 import com.netflix.servo.monitor.Counter;
+import com.netflix.servo.monitor.Monitor;
 import com.netflix.servo.monitor.MonitorConfig;
 import com.netflix.servo.monitor.Monitors;
+import com.netflix.servo.util.Benchmark;
 import org.testng.annotations.Test;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.netflix.servo.publish.BasicMetricFilter.MATCH_ALL;
@@ -52,6 +68,25 @@ public class MonitorRegistryMetricPollerTest {
         assertEquals(metric.getConfig(), expected);
     }
 
+    @Test
+    public void testBatchPipelineKeepsValueTypes() throws Exception {
+        MonitorRegistry registry = new BasicMonitorRegistry();
+        registry.register(new BasicGauge<Long>(MonitorConfig.builder("gauge").build(),
+            new Callable<Long>() {
+                public Long call() {
+                    return 42L;
+                }
+            }));
+
+        MemoryMetricObserver observer = new MemoryMetricObserver("m", 1);
+        MonitorRegistryMetricPoller poller = new MonitorRegistryMetricPoller(registry);
+        new PollRunnable(poller, MATCH_ALL,
+            new CounterToRateMetricTransform(observer, 60, TimeUnit.SECONDS)).run();
+        Metric metric = observer.getObservations().get(0).get(0);
+        assertEquals(metric.getValue(), 42L);
+        poller.shutdown();
+    }
+
     @Test
     public void testSlowMonitor() throws Exception {
         MonitorRegistry registry = new BasicMonitorRegistry();
@@ -73,6 +108,276 @@ public class MonitorRegistryMetricPollerTest {
         assertEquals(metric.getConfig(), expected);
     }
 
+    /** Filter that counts how many times it was applied. */
+    private static class CountingFilter implements MetricFilter {
+        private final String prefix;
+        private int count;
+
+        CountingFilter(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean matches(MonitorConfig config) {
+            ++count;
+            return config.getName().startsWith(prefix);
+        }
+    }
+
+    /** Composite where the list of children can be replaced. */
+    private static class MutableComposite extends AbstractMonitor<Integer>
+            implements CompositeMonitor<Integer> {
+        private volatile List<Monitor<?>> monitors = ImmutableList.of();
+
+        MutableComposite(String name) {
+            super(MonitorConfig.builder(name).build());
+        }
+
+        @Override
+        public List<Monitor<?>> getMonitors() {
+            return monitors;
+        }
+
+        @Override
+        public Integer getValue(int pollerIndex) {
+            return monitors.size();
+        }
+    }
+
+    private static List<String> names(List<Metric> metrics) {
+        List<String> names = Lists.newArrayList();
+        for (Metric m : metrics) {
+            names.add(m.getConfig().getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testCachePerFilter() throws Exception {
+        MonitorRegistry registry = new BasicMonitorRegistry();
+        registry.register(Monitors.newCounter("a.1"));
+        registry.register(Monitors.newCounter("b.1"));
+
+        MetricPoller poller = new MonitorRegistryMetricPoller(
+            registry, 1L, TimeUnit.HOURS, false);
+        MetricFilter a = new CountingFilter("a.");
+        MetricFilter b = new CountingFilter("b.");
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(names(poller.poll(a)), ImmutableList.of("a.1"));
+            assertEquals(names(poller.poll(b)), ImmutableList.of("b.1"));
+        }
+    }
+
+    @Test
+    public void testLiveCompositeList() throws Exception {
+        CopyOnWriteMonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        MutableComposite composite = new MutableComposite("composite");
+        List<Monitor<?>> children = new CopyOnWriteArrayList<Monitor<?>>();
+        children.add(Monitors.newCounter("a.1"));
+        composite.monitors = Collections.unmodifiableList(children);
+        registry.register(composite);
+
+        MetricPoller poller = new MonitorRegistryMetricPoller(registry, 0L, TimeUnit.SECONDS,
+            false);
+        CountingFilter filter = new CountingFilter("");
+        assertEquals(names(poller.poll(filter)), ImmutableList.of("a.1"));
+
+        // Same list instance, modified in place
+        children.add(Monitors.newCounter("a.2"));
+        assertEquals(names(poller.poll(filter)), ImmutableList.of("a.1", "a.2"));
+        children.set(0, Monitors.newCounter("a.3"));
+        assertEquals(names(poller.poll(filter)), ImmutableList.of("a.3", "a.2"));
+        assertEquals(filter.count, 3);
+    }
+
+    @Test
+    public void testIncrementalRefresh() throws Exception {
+        CopyOnWriteMonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        MutableComposite composite = new MutableComposite("composite");
+        Monitor<?> c1 = Monitors.newCounter("a.1");
+        Monitor<?> c2 = Monitors.newCounter("a.2");
+        composite.monitors = ImmutableList.<Monitor<?>>of(c1);
+        registry.registerAll(ImmutableList.<Monitor<?>>of(composite, Monitors.newCounter("b.1")));
+
+        MetricPoller poller = new MonitorRegistryMetricPoller(registry, 0L, TimeUnit.SECONDS,
+            false);
+        CountingFilter filter = new CountingFilter("");
+        assertEquals(names(poller.poll(filter)), ImmutableList.of("a.1", "b.1"));
+        assertEquals(filter.count, 2);
+
+        // Nothing changed, filter is not applied again
+        assertEquals(names(poller.poll(filter)), ImmutableList.of("a.1", "b.1"));
+        assertEquals(filter.count, 2);
+
+        // Only the new monitor in the composite is filtered
+        composite.monitors = ImmutableList.<Monitor<?>>of(c1, c2);
+        assertEquals(names(poller.poll(filter)), ImmutableList.of("a.1", "a.2", "b.1"));
+        assertEquals(filter.count, 3);
+
+        // Changes to the registry are picked up
+        registry.register(Monitors.newCounter("c.1"));
+        registry.unregister(composite);
+        assertEquals(names(poller.poll(filter)), ImmutableList.of("b.1", "c.1"));
+        assertEquals(filter.count, 4);
+    }
+
+    @Test
+    public void testBatchDeadline() throws Exception {
+        MonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        for (int i = 0; i < 3; ++i) {
+            registry.register(new SlowCounter("slow" + i));
+        }
+        registry.register(new BasicGauge<Integer>(MonitorConfig.builder("gauge").build(),
+            new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return 42;
+                }
+            }));
+        registry.register(Monitors.newCounter("test"));
+
+        MonitorRegistryMetricPoller poller = new MonitorRegistryMetricPoller(
+            registry, 0L, TimeUnit.SECONDS, 2, 500L, TimeUnit.MILLISECONDS);
+        try {
+            long start = System.currentTimeMillis();
+            List<Metric> metrics = poller.poll(MATCH_ALL);
+            long end = System.currentTimeMillis();
+
+            // One deadline for the poll rather than a timeout per slow monitor
+            assertTrue(end - start < TEN_SECONDS);
+            // Both workers are stuck on slow monitors, only the inline counter is read
+            assertEquals(names(metrics), ImmutableList.of("test"));
+        } finally {
+            poller.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchHungCallbacksDoNotQueueWork() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        List<Monitor<?>> monitors = Lists.newArrayList();
+        for (int i = 0; i < 2; ++i) {
+            monitors.add(new BasicGauge<Integer>(MonitorConfig.builder("hung" + i).build(),
+                new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        // Ignores interrupts like a call blocked in native code
+                        while (true) {
+                            try {
+                                release.await();
+                                return 1;
+                            } catch (InterruptedException e) {
+                                continue;
+                            }
+                        }
+                    }
+                }));
+        }
+
+        ThreadPoolExecutor pool = BatchValueCollector.newPool(2, Executors.defaultThreadFactory());
+        BatchValueCollector collector =
+            new BatchValueCollector(pool, 2, 50L, TimeUnit.MILLISECONDS);
+        try {
+            for (int i = 0; i < 10; ++i) {
+                BatchValueCollector.Result result = collector.collect(monitors);
+                assertEquals(result.getTimedOut().size(), 2);
+                assertEquals(pool.getQueue().size(), 0);
+            }
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchFastMonitors() throws Exception {
+        MonitorRegistry registry = new BasicMonitorRegistry();
+        for (int i = 0; i < 100; ++i) {
+            final int v = i;
+            registry.register(new BasicGauge<Integer>(MonitorConfig.builder("g" + i).build(),
+                new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return v;
+                    }
+                }));
+            registry.register(Monitors.newCounter("c" + i));
+        }
+
+        MonitorRegistryMetricPoller poller = new MonitorRegistryMetricPoller(
+            registry, 0L, TimeUnit.SECONDS, 4, 10L, TimeUnit.SECONDS);
+        try {
+            List<Metric> metrics = poller.poll(MATCH_ALL);
+            assertEquals(metrics.size(), 200);
+            for (Metric m : metrics) {
+                String name = m.getConfig().getName();
+                if (name.startsWith("g")) {
+                    assertEquals(m.getNumberValue().intValue(),
+                        Integer.parseInt(name.substring(1)));
+                }
+            }
+        } finally {
+            poller.shutdown();
+        }
+    }
+
+    private static MonitorRegistry newLargeRegistry(int size) {
+        List<Monitor<?>> monitors = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; ++i) {
+            Counter c = Monitors.newCounter("c" + i);
+            c.increment(i);
+            monitors.add(c);
+        }
+        CopyOnWriteMonitorRegistry registry = new CopyOnWriteMonitorRegistry();
+        registry.registerAll(monitors);
+        return registry;
+    }
+
+    @Test
+    public void testParallelPoll() throws Exception {
+        MonitorRegistry registry = newLargeRegistry(10000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MetricPoller serial = new MonitorRegistryMetricPoller(
+                registry, 0L, TimeUnit.SECONDS, false);
+            MetricPoller parallel = new MonitorRegistryMetricPoller(
+                registry, 0L, TimeUnit.SECONDS, pool);
+            List<Metric> expected = serial.poll(MATCH_ALL);
+            List<Metric> actual = parallel.poll(MATCH_ALL);
+            assertEquals(actual.size(), 10000);
+            assertEquals(names(actual), names(expected));
+
+            // Small polls are read on the calling thread
+            assertEquals(names(parallel.poll(new CountingFilter("c99"))).size(), 111);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(groups = "benchmark")
+    public void benchmarkParallelPoll() throws Exception {
+        MonitorRegistry registry = newLargeRegistry(500000);
+        MetricPoller serial = new MonitorRegistryMetricPoller(
+            registry, 0L, TimeUnit.SECONDS, false);
+        MetricPoller parallel = new MonitorRegistryMetricPoller(
+            registry, 0L, TimeUnit.SECONDS, ForkJoinPool.commonPool());
+        new Benchmark("poll, parallelism=" + ForkJoinPool.commonPool().getParallelism(), 500000)
+            .add("serial", newPollTask(serial, 500000))
+            .add("parallel", newPollTask(parallel, 500000))
+            .run();
+    }
+
+    private static Benchmark.Task newPollTask(final MetricPoller poller, final int expected) {
+        return new Benchmark.Task() {
+            @Override
+            public long run() {
+                List<Metric> metrics = poller.poll(MATCH_ALL);
+                assertEquals(metrics.size(), expected);
+                return metrics.get(metrics.size() - 1).getTimestamp();
+            }
+        };
+    }
+
     @Test(enabled = false)
     public void testShutdown() throws Exception {
         MonitorRegistry registry = new BasicMonitorRegistry();
@@ -18,7 +18,9 @@ package com.netflix.servo.publish;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import com.netflix.servo.Metric;
+import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.stats.QuantileSketch;
 import com.netflix.servo.util.ManualClock;
 import org.testng.annotations.Test;
 
@@ -105,6 +107,21 @@ public class NormalizationTransformTest {
         assertMetrics(10, 20, inputList, expected);
     }
 
+    @Test
+    public void testDistributionPassedThrough() throws Exception {
+        ManualClock clock = new ManualClock(0);
+        MemoryMetricObserver mmo = new MemoryMetricObserver("m", 1);
+        MetricObserver transform = new NormalizationTransform(mmo, 10, 20, clock);
+
+        MonitorConfig config = MonitorConfig.builder("test")
+                .withTag(DataSourceType.DISTRIBUTION)
+                .build();
+        QuantileSketch sketch = QuantileSketch.empty(0.01);
+        Metric m = new Metric(config, 5, sketch);
+        transform.update(ImmutableList.of(m));
+        assertEquals(mmo.getObservations().get(0), ImmutableList.of(m));
+    }
+
     @Test
     public void testAlreadyNormalized() throws Exception {
         List<Metric> inputList = ImmutableList.of(
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.stats;
+
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class QuantileSketchTest {
+
+    private static final double ACCURACY = QuantileSketch.DEFAULT_RELATIVE_ACCURACY;
+
+    private static void assertRelativeError(double actual, double expected) {
+        assertTrue(Math.abs(actual - expected) <= expected * ACCURACY + 1e-9,
+                "expected " + expected + " but was " + actual);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        QuantileSketch sketch = QuantileSketch.empty(ACCURACY);
+        assertEquals(sketch.getCount(), 0L);
+        assertEquals(sketch.getTotal(), 0L);
+        assertEquals(sketch.getPercentile(99.0), 0.0);
+        assertEquals(QuantileSketch.fromByteArray(sketch.toByteArray()), sketch);
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        QuantileSketch.Builder builder = new QuantileSketch.Builder(ACCURACY);
+        for (int i = 1; i <= 1000; ++i) {
+            builder.record(i);
+        }
+        QuantileSketch sketch = builder.build();
+        assertEquals(sketch.getCount(), 1000L);
+        assertEquals(sketch.getTotal(), 500500L);
+        assertRelativeError(sketch.getPercentile(0.0), 1.0);
+        assertRelativeError(sketch.getPercentile(50.0), 500.0);
+        assertRelativeError(sketch.getPercentile(99.0), 990.0);
+        assertRelativeError(sketch.getPercentile(100.0), 1000.0);
+    }
+
+    @Test
+    public void testZeroAndLargeValues() throws Exception {
+        QuantileSketch sketch = new QuantileSketch.Builder(ACCURACY)
+                .record(0L)
+                .record(-1L)
+                .record(Long.MAX_VALUE)
+                .build();
+        assertEquals(sketch.getCount(), 2L);
+        assertEquals(sketch.getPercentile(0.0), 0.0);
+        assertRelativeError(sketch.getPercentile(100.0), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testMergeMatchesSingleSketch() throws Exception {
+        Random r = new Random(42);
+        QuantileSketch.Builder all = new QuantileSketch.Builder(ACCURACY);
+        List<QuantileSketch> parts = Lists.newArrayList();
+        long[] values = new long[10000];
+        for (int n = 0; n < 10; ++n) {
+            QuantileSketch.Builder part = new QuantileSketch.Builder(ACCURACY);
+            for (int i = 0; i < 1000; ++i) {
+                // Each node sees a different range of values
+                final long v = (long) (r.nextDouble() * 1000 * (n + 1));
+                values[n * 1000 + i] = v;
+                part.record(v);
+                all.record(v);
+            }
+            parts.add(part.build());
+        }
+        QuantileSketch merged = QuantileSketch.mergeAll(parts);
+        assertEquals(merged, all.build());
+        assertEquals(parts.get(0).merge(parts.get(1)).getCount(), 2000L);
+
+        Arrays.sort(values);
+        assertRelativeError(merged.getPercentile(99.0), values[(int) (0.99 * 9999)]);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        QuantileSketch.Builder builder = new QuantileSketch.Builder(ACCURACY);
+        for (int i = 0; i < 10000; ++i) {
+            builder.record(1000L + i % 100);
+        }
+        QuantileSketch sketch = builder.build();
+        byte[] data = sketch.toByteArray();
+        assertTrue(data.length < 64, "sketch encoded in " + data.length + " bytes");
+        QuantileSketch decoded = QuantileSketch.fromByteArray(data);
+        assertEquals(decoded, sketch);
+        assertEquals(decoded.getPercentile(50.0), sketch.getPercentile(50.0));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTruncatedData() throws Exception {
+        byte[] data = new QuantileSketch.Builder(ACCURACY).record(42L).build().toByteArray();
+        QuantileSketch.fromByteArray(Arrays.copyOf(data, data.length - 1));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMergeDifferentAccuracy() throws Exception {
+        QuantileSketch.empty(0.01).merge(QuantileSketch.empty(0.02));
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.stats;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class RecordingBufferTest {
+    static final double[] PERCENTILES = {50.0, 95.0};
+
+    private static final int SIZE = 1000;
+
+    @Test
+    public void testDrain() {
+        RecordingBuffer recorder = new RecordingBuffer(SIZE);
+        StatsBuffer buffer = new StatsBuffer(SIZE, PERCENTILES);
+        for (int i = 0; i < 10; ++i) {
+            recorder.record(i);
+        }
+        assertEquals(recorder.drainTo(buffer), 10);
+        buffer.computeStats();
+        assertEquals(buffer.getCount(), 10);
+        assertEquals(buffer.getTotalTime(), 45L);
+        assertEquals(buffer.getMax(), 9L);
+    }
+
+    @Test
+    public void testDrainOnlyNewValues() {
+        RecordingBuffer recorder = new RecordingBuffer(SIZE);
+        StatsBuffer buffer = new StatsBuffer(SIZE, PERCENTILES);
+        recorder.record(1);
+        recorder.record(2);
+        assertEquals(recorder.drainTo(buffer), 2);
+        assertEquals(recorder.drainTo(buffer), 0);
+        recorder.record(3);
+        assertEquals(recorder.drainTo(buffer), 1);
+        assertEquals(buffer.getTotalTime(), 6L);
+    }
+
+    @Test
+    public void testWrapCountsAllValues() {
+        RecordingBuffer recorder = new RecordingBuffer(SIZE);
+        StatsBuffer buffer = new StatsBuffer(SIZE, PERCENTILES);
+        final int n = SIZE * 3;
+        for (int i = 0; i < n; ++i) {
+            recorder.record(i);
+        }
+        assertEquals(recorder.drainTo(buffer), n);
+        buffer.computeStats();
+        assertEquals(buffer.getCount(), n);
+        assertEquals(buffer.getTotalTime(), (long) n * (n - 1) / 2);
+        assertEquals(buffer.getMean(), (n - 1) / 2.0, 1e-6);
+        assertEquals(buffer.getVariance(), ((double) n * n - 1) / 12.0, 1e-3);
+        assertEquals(buffer.getMin(), 0L);
+        assertEquals(buffer.getMax(), n - 1L);
+
+        // only the most recent values are used as the sample for the percentiles
+        assertEquals(buffer.getPercentileValues()[0], 2.5 * SIZE, 1.0);
+    }
+
+    @Test
+    public void testConcurrentRecord() throws Exception {
+        final int numThreads = 4;
+        final int numValues = 10000;
+        final RecordingBuffer recorder = new RecordingBuffer(numThreads * numValues);
+        ExecutorService exec = Executors.newFixedThreadPool(numThreads);
+        for (int i = 0; i < numThreads; ++i) {
+            exec.submit(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < numValues; ++j) {
+                        recorder.record(1);
+                    }
+                }
+            });
+        }
+        exec.shutdown();
+        assertTrue(exec.awaitTermination(1, TimeUnit.MINUTES));
+
+        StatsBuffer buffer = new StatsBuffer(numThreads * numValues, PERCENTILES);
+        assertEquals(recorder.drainTo(buffer), numThreads * numValues);
+        assertEquals(buffer.getTotalTime(), (long) numThreads * numValues);
+    }
+
+    @Test
+    public void testConcurrentRecordSmallSample() throws Exception {
+        final int numThreads = 4;
+        final int numValues = 10000;
+        final RecordingBuffer recorder = new RecordingBuffer(100);
+        ExecutorService exec = Executors.newFixedThreadPool(numThreads);
+        for (int i = 0; i < numThreads; ++i) {
+            exec.submit(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < numValues; ++j) {
+                        recorder.record(j);
+                    }
+                }
+            });
+        }
+        exec.shutdown();
+        assertTrue(exec.awaitTermination(1, TimeUnit.MINUTES));
+
+        StatsBuffer buffer = new StatsBuffer(100, PERCENTILES);
+        assertEquals(recorder.drainTo(buffer), numThreads * numValues);
+        buffer.computeStats();
+        assertEquals(buffer.getCount(), numThreads * numValues);
+        assertEquals(buffer.getTotalTime(), (long) numThreads * numValues * (numValues - 1) / 2);
+        assertEquals(buffer.getMin(), 0L);
+        assertEquals(buffer.getMax(), numValues - 1L);
+    }
+}
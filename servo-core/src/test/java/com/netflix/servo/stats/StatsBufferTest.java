@@ -17,6 +17,9 @@ package com.netflix.servo.stats;
 
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.testng.Assert.assertEquals;
 
 public class StatsBufferTest {
@@ -170,7 +173,7 @@ public class StatsBufferTest {
         assertEquals(buffer.getMean(), (double) EXPECTED_TOTAL_WRAP / (SIZE * 2));
     }
 
-    static final double EXPECTED_VARIANCE_WRAP = 1667666.75;
+    static final double EXPECTED_VARIANCE_WRAP = 333333.25;
     @Test
     public void testVarianceWrap() {
         StatsBuffer buffer = getWithWrap();
@@ -212,5 +215,56 @@ public class StatsBufferTest {
         assertEquals(percentiles[3], 996.0);
     }
 
+    @Test
+    public void testVarianceLargeValues() {
+        // n * n overflows a long for these values
+        final long base = 4L * 1000 * 1000 * 1000 * 1000;
+        StatsBuffer buffer = new StatsBuffer(SIZE, PERCENTILES);
+        for (int i = 0; i <= SIZE / 2; ++i) {
+            buffer.record(base + i);
+        }
+        buffer.computeStats();
+        assertEquals(buffer.getMean(), base + SIZE / 4.0);
+        assertEquals(buffer.getVariance(), 20916.66667, 1e-4);
+    }
+
+    @Test
+    public void testPercentilesMatchSorted() {
+        final Random random = new Random(42);
+        final double[] percents = {0.1, 25.0, 50.0, 90.0, 99.9, 100.0};
+        for (int n = 1; n < 3000; n += 7) {
+            StatsBuffer buffer = new StatsBuffer(n, percents);
+            long[] sorted = new long[n];
+            for (int i = 0; i < n; ++i) {
+                // lots of duplicates, as is typical for timings
+                sorted[i] = random.nextInt(50);
+                buffer.record(sorted[i]);
+            }
+            buffer.computeStats();
+            Arrays.sort(sorted);
+
+            assertEquals(buffer.getMin(), sorted[0]);
+            assertEquals(buffer.getMax(), sorted[n - 1]);
+            for (int i = 0; i < percents.length; ++i) {
+                assertEquals(buffer.getPercentileValues()[i], percentile(sorted, percents[i]), 1e-9);
+            }
+        }
+    }
 
+    private static double percentile(long[] sorted, double percent) {
+        final int n = sorted.length;
+        if (n == 1) {
+            return sorted[0];
+        }
+        final double rank = percent * n / 100.0;
+        final int ir = (int) Math.floor(rank);
+        final double fr = rank - ir;
+        if (ir + 1 >= n) {
+            return sorted[n - 1];
+        } else if (fr == 0.0) {
+            return sorted[ir];
+        } else {
+            return fr * (sorted[ir + 1] - sorted[ir]) + sorted[ir];
+        }
+    }
 }
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.tag;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class ArrayTagListTest {
+
+    private static ArrayTagList of(String... tags) {
+        final List<Tag> tagList = Lists.newArrayList();
+        for (int i = 0; i < tags.length; i += 2) {
+            tagList.add(new BasicTag(tags[i], tags[i + 1]));
+        }
+        return new ArrayTagList(tagList);
+    }
+
+    @Test
+    public void testSorted() throws Exception {
+        ArrayTagList tags = of("foo", "bar", "dee", "dum", "abc", "def");
+        assertEquals(tags.size(), 3);
+        assertEquals(tags.getKey(0), "abc");
+        assertEquals(tags.getKey(1), "dee");
+        assertEquals(tags.getKey(2), "foo");
+        assertEquals(tags.toString(), "abc=def,dee=dum,foo=bar");
+        List<Tag> expected = ImmutableList.<Tag>of(
+                new BasicTag("abc", "def"), new BasicTag("dee", "dum"), new BasicTag("foo", "bar"));
+        assertEquals(Lists.newArrayList(tags), expected);
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        ArrayTagList tags = of("foo", "bar", "dee", "dum");
+        assertEquals(tags.getValue("foo"), "bar");
+        assertEquals(tags.getTag("dee"), new BasicTag("dee", "dum"));
+        assertTrue(tags.containsKey("dee"));
+        assertNull(tags.getValue("abc"));
+        assertNull(tags.getTag("abc"));
+        assertFalse(tags.containsKey("abc"));
+    }
+
+    @Test
+    public void testDuplicateKeys() throws Exception {
+        Map<String, String> map = ImmutableMap.of("foo", "bar2");
+        assertEquals(of("foo", "bar", "foo", "bar2").asMap(), map);
+    }
+
+    @Test
+    public void testCopyTag() throws Exception {
+        ArrayTagList t1 = of("foo", "bar");
+        assertEquals(t1.copy("dee", "dum"), of("foo", "bar", "dee", "dum"));
+        assertEquals(t1.copy("foo", "bar2"), of("foo", "bar2"));
+        assertEquals(t1.getValue("foo"), "bar");
+    }
+
+    @Test
+    public void testCopyTagList() throws Exception {
+        ArrayTagList t1 = of("a", "1", "c", "3", "e", "5");
+        ArrayTagList t2 = of("b", "2", "c", "4", "f", "6");
+        assertEquals(t1.copy(t2), of("a", "1", "b", "2", "c", "4", "e", "5", "f", "6"));
+        assertEquals(t1.copy(BasicTagList.of("a", "0")), of("a", "0", "c", "3", "e", "5"));
+        assertSame(t1.copy(ArrayTagList.EMPTY), t1);
+        assertSame(ArrayTagList.EMPTY.copy(t1), t1);
+    }
+
+    @Test
+    public void testEqualsBasicTagList() throws Exception {
+        ArrayTagList t1 = of("foo", "bar", "dee", "dum");
+        TagList t2 = BasicTagList.of("foo", "bar", "dee", "dum");
+        assertEquals(t1, t2);
+        assertEquals(t2, t1);
+        assertEquals(t1.hashCode(), t2.hashCode());
+        assertNotEquals(t1, BasicTagList.of("foo", "bar", "dee", "dum2"));
+        assertEquals(ArrayTagList.EMPTY, BasicTagList.EMPTY);
+        assertEquals(ArrayTagList.EMPTY.hashCode(), BasicTagList.EMPTY.hashCode());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ArrayTagList tags = new ArrayTagList(ImmutableList.<Tag>of());
+        assertTrue(tags.isEmpty());
+        assertEquals(tags, ArrayTagList.EMPTY);
+        assertFalse(tags.iterator().hasNext());
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.util;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helper for the rough timing comparisons in the {@code benchmark} test group. The tasks are
+ * run interleaved for a few warm up rounds and then for the measured rounds, and the median time
+ * per operation of each task is logged. The value returned by each run is consumed so the JIT
+ * cannot eliminate the work being measured. Run with {@code gradle benchmark}.
+ */
+public final class Benchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Benchmark.class);
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    /** Operation being measured. */
+    public interface Task {
+        /**
+         * Run the operation, the return value should depend on all of the work done, e.g., a
+         * sum of the results.
+         */
+        long run() throws Exception;
+    }
+
+    /** Receives the results so they are not dead code. */
+    private static volatile long sink;
+
+    private final String name;
+    private final long opsPerRun;
+    private final List<String> names = new ArrayList<String>();
+    private final List<Task> tasks = new ArrayList<Task>();
+
+    /**
+     * Create a new benchmark.
+     *
+     * @param name       name used when logging the results
+     * @param opsPerRun  number of operations performed by each run of a task
+     */
+    public Benchmark(String name, long opsPerRun) {
+        Preconditions.checkArgument(opsPerRun > 0, "opsPerRun must be positive");
+        this.name = name;
+        this.opsPerRun = opsPerRun;
+    }
+
+    /** Add a task to compare. */
+    public Benchmark add(String taskName, Task task) {
+        names.add(taskName);
+        tasks.add(task);
+        return this;
+    }
+
+    /**
+     * Run the tasks and log the results.
+     *
+     * @return median time per operation in nanoseconds for each task, in the order they were
+     *         added
+     */
+    public double[] run() throws Exception {
+        final long[][] times = new long[tasks.size()][ROUNDS];
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; ++round) {
+            for (int i = 0; i < tasks.size(); ++i) {
+                final long start = System.nanoTime();
+                final long result = tasks.get(i).run();
+                final long elapsed = System.nanoTime() - start;
+                sink += result;
+                if (round >= WARMUP_ROUNDS) {
+                    times[i][round - WARMUP_ROUNDS] = elapsed;
+                }
+            }
+        }
+
+        final double[] nanosPerOp = new double[tasks.size()];
+        for (int i = 0; i < tasks.size(); ++i) {
+            Arrays.sort(times[i]);
+            nanosPerOp[i] = (double) times[i][ROUNDS / 2] / opsPerRun;
+            LOGGER.info(String.format("%s benchmark: %s=%.1fns/op (median of %d rounds)",
+                    name, names.get(i), nanosPerOp[i], ROUNDS));
+        }
+        return nanosPerOp;
+    }
+}
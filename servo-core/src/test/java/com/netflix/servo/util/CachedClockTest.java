@@ -0,0 +1,52 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class CachedClockTest {
+
+    @Test
+    public void testAdvances() throws Exception {
+        CachedClock clock = new CachedClock(1L);
+        try {
+            final long start = clock.now();
+            assertTrue(Math.abs(start - System.currentTimeMillis()) < 1000L);
+            Thread.sleep(50L);
+            assertTrue(clock.now() > start, "clock should be updated by the ticker");
+        } finally {
+            clock.stop();
+        }
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        CachedClock clock = new CachedClock(1L);
+        clock.stop();
+        Thread.sleep(10L);
+        final long stopped = clock.now();
+        Thread.sleep(50L);
+        assertEquals(clock.now(), stopped);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadResolution() throws Exception {
+        new CachedClock(0L);
+    }
+}
@@ -19,6 +19,8 @@ import com.netflix.servo.jsr166e.ConcurrentHashMapV8;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 public class ExpiringCacheTest {
     static class CountingFun implements ConcurrentHashMapV8.Fun<String, Integer> {
@@ -50,4 +52,123 @@ public class ExpiringCacheTest {
         assertEquals(threeOnceMore, Integer.valueOf(3));
         assertEquals(fun.numCalled, 2, "Properly expires unused entries");
     }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        ManualClock clock = new ManualClock(0L);
+        CountingFun fun = new CountingFun();
+        ExpiringCache<String, Integer> map =
+                new ExpiringCache<String, Integer>(10000L, fun, 2, 100L, clock);
+
+        map.get("a");
+        clock.set(100L);
+        map.get("bb");
+        clock.set(200L);
+        map.get("a");
+        clock.set(300L);
+        map.get("ccc");
+
+        assertEquals(map.size(), 2);
+        assertEquals(map.getEvictionCount(), 1L);
+        assertEquals(fun.numCalled, 3);
+
+        // least recently used entry was evicted
+        map.get("a");
+        assertEquals(fun.numCalled, 3);
+        map.get("bb");
+        assertEquals(fun.numCalled, 4);
+    }
+
+    @Test
+    public void testMaxSizeSameTick() throws Exception {
+        ManualClock clock = new ManualClock(0L);
+        CountingFun fun = new CountingFun();
+        ExpiringCache<String, Integer> map =
+                new ExpiringCache<String, Integer>(10000L, fun, 32, 100L, clock);
+
+        // all entries are accessed in the current tick, they must still be evicted. If the
+        // expiration job holds the lock the cache can go up to a batch (32 / 16) over the max.
+        for (int i = 0; i < 1000; ++i) {
+            map.get("k" + i);
+            assertTrue(map.size() <= 34);
+        }
+        assertEquals(fun.numCalled, 1000);
+    }
+
+    @Test
+    public void testEvictsBatch() throws Exception {
+        ManualClock clock = new ManualClock(0L);
+        CountingFun fun = new CountingFun();
+        ExpiringCache<String, Integer> map =
+                new ExpiringCache<String, Integer>(10000L, fun, 32, 100L, clock);
+
+        for (int i = 0; i < 32; ++i) {
+            map.get("k" + i);
+        }
+        assertEquals(map.getEvictionCount(), 0L);
+
+        // going over the limit evicts down to the low water mark rather than a single entry. The
+        // eviction may be left to the expiration job if it holds the lock, running the job
+        // again waits for it.
+        clock.set(100L);
+        map.get("new");
+        map.expire();
+        assertEquals(map.size(), 30);
+        assertEquals(map.getEvictionCount(), 3L);
+        map.get("new");
+        assertEquals(fun.numCalled, 33);
+    }
+
+    @Test
+    public void testGetIfPresent() throws Exception {
+        ManualClock clock = new ManualClock(0L);
+        CountingFun fun = new CountingFun();
+        ExpiringCache<String, Integer> map =
+                new ExpiringCache<String, Integer>(100L, fun, 100L, clock);
+
+        assertNull(map.getIfPresent("foo"));
+        assertEquals(fun.numCalled, 0);
+        map.get("foo");
+        assertEquals(map.getIfPresent("foo"), Integer.valueOf(3));
+        assertEquals(fun.numCalled, 1);
+        assertEquals(map.getHitCount(), 1L);
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        ManualClock clock = new ManualClock(0L);
+        CountingFun fun = new CountingFun();
+        ExpiringCache<String, Integer> map =
+                new ExpiringCache<String, Integer>(100L, fun, 100L, clock);
+
+        map.get("foo");
+        map.get("foo");
+        map.get("bar");
+        map.get("foo");
+        assertEquals(map.getHitCount(), 2L);
+        assertEquals(map.getMissCount(), 2L);
+        assertEquals(map.getEvictionCount(), 0L);
+        assertEquals(map.size(), 2);
+    }
+
+    @Test
+    public void testAccessKeepsEntry() throws Exception {
+        ManualClock clock = new ManualClock(0L);
+        CountingFun fun = new CountingFun();
+        ExpiringCache<String, Integer> map =
+                new ExpiringCache<String, Integer>(200L, fun, 100L, clock);
+
+        map.get("foo");
+        map.get("bar");
+        clock.set(250L);
+        map.get("foo");
+        clock.set(350L);
+        map.expire();
+
+        assertEquals(map.size(), 1);
+        assertEquals(map.values().get(0), Integer.valueOf(3));
+        assertEquals(map.getEvictionCount(), 1L);
+        map.get("foo");
+        assertEquals(fun.numCalled, 2);
+    }
 }
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.servo.util;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class ShardedInternerTest {
+
+    private static final int NUM_THREADS = 4;
+    private static final int NUM_VALUES = 10000;
+    private static final int ITERATIONS = 2000;
+
+    private void checkCanonical(Interner<String> interner) {
+        final String v1 = new String("foo");
+        final String v2 = new String("foo");
+        final String c1 = interner.intern(v1);
+        assertSame(c1, v1);
+        assertSame(interner.intern(v2), c1);
+        assertEquals(interner.intern(new String("bar")), "bar");
+        assertSame(interner.intern(new String("foo")), c1);
+    }
+
+    @Test
+    public void testCanonical() throws Exception {
+        checkCanonical(new ShardedInterner<String>());
+    }
+
+    @Test
+    public void testNoCache() throws Exception {
+        checkCanonical(new ShardedInterner<String>(3, 0));
+    }
+
+    @Test
+    public void testCacheCollisions() throws Exception {
+        // Single slot cache, values will keep replacing each other
+        final ShardedInterner<String> interner = new ShardedInterner<String>(1, 1);
+        final String foo = interner.intern(new String("foo"));
+        final String bar = interner.intern(new String("bar"));
+        assertSame(interner.intern(new String("foo")), foo);
+        assertSame(interner.intern(new String("bar")), bar);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadShards() throws Exception {
+        new ShardedInterner<String>(0, 16);
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final ShardedInterner<String> interner = new ShardedInterner<String>(4, 64);
+        final String[] expected = new String[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; ++i) {
+            expected[i] = interner.intern("value-" + i);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            Future<?>[] futures = new Future<?>[NUM_THREADS];
+            for (int t = 0; t < NUM_THREADS; ++t) {
+                futures[t] = pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < NUM_VALUES; ++i) {
+                            assertSame(interner.intern("value-" + i), expected[i]);
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Rough comparison of the throughput with a single guava weak interner for a workload with
+     * a small set of hot values, as is typical for tag keys and values. Run with
+     * {@code gradle benchmark}.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkHotValues() throws Exception {
+        final String[] values = new String[256];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = "value-" + i;
+        }
+        final long ops = (long) NUM_THREADS * ITERATIONS * values.length;
+        new Benchmark("interner", ops)
+                .add("weak", newInternTask(Interners.<String>newWeakInterner(), values))
+                .add("sharded", newInternTask(new ShardedInterner<String>(), values))
+                .run();
+    }
+
+    private Benchmark.Task newInternTask(final Interner<String> interner, final String[] values) {
+        return new Benchmark.Task() {
+            @Override
+            public long run() throws Exception {
+                return ShardedInternerTest.this.run(interner, values);
+            }
+        };
+    }
+
+    /** Intern the values from several threads, returns a value derived from the results. */
+    private long run(final Interner<String> interner, final String[] values) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<Long>> futures = Lists.newArrayList();
+            for (int t = 0; t < NUM_THREADS; ++t) {
+                futures.add(pool.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        long sum = 0L;
+                        for (int n = 0; n < ITERATIONS; ++n) {
+                            for (String v : values) {
+                                // new instance each time like a string built from a request
+                                sum += System.identityHashCode(interner.intern(new String(v)));
+                            }
+                        }
+                        return sum;
+                    }
+                }));
+            }
+            long sum = 0L;
+            for (Future<Long> f : futures) {
+                sum += f.get();
+            }
+            return sum;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
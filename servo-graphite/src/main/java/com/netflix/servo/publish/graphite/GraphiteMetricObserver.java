@@ -135,6 +135,11 @@ public class GraphiteMetricObserver extends BaseMetricObserver {
         int count = 0;
         for ( Metric metric : metrics )
         {
+            // the line protocol only supports numbers, skips informational and distribution values
+            if ( !metric.hasNumberValue() )
+            {
+                continue;
+            }
             String publishedName = namingConvention.getName(metric);
 
             StringBuilder sb = new StringBuilder();
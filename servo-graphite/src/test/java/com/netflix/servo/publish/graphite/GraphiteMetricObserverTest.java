@@ -16,6 +16,9 @@
 package com.netflix.servo.publish.graphite;
 
 import com.netflix.servo.Metric;
+import com.netflix.servo.monitor.DistributionSummary;
+import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.MonitorConfig;
 import org.testng.annotations.Test;
 
 import java.net.InetAddress;
@@ -73,4 +76,39 @@ public class GraphiteMetricObserverTest {
             gw.stop();
         }
     }
+
+    @Test
+    public void testDistributionSkipped() throws Exception {
+        SocketReceiverTester receiver = new SocketReceiverTester(8083);
+        receiver.start();
+
+        String host = getLocalHostIp() + ":8083";
+        GraphiteMetricObserver gw = new GraphiteMetricObserver("serverA", host);
+
+        try {
+            DistributionSummary summary = new DistributionSummary(
+                    MonitorConfig.builder("requestSize").build());
+            summary.record(42L);
+            // Reverse order so the distribution comes first and would be read if it were written
+            List<Metric> metrics = new ArrayList<Metric>();
+            for (Monitor<?> monitor : summary.getMonitors()) {
+                metrics.add(0, new Metric(monitor.getConfig(), 0L, monitor.getValue()));
+            }
+
+            gw.update(metrics);
+
+            receiver.waitForConnected();
+
+            String[] lines = receiver.waitForLines(metrics.size() - 1);
+            assertEquals(lines.length, metrics.size() - 1);
+            for (String line : lines) {
+                String[] parts = line.split(" ");
+                assertEquals(parts.length, 3, line);
+                Double.parseDouble(parts[1]);
+            }
+        } finally {
+            receiver.stop();
+            gw.stop();
+        }
+    }
 }